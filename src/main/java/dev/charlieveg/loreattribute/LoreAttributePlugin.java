@@ -2,6 +2,7 @@ package dev.charlieveg.loreattribute;
 
 import dev.charlieveg.loreattribute.command.AttributeCommandExecutor;
 import dev.charlieveg.loreattribute.command.EquipmentRestrictionCommand;
+import dev.charlieveg.loreattribute.config.ConfigFileWatcher;
 import dev.charlieveg.loreattribute.config.ConfigManager;
 import dev.charlieveg.loreattribute.listener.AttributeEffectListener;
 import dev.charlieveg.loreattribute.listener.BattleInventoryListener;
@@ -14,6 +15,13 @@ import dev.charlieveg.loreattribute.manager.AttributeManager;
 import dev.charlieveg.loreattribute.manager.BattleInventoryManager;
 import dev.charlieveg.loreattribute.manager.EquipmentRestrictionManager;
 import dev.charlieveg.loreattribute.manager.LoreEditorManager;
+import dev.charlieveg.loreattribute.manager.PlayerSessionRegistry;
+import dev.charlieveg.loreattribute.task.AoeDamageQueue;
+import dev.charlieveg.loreattribute.task.AttributeUpdateScheduler;
+import dev.charlieveg.loreattribute.task.BulletRegistry;
+import dev.charlieveg.loreattribute.task.CombatEffectDispatcher;
+import dev.charlieveg.loreattribute.task.CombatMessageAggregator;
+import dev.charlieveg.loreattribute.task.RestrictionEnforcer;
 import dev.charlieveg.loreattribute.ui.AttributeViewerUI;
 import dev.charlieveg.loreattribute.ui.LoreEditorUI;
 import dev.charlieveg.loreattribute.listener.LoreEditorListener;
@@ -33,6 +41,7 @@ public final class LoreAttributePlugin extends JavaPlugin {
     private static LoreAttributePlugin instance;
     
     private ConfigManager configManager;
+    private PlayerSessionRegistry sessionRegistry;
     private AttributeManager attributeManager;
     private BattleInventoryManager battleInventoryManager;
     private EquipmentRestrictionManager equipmentRestrictionManager;
@@ -44,6 +53,13 @@ public final class LoreAttributePlugin extends JavaPlugin {
     private EquipmentChangeListener equipmentChangeListener;
     private EquipmentRestrictionListener equipmentRestrictionListener;
     private LoreEditorListener loreEditorListener;
+    private AttributeUpdateScheduler attributeUpdateScheduler;
+    private AoeDamageQueue aoeDamageQueue;
+    private BulletRegistry bulletRegistry;
+    private RestrictionEnforcer restrictionEnforcer;
+    private CombatEffectDispatcher combatEffectDispatcher;
+    private CombatMessageAggregator combatMessageAggregator;
+    private ConfigFileWatcher configFileWatcher;
     
     @Override
     public void onEnable() {
@@ -67,7 +83,11 @@ public final class LoreAttributePlugin extends JavaPlugin {
     
     @Override
     public void onDisable() {
+        if (configFileWatcher != null) {
+            configFileWatcher.stop();
+        }
         if (attributeManager != null) {
+            attributeManager.shutdown();
             for (org.bukkit.entity.Player player : getServer().getOnlinePlayers()) {
                 attributeManager.clearPlayerAttributes(player);
             }
@@ -75,6 +95,15 @@ public final class LoreAttributePlugin extends JavaPlugin {
         if (battleInventoryManager != null) {
             battleInventoryManager.saveAllBattleInventories();
         }
+        if (aoeDamageQueue != null) {
+            aoeDamageQueue.clear();
+        }
+        if (bulletRegistry != null) {
+            bulletRegistry.clear();
+        }
+        if (restrictionEnforcer != null) {
+            restrictionEnforcer.clear();
+        }
         
         getLogger().info("LoreAttribute插件已禁用！");
     }
@@ -84,17 +113,29 @@ public final class LoreAttributePlugin extends JavaPlugin {
      */
     private void initializeManagers() {
         configManager = new ConfigManager(this);
-        attributeManager = new AttributeManager(this);
-        battleInventoryManager = new BattleInventoryManager(this);
-        equipmentRestrictionManager = new EquipmentRestrictionManager(getDataFolder());
-        loreEditorManager = new LoreEditorManager();
+        sessionRegistry = new PlayerSessionRegistry();
+        // 插件重载时已在线的玩家不会触发加入事件
+        for (org.bukkit.entity.Player player : getServer().getOnlinePlayers()) {
+            sessionRegistry.open(player);
+        }
+        attributeManager = new AttributeManager(this, sessionRegistry);
+        battleInventoryManager = new BattleInventoryManager(this, sessionRegistry);
+        equipmentRestrictionManager = new EquipmentRestrictionManager(getDataFolder(), attributeManager, sessionRegistry);
+        loreEditorManager = new LoreEditorManager(sessionRegistry);
         attributeViewerUI = new AttributeViewerUI();
         loreEditorUI = new LoreEditorUI(loreEditorManager);
         attributeEffectListener = new AttributeEffectListener(this);
         combatListener = new CombatListener(this);
         equipmentChangeListener = new EquipmentChangeListener(this);
-        equipmentRestrictionListener = new EquipmentRestrictionListener(equipmentRestrictionManager);
+        restrictionEnforcer = new RestrictionEnforcer(this);
+        equipmentRestrictionListener = new EquipmentRestrictionListener(equipmentRestrictionManager, restrictionEnforcer);
         loreEditorListener = new LoreEditorListener(loreEditorManager, loreEditorUI);
+        attributeUpdateScheduler = new AttributeUpdateScheduler(this);
+        aoeDamageQueue = new AoeDamageQueue(this);
+        bulletRegistry = new BulletRegistry(this);
+        combatEffectDispatcher = new CombatEffectDispatcher(this);
+        combatMessageAggregator = new CombatMessageAggregator(this);
+        configFileWatcher = new ConfigFileWatcher(this);
     }
     
     /**
@@ -129,25 +170,35 @@ public final class LoreAttributePlugin extends JavaPlugin {
      * 启动定时任务
      */
     private void startTasks() {
-        if (!configManager.getBoolean("AttributeUpdate.Enabled", true)) {
-            getLogger().info("属性自动更新已禁用");
-            return;
-        }
-        
-        int interval = configManager.getInt("AttributeUpdate.Interval", 20);
-        
-        getServer().getScheduler().runTaskTimer(this, () -> {
-            for (org.bukkit.entity.Player player : getServer().getOnlinePlayers()) {
-                attributeManager.updatePlayerAttributes(player);
-            }
-        }, interval, interval);
+        attributeUpdateScheduler.start();
         
-        getLogger().info("已启动属性更新任务，更新间隔: " + interval + " ticks");
+        int interval = attributeUpdateScheduler.getSweepInterval();
+        if (interval > 0) {
+            getLogger().info("已启动属性更新调度器，兜底全量刷新间隔: " + interval + " ticks");
+        } else {
+            getLogger().info("已启动属性更新调度器，兜底全量刷新已关闭");
+        }
         
-        attributeEffectListener.startAttributeEffectTask();
-        getLogger().info("已启动属性效果任务");
-
-        equipmentChangeListener.startPeriodicUpdate();
-        getLogger().info("已启动装备变化实时监听");
+        aoeDamageQueue.start();
+        bulletRegistry.start();
+        restrictionEnforcer.start();
+        combatEffectDispatcher.start();
+        combatMessageAggregator.start();
+        configFileWatcher.start();
+    }
+    
+    /**
+     * 配置重新加载后，让各个服务重新读取配置快照
+     * 由重载命令、API与配置文件监视器在 ConfigManager 替换配置后调用
+     */
+    public void reloadServices() {
+        attributeManager.reload();
+        attributeUpdateScheduler.reload();
+        aoeDamageQueue.reload();
+        bulletRegistry.reload();
+        restrictionEnforcer.resetStats();
+        combatEffectDispatcher.reload();
+        combatMessageAggregator.reload();
+        configFileWatcher.reload();
     }
-} 
\ No newline at end of file
+}  
\ No newline at end of file
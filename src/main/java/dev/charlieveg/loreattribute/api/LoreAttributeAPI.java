@@ -1,6 +1,8 @@
 package dev.charlieveg.loreattribute.api;
 
 import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.data.AttributeKey;
+import dev.charlieveg.loreattribute.data.AttributeSnapshot;
 import dev.charlieveg.loreattribute.manager.AttributeManager;
 import dev.charlieveg.loreattribute.manager.BattleInventoryManager;
 import dev.charlieveg.loreattribute.manager.EquipmentRestrictionManager;
@@ -45,12 +47,38 @@ public class LoreAttributeAPI {
      * 获取玩家的所有属性
      * 
      * @param player 玩家对象
-     * @return 属性映射表，键为属性名，值为属性值
+     * @return 属性映射表（不可修改），键为属性名，值为属性值
      * @throws IllegalArgumentException 如果玩家为null
      */
     public static Map<String, Double> getPlayerAttributes(@NonNull Player player) {
         checkInitialized();
-        return new HashMap<>(plugin.getAttributeManager().getCachedPlayerAttributes(player));
+        return plugin.getAttributeManager().getPlayerSnapshot(player).toMap();
+    }
+    
+    /**
+     * 获取玩家当前的属性快照
+     * 快照不可修改，可在任意线程读取；属性重新计算后会发布新的快照
+     * 
+     * @param player 玩家对象
+     * @return 属性快照，玩家没有属性数据时返回 AttributeSnapshot.EMPTY
+     * @throws IllegalArgumentException 如果玩家为null
+     */
+    public static AttributeSnapshot getPlayerAttributeSnapshot(@NonNull Player player) {
+        checkInitialized();
+        return plugin.getAttributeManager().getPlayerSnapshot(player);
+    }
+    
+    /**
+     * 获取玩家属性的版本号
+     * 版本号未变化说明属性没有重新计算过，可以复用之前的处理结果
+     * 
+     * @param player 玩家对象
+     * @return 版本号，玩家没有属性数据时返回0
+     * @throws IllegalArgumentException 如果玩家为null
+     */
+    public static long getPlayerAttributeVersion(@NonNull Player player) {
+        checkInitialized();
+        return plugin.getAttributeManager().getPlayerSnapshot(player).getVersion();
     }
     
     /**
@@ -98,7 +126,7 @@ public class LoreAttributeAPI {
      */
     public static Map<String, Double> calculatePlayerAttributes(@NonNull Player player) {
         checkInitialized();
-        return plugin.getAttributeManager().calculatePlayerAttributes(player);
+        return plugin.getAttributeManager().calculatePlayerAttributes(player).toMap();
     }
     
     // ========== 物品属性相关API ==========
@@ -215,18 +243,7 @@ public class LoreAttributeAPI {
      */
     public static String getItemType(@NonNull ItemStack item) {
         checkInitialized();
-        if (!item.hasItemMeta() || !item.getItemMeta().hasLore()) {
-            return "";
-        }
-        
-        List<String> lore = item.getItemMeta().getLore();
-        for (String line : lore) {
-            String cleanLine = org.bukkit.ChatColor.stripColor(line).trim();
-            if (cleanLine.startsWith("类型: ")) {
-                return cleanLine.substring(4).trim();
-            }
-        }
-        return "";
+        return plugin.getAttributeManager().describeItem(item).getType();
     }
     
     /**
@@ -483,8 +500,8 @@ public class LoreAttributeAPI {
      */
     public static Object getConfigValue(@NonNull String path, Object defaultValue) {
         checkInitialized();
-        // 使用Plugin的getConfig()方法获取配置值
-        return plugin.getConfig().get(path, defaultValue);
+        // 文件监视器重载后 Plugin.getConfig() 不会更新，从配置管理器读取
+        return plugin.getConfigManager().getConfig().get(path, defaultValue);
     }
     
     /**
@@ -758,8 +775,7 @@ public class LoreAttributeAPI {
      */
     public static boolean hasAnyAttributes(@NonNull ItemStack item) {
         checkInitialized();
-        Map<String, Double> attributes = parseItemAttributes(item);
-        return !attributes.isEmpty();
+        return !plugin.getAttributeManager().parseItemAttributeVector(item).isEmpty();
     }
     
     /**
@@ -772,8 +788,8 @@ public class LoreAttributeAPI {
      */
     public static boolean hasAttribute(@NonNull ItemStack item, @NonNull String attributeName) {
         checkInitialized();
-        Map<String, Double> attributes = parseItemAttributes(item);
-        return attributes.containsKey(getAttributeKey(attributeName));
+        AttributeKey key = AttributeKey.fromName(attributeName);
+        return key != null && plugin.getAttributeManager().parseItemAttributeVector(item).has(key);
     }
     
     /**
@@ -786,41 +802,8 @@ public class LoreAttributeAPI {
      */
     public static double getItemAttributeValue(@NonNull ItemStack item, @NonNull String attributeName) {
         checkInitialized();
-        Map<String, Double> attributes = parseItemAttributes(item);
-        String key = getAttributeKey(attributeName);
-        return attributes.getOrDefault(key, 0.0);
-    }
-    
-    /**
-     * 获取属性对应的内部键名
-     * 
-     * @param attributeName 属性名称
-     * @return 内部键名
-     * @throws IllegalArgumentException 如果属性名称无效
-     */
-    private static String getAttributeKey(@NonNull String attributeName) {
-        // 属性名称到键的映射
-        Map<String, String> attributeKeyMap = new HashMap<>();
-        attributeKeyMap.put("攻击伤害", "damage");
-        attributeKeyMap.put("致命几率", "crit");
-        attributeKeyMap.put("致命伤害", "critDamage");
-        attributeKeyMap.put("生命偷取", "lifeSteal");
-        attributeKeyMap.put("真实伤害", "trueDamage");
-        attributeKeyMap.put("护甲穿透", "penetration");
-        attributeKeyMap.put("弱化几率", "weaken");
-        attributeKeyMap.put("范围伤害", "aoeDamage");
-        attributeKeyMap.put("范围距离", "aoeRange");
-        attributeKeyMap.put("生命值", "health");
-        attributeKeyMap.put("伤害减免", "armor");
-        attributeKeyMap.put("真实抗性", "trueArmor");
-        attributeKeyMap.put("闪避几率", "dodge");
-        attributeKeyMap.put("格挡几率", "block");
-        attributeKeyMap.put("生命恢复", "regen");
-        attributeKeyMap.put("反伤几率", "injury");
-        attributeKeyMap.put("移动速度", "speed");
-        attributeKeyMap.put("总伤害", "sumDamage");
-        
-        return attributeKeyMap.getOrDefault(attributeName, attributeName.toLowerCase());
+        AttributeKey key = AttributeKey.fromName(attributeName);
+        return key != null ? plugin.getAttributeManager().parseItemAttributeVector(item).get(key) : 0.0;
     }
     
     // ========== 调试和信息API ==========
@@ -927,8 +910,8 @@ public class LoreAttributeAPI {
      */
     public static void reloadConfig() {
         checkInitialized();
-        plugin.reloadConfig();
-        // 可以添加更多重载逻辑
+        plugin.getConfigManager().loadConfig();
+        plugin.reloadServices();
     }
     
     /**
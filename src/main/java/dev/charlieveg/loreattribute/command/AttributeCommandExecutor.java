@@ -1,7 +1,15 @@
 package dev.charlieveg.loreattribute.command;
 
 import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.manager.AttributeManager;
+import dev.charlieveg.loreattribute.manager.ItemAttributeCache;
 import dev.charlieveg.loreattribute.manager.LoreEditorManager;
+import dev.charlieveg.loreattribute.task.AoeDamageQueue;
+import dev.charlieveg.loreattribute.task.AttributeUpdateScheduler;
+import dev.charlieveg.loreattribute.task.BulletRegistry;
+import dev.charlieveg.loreattribute.task.CombatEffectDispatcher;
+import dev.charlieveg.loreattribute.task.CombatMessageAggregator;
+import dev.charlieveg.loreattribute.task.RestrictionEnforcer;
 import dev.charlieveg.loreattribute.ui.AttributeViewerUI;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
@@ -130,6 +138,12 @@ public class AttributeCommandExecutor implements CommandExecutor, TabCompleter {
         player.sendMessage("§e/latr debug item §7- 调试物品属性解析");
         player.sendMessage("§e/latr debug update §7- 强制更新属性");
         player.sendMessage("§e/latr debug show §7- 显示详细属性信息");
+        player.sendMessage("§e/latr debug cache §7- 显示物品属性缓存统计");
+        player.sendMessage("§e/latr debug scheduler §7- 显示属性更新调度统计");
+        player.sendMessage("§e/latr debug aoe §7- 显示范围伤害队列统计");
+        player.sendMessage("§e/latr debug effects §7- 显示战斗特效分发统计");
+        player.sendMessage("§e/latr debug bullets §7- 显示子弹登记表统计");
+        player.sendMessage("§e/latr debug restrictions §7- 显示装备限制执行器统计");
         player.sendMessage("§e/latr reload §7- 重载配置文件");
         player.sendMessage("§6==========================================");
         player.sendMessage("§7可用类型: 武器、防具、饰品");
@@ -282,6 +296,7 @@ public class AttributeCommandExecutor implements CommandExecutor, TabCompleter {
         }
         
         plugin.getConfigManager().loadConfig();
+        plugin.reloadServices();
         player.sendMessage(ChatColor.GREEN + "配置文件已重载！");
     }
     
@@ -338,7 +353,7 @@ public class AttributeCommandExecutor implements CommandExecutor, TabCompleter {
         }
         
         if (args.length < 2) {
-            player.sendMessage(ChatColor.RED + "用法: /latr debug <item|update|show>");
+            player.sendMessage(ChatColor.RED + "用法: /latr debug <item|update|show|cache|scheduler|aoe|effects|bullets|restrictions>");
             return;
         }
         
@@ -354,12 +369,145 @@ public class AttributeCommandExecutor implements CommandExecutor, TabCompleter {
             case "show":
                 showDetailedAttributes(player);
                 break;
+            case "cache":
+                showItemCacheStats(player);
+                break;
+            case "scheduler":
+                showSchedulerStats(player);
+                break;
+            case "aoe":
+                showAoeQueueStats(player);
+                break;
+            case "effects":
+                showEffectStats(player);
+                break;
+            case "bullets":
+                showBulletStats(player);
+                break;
+            case "restrictions":
+                showRestrictionStats(player);
+                break;
             default:
                 player.sendMessage(ChatColor.RED + "未知的调试类型！");
                 break;
         }
     }
     
+    /**
+     * 显示物品属性缓存统计
+     */
+    private void showItemCacheStats(Player player) {
+        ItemAttributeCache cache = plugin.getAttributeManager().getItemCache();
+        player.sendMessage(ChatColor.GOLD + "=== 物品属性缓存 ===");
+        player.sendMessage(ChatColor.YELLOW + "条目: " + ChatColor.WHITE + cache.size() + "/" + cache.getMaximumSize());
+        player.sendMessage(ChatColor.YELLOW + "命中: " + ChatColor.WHITE + cache.getHits() +
+                          ChatColor.YELLOW + " 未命中: " + ChatColor.WHITE + cache.getMisses() +
+                          ChatColor.YELLOW + " 淘汰: " + ChatColor.WHITE + cache.getEvictions());
+        player.sendMessage(ChatColor.YELLOW + "命中率: " + ChatColor.WHITE + String.format("%.1f%%", cache.getHitRate() * 100));
+    }
+    
+    /**
+     * 显示属性更新调度统计
+     */
+    private void showSchedulerStats(Player player) {
+        AttributeUpdateScheduler scheduler = plugin.getAttributeUpdateScheduler();
+        long budget = scheduler.getTickBudgetNanos();
+        player.sendMessage(ChatColor.GOLD + "=== 属性更新调度 ===");
+        player.sendMessage(ChatColor.YELLOW + "兜底刷新间隔: " + ChatColor.WHITE + scheduler.getSweepInterval() + " ticks" +
+                          ChatColor.YELLOW + " 效果间隔: " + ChatColor.WHITE + scheduler.getEffectInterval() + " ticks");
+        player.sendMessage(ChatColor.YELLOW + "每tick预算: " + ChatColor.WHITE +
+                          (budget > 0 ? String.format("%.2fms", budget / 1_000_000.0) : "不限制"));
+        player.sendMessage(ChatColor.YELLOW + "上一tick耗时: " + ChatColor.WHITE + String.format("%.3fms", scheduler.getLastTickNanos() / 1_000_000.0) +
+                          ChatColor.YELLOW + " 最大: " + ChatColor.WHITE + String.format("%.3fms", scheduler.getMaxTickNanos() / 1_000_000.0));
+        player.sendMessage(ChatColor.YELLOW + "已处理: " + ChatColor.WHITE + scheduler.getProcessedCount() +
+                          ChatColor.YELLOW + " 等待中: " + ChatColor.WHITE + scheduler.getPendingCount());
+        player.sendMessage(ChatColor.YELLOW + "顺延: " + ChatColor.WHITE + scheduler.getDeferredTicks() + " ticks" +
+                          ChatColor.YELLOW + " 上次: " + ChatColor.WHITE + scheduler.getLastDeferred() +
+                          ChatColor.YELLOW + " 最多: " + ChatColor.WHITE + scheduler.getMaxDeferred());
+        AttributeManager attributeManager = plugin.getAttributeManager();
+        player.sendMessage(ChatColor.YELLOW + "异步解析: " + ChatColor.WHITE +
+                          (attributeManager.isAsyncParsingEnabled() ? "开启" : "关闭") +
+                          ChatColor.YELLOW + " 任务: " + ChatColor.WHITE + attributeManager.getAsyncParseJobs() +
+                          ChatColor.YELLOW + " 过期: " + ChatColor.WHITE + attributeManager.getStaleParseResults());
+    }
+    
+    /**
+     * 显示范围伤害队列统计
+     */
+    private void showAoeQueueStats(Player player) {
+        AoeDamageQueue queue = plugin.getAoeDamageQueue();
+        long budget = queue.getTickBudgetNanos();
+        player.sendMessage(ChatColor.GOLD + "=== 范围伤害队列 ===");
+        player.sendMessage(ChatColor.YELLOW + "每tick预算: " + ChatColor.WHITE +
+                          (budget > 0 ? String.format("%.2fms", budget / 1_000_000.0) : "不限制") +
+                          ChatColor.YELLOW + " 合并重叠: " + ChatColor.WHITE + (queue.isMergeOverlapping() ? "开启" : "关闭"));
+        player.sendMessage(ChatColor.YELLOW + "上一tick耗时: " + ChatColor.WHITE + String.format("%.3fms", queue.getLastTickNanos() / 1_000_000.0) +
+                          ChatColor.YELLOW + " 最大: " + ChatColor.WHITE + String.format("%.3fms", queue.getMaxTickNanos() / 1_000_000.0));
+        player.sendMessage(ChatColor.YELLOW + "排队任务: " + ChatColor.WHITE + queue.getDepth() +
+                          ChatColor.YELLOW + " 最多: " + ChatColor.WHITE + queue.getMaxDepth() +
+                          ChatColor.YELLOW + " 待结算目标: " + ChatColor.WHITE + queue.getPendingTargets());
+        player.sendMessage(ChatColor.YELLOW + "登记: " + ChatColor.WHITE + queue.getSubmittedCount() +
+                          ChatColor.YELLOW + " 合并: " + ChatColor.WHITE + queue.getMergedCount() +
+                          ChatColor.YELLOW + " 完成: " + ChatColor.WHITE + queue.getCompletedCount() +
+                          ChatColor.YELLOW + " 结算目标: " + ChatColor.WHITE + queue.getHitCount());
+        player.sendMessage(ChatColor.YELLOW + "延迟 上次: " + ChatColor.WHITE + String.format("%.1fms", queue.getLastLatencyNanos() / 1_000_000.0) +
+                          ChatColor.YELLOW + " 平均: " + ChatColor.WHITE + String.format("%.1fms", queue.getAverageLatencyNanos() / 1_000_000.0) +
+                          ChatColor.YELLOW + " 最大: " + ChatColor.WHITE + String.format("%.1fms", queue.getMaxLatencyNanos() / 1_000_000.0));
+        player.sendMessage(ChatColor.YELLOW + "顺延: " + ChatColor.WHITE + queue.getDeferredTicks() + " ticks");
+    }
+    
+    /**
+     * 显示战斗特效分发统计
+     */
+    private void showEffectStats(Player player) {
+        CombatEffectDispatcher effects = plugin.getCombatEffectDispatcher();
+        String[] levelNames = {"完整", "精简", "最低"};
+        player.sendMessage(ChatColor.GOLD + "=== 战斗特效分发 ===");
+        player.sendMessage(ChatColor.YELLOW + "限流: " + ChatColor.WHITE + (effects.isEnabled() ? "开启" : "关闭") +
+                          ChatColor.YELLOW + " TPS: " + ChatColor.WHITE + String.format("%.1f", effects.getTps()) +
+                          ChatColor.YELLOW + " 特效等级: " + ChatColor.WHITE + levelNames[effects.getGlobalLevel()]);
+        player.sendMessage(ChatColor.YELLOW + "已发送: " + ChatColor.WHITE + effects.getSentPackets() +
+                          ChatColor.YELLOW + " 合并: " + ChatColor.WHITE + effects.getMergedEffects());
+        player.sendMessage(ChatColor.YELLOW + "区块限流: " + ChatColor.WHITE + effects.getChunkLimited() +
+                          ChatColor.YELLOW + " 玩家限流: " + ChatColor.WHITE + effects.getViewerLimited());
+        CombatMessageAggregator messages = plugin.getCombatMessageAggregator();
+        player.sendMessage(ChatColor.YELLOW + "战斗提示合并窗口: " + ChatColor.WHITE + messages.getWindowTicks() + " ticks" +
+                          ChatColor.YELLOW + " 提示: " + ChatColor.WHITE + messages.getQueuedMessages() +
+                          ChatColor.YELLOW + " 实际发送: " + ChatColor.WHITE + messages.getSentLines());
+    }
+    
+    /**
+     * 显示子弹登记表统计
+     */
+    private void showBulletStats(Player player) {
+        BulletRegistry bullets = plugin.getBulletRegistry();
+        player.sendMessage(ChatColor.GOLD + "=== 子弹登记表 ===");
+        player.sendMessage(ChatColor.YELLOW + "登记中: " + ChatColor.WHITE + bullets.getSize() +
+                          ChatColor.YELLOW + " 存活时间: " + ChatColor.WHITE + bullets.getLifetimeTicks() + " ticks");
+        long lookups = bullets.getHitCount() + bullets.getMissCount();
+        player.sendMessage(ChatColor.YELLOW + "命中查询: " + ChatColor.WHITE + bullets.getHitCount() +
+                          ChatColor.YELLOW + " 反射查询: " + ChatColor.WHITE + bullets.getMissCount() +
+                          ChatColor.YELLOW + " 命中率: " + ChatColor.WHITE +
+                          (lookups > 0 ? String.format("%.1f%%", bullets.getHitCount() * 100.0 / lookups) : "-"));
+        player.sendMessage(ChatColor.YELLOW + "已登记: " + ChatColor.WHITE + bullets.getRegisteredCount() +
+                          ChatColor.YELLOW + " 已过期: " + ChatColor.WHITE + bullets.getExpiredCount());
+    }
+    
+    /**
+     * 显示装备限制执行器统计
+     */
+    private void showRestrictionStats(Player player) {
+        RestrictionEnforcer enforcer = plugin.getRestrictionEnforcer();
+        player.sendMessage(ChatColor.GOLD + "=== 装备限制执行器 ===");
+        player.sendMessage(ChatColor.YELLOW + "等待检查: " + ChatColor.WHITE + enforcer.getPendingCount() +
+                          ChatColor.YELLOW + " 上次处理: " + ChatColor.WHITE + enforcer.getLastBatch() +
+                          ChatColor.YELLOW + " 最多: " + ChatColor.WHITE + enforcer.getMaxBatch());
+        player.sendMessage(ChatColor.YELLOW + "检查请求: " + ChatColor.WHITE + enforcer.getRequestedCount() +
+                          ChatColor.YELLOW + " 合并: " + ChatColor.WHITE + enforcer.getCoalescedCount() +
+                          ChatColor.YELLOW + " 实际检查: " + ChatColor.WHITE + enforcer.getValidatedCount());
+        player.sendMessage(ChatColor.YELLOW + "处理违规: " + ChatColor.WHITE + enforcer.getViolationCount());
+    }
+    
     /**
      * 为物品添加属性（累加到现有属性）
      */
@@ -731,7 +879,7 @@ public class AttributeCommandExecutor implements CommandExecutor, TabCompleter {
                     }
                 }
             } else if ("debug".equals(subCommand)) {
-                String[] debugTypes = {"item", "update", "show"};
+                String[] debugTypes = {"item", "update", "show", "cache", "scheduler", "aoe", "effects", "bullets", "restrictions"};
                 for (String debugType : debugTypes) {
                     if (debugType.startsWith(args[1].toLowerCase())) {
                         completions.add(debugType);
@@ -1,6 +1,8 @@
 package dev.charlieveg.loreattribute.command;
 
 import dev.charlieveg.loreattribute.manager.EquipmentRestrictionManager;
+import dev.charlieveg.loreattribute.manager.RestrictionVerdict;
+import dev.charlieveg.loreattribute.manager.RestrictionVerdictCache;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -110,9 +112,9 @@ public class EquipmentRestrictionCommand implements CommandExecutor, TabComplete
         
         // 检查手持物品
         if (handItem != null && handItem.hasItemMeta() && handItem.getItemMeta().hasDisplayName()) {
-            boolean restricted = restrictionManager.isRestricted(equippedItems, handItem);
+            RestrictionVerdict verdict = restrictionManager.getVerdict(equippedItems, handItem);
             player.sendMessage("§e手持物品: §f" + handItem.getItemMeta().getDisplayName() + 
-                             " §7- " + (restricted ? "§c被限制" : "§a允许"));
+                             " §7- " + formatVerdict(verdict));
         }
         
         // 检查护甲
@@ -127,12 +129,19 @@ public class EquipmentRestrictionCommand implements CommandExecutor, TabComplete
      */
     private void checkArmorPiece(Player player, ItemStack armor, String type, List<ItemStack> equippedItems) {
         if (armor != null && armor.hasItemMeta() && armor.getItemMeta().hasDisplayName()) {
-            boolean restricted = restrictionManager.isRestricted(equippedItems, armor);
+            RestrictionVerdict verdict = restrictionManager.getVerdict(equippedItems, armor);
             player.sendMessage("§e" + type + ": §f" + armor.getItemMeta().getDisplayName() + 
-                             " §7- " + (restricted ? "§c被限制" : "§a允许"));
+                             " §7- " + formatVerdict(verdict));
         }
     }
     
+    /**
+     * 格式化判定结果，被限制时附带造成限制的规则
+     */
+    private String formatVerdict(RestrictionVerdict verdict) {
+        return verdict.isRestricted() ? "§c被限制 §7(" + verdict.describe() + ")" : "§a允许";
+    }
+    
     /**
      * 测试指定lore的限制情况
      */
@@ -182,6 +191,13 @@ public class EquipmentRestrictionCommand implements CommandExecutor, TabComplete
         // 前置限制
         sender.sendMessage("§e前置限制 §7(" + restrictionManager.getPrerequisiteGroups().size() + "个):");
         sender.sendMessage("  §f" + String.join(", ", restrictionManager.getPrerequisiteGroups()));
+        
+        // 判定缓存
+        RestrictionVerdictCache cache = restrictionManager.getVerdictCache();
+        sender.sendMessage("§e判定缓存 §7(" + cache.size() + "/" + cache.getCapacity() + "):");
+        sender.sendMessage("  §7命中: §f" + cache.getHits() + " §7未命中: §f" + cache.getMisses() +
+                         " §7覆盖: §f" + cache.getReplacements() +
+                         " §7命中率: §f" + String.format("%.1f%%", cache.getHitRate() * 100));
     }
     
     /**
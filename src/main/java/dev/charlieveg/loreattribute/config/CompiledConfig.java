@@ -0,0 +1,350 @@
+package dev.charlieveg.loreattribute.config;
+
+import dev.charlieveg.loreattribute.data.CombatMessage;
+import dev.charlieveg.loreattribute.manager.ItemAttributeCache;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的配置
+ * 加载配置时一次性读取热路径用到的全部设置：调试开关、刷新间隔、各项上限、消息模板、类型列表等，
+ * 读取方直接访问字段，不再按路径查找 MemorySection
+ *
+ * 对象创建后不再修改，重载时由 ConfigManager 整体替换，读取方不会看到重载到一半的配置。
+ * 同一次处理中需要多个设置时，先取一次快照再读取，保证各项设置来自同一版本
+ *
+ * @author charlieveg
+ */
+@Getter
+public final class CompiledConfig {
+
+    // ---- 调试 ----
+    private final boolean debugCombat;
+    private final boolean debugAttributes;
+
+    // ---- 属性更新 ----
+
+    /**
+     * 兜底全量刷新间隔（tick），0 为关闭
+     */
+    private final int sweepInterval;
+
+    /**
+     * 重新应用属性效果的间隔（tick），0 为关闭
+     */
+    private final int effectInterval;
+
+    /**
+     * 属性刷新每tick时间预算（纳秒），0 为不限制
+     */
+    private final long updateTickBudgetNanos;
+
+    private final boolean updateOnEquipChange;
+    private final boolean updateOnItemChange;
+    private final int itemCacheSize;
+    private final int parserThreads;
+
+    // ---- 范围伤害 ----
+
+    /**
+     * 范围伤害每tick时间预算（纳秒），0 为不限制
+     */
+    private final long aoeTickBudgetNanos;
+    private final boolean aoeMergeOverlapping;
+
+    // ---- FlansModule ----
+
+    /**
+     * 子弹登记项的存活时间（tick）
+     */
+    private final int bulletLifetimeTicks;
+
+    // ---- 战斗特效 ----
+    private final boolean effectsEnabled;
+    private final int effectsMaxPerChunk;
+    private final int effectsMaxPerViewer;
+    private final double effectsViewDistance;
+    private final double effectsReducedTps;
+    private final double effectsMinimalTps;
+    private final int effectsCrowdedPlayers;
+
+    // ---- 消息 ----
+
+    /**
+     * 战斗提示合并窗口（tick），0 为不合并
+     */
+    private final int messageAggregateTicks;
+
+    /**
+     * 合并战斗提示时的分隔符（已转换颜色代码）
+     */
+    private final String summarySeparator;
+
+    // ---- 热重载 ----
+
+    /**
+     * 是否监视配置文件变化并自动重新加载
+     */
+    private final boolean watchFiles;
+
+    /**
+     * 文件最后一次变化后等待的时间（毫秒），期间的多次保存合并为一次重载
+     */
+    private final long watchDebounceMillis;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, MessageTemplate> messageTemplates;
+    @Getter(AccessLevel.NONE)
+    private final MessageTemplate[] combatMessages = new MessageTemplate[CombatMessage.COUNT];
+    @Getter(AccessLevel.NONE)
+    private final MessageTemplate[] combatSummaries = new MessageTemplate[CombatMessage.COUNT];
+
+    // ---- 旧版配置项 ----
+    @Getter(AccessLevel.NONE)
+    private final Map<String, String> attributeNames;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, List<String>> weaponTypes;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Map<String, Object>> suitConfigs;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, String> messages;
+
+    public CompiledConfig(FileConfiguration config) {
+        debugCombat = config.getBoolean("Debug.Combat", false);
+        debugAttributes = config.getBoolean("Debug.Attributes", false);
+
+        if (config.getBoolean("AttributeUpdate.Enabled", true)) {
+            sweepInterval = Math.max(0, config.getInt("AttributeUpdate.Interval", 100));
+            effectInterval = Math.max(0, config.getInt("AttributeUpdate.EffectInterval", 600));
+        } else {
+            sweepInterval = 0;
+            effectInterval = 0;
+        }
+        updateTickBudgetNanos = toNanos(config.getDouble("AttributeUpdate.TickBudget", 2.0));
+        updateOnEquipChange = config.getBoolean("AttributeUpdate.UpdateOnEquipChange", true);
+        updateOnItemChange = config.getBoolean("AttributeUpdate.UpdateOnItemChange", true);
+        itemCacheSize = config.getInt("AttributeUpdate.ItemCacheSize", ItemAttributeCache.DEFAULT_MAXIMUM_SIZE);
+        parserThreads = config.getInt("AttributeUpdate.ParserThreads", 2);
+
+        aoeTickBudgetNanos = toNanos(config.getDouble("Combat.Aoe.TickBudget", 1.0));
+        aoeMergeOverlapping = config.getBoolean("Combat.Aoe.MergeOverlapping", true);
+
+        bulletLifetimeTicks = Math.max(1, config.getInt("Combat.Flans.BulletLifetime", 100));
+
+        effectsEnabled = config.getBoolean("Combat.Effects.Enabled", true);
+        effectsMaxPerChunk = Math.max(0, config.getInt("Combat.Effects.MaxPerChunk", 24));
+        effectsMaxPerViewer = Math.max(0, config.getInt("Combat.Effects.MaxPerViewer", 32));
+        effectsViewDistance = Math.max(1.0, config.getDouble("Combat.Effects.ViewDistance", 48.0));
+        effectsReducedTps = config.getDouble("Combat.Effects.ReducedTps", 18.0);
+        effectsMinimalTps = config.getDouble("Combat.Effects.MinimalTps", 15.0);
+        effectsCrowdedPlayers = Math.max(0, config.getInt("Combat.Effects.CrowdedPlayers", 20));
+
+        messageAggregateTicks = Math.max(0, config.getInt("Combat.Messages.AggregateTicks", 5));
+        summarySeparator = ChatColor.translateAlternateColorCodes('&',
+            config.getString("Messages.Combat.Summary.Separator", " &7| "));
+        messageTemplates = Collections.unmodifiableMap(compileMessageTemplates(config));
+        for (CombatMessage message : CombatMessage.values()) {
+            combatMessages[message.ordinal()] = getMessageTemplate(message.getPath());
+            combatSummaries[message.ordinal()] = getMessageTemplate(message.getSummaryPath());
+        }
+
+        watchFiles = config.getBoolean("Reload.WatchFiles", true);
+        watchDebounceMillis = Math.max(50L, config.getLong("Reload.WatchDebounce", 500L));
+
+        attributeNames = Collections.unmodifiableMap(loadAttributeNames(config));
+        weaponTypes = Collections.unmodifiableMap(loadWeaponTypes(config));
+        suitConfigs = Collections.unmodifiableMap(loadSuitConfigs(config));
+        messages = Collections.unmodifiableMap(loadMessages(config));
+    }
+
+    private static long toNanos(double millis) {
+        return millis > 0 ? (long) (millis * 1_000_000L) : 0L;
+    }
+
+    /**
+     * 获取预编译的消息模板
+     *
+     * @param path 完整配置路径，如 Messages.Combat.Crit
+     * @return 消息模板，不存在时返回 MessageTemplate.EMPTY
+     */
+    public MessageTemplate getMessageTemplate(String path) {
+        MessageTemplate template = messageTemplates.get(path);
+        return template != null ? template : MessageTemplate.EMPTY;
+    }
+
+    /**
+     * 获取战斗提示的单条消息模板
+     */
+    public MessageTemplate getCombatMessage(CombatMessage message) {
+        return combatMessages[message.ordinal()];
+    }
+
+    /**
+     * 获取战斗提示的汇总消息模板
+     */
+    public MessageTemplate getCombatSummary(CombatMessage message) {
+        return combatSummaries[message.ordinal()];
+    }
+
+    /**
+     * 获取属性显示名称
+     */
+    public String getAttributeName(String key) {
+        return attributeNames.getOrDefault(key, key);
+    }
+
+    public Map<String, String> getAttributeNames() {
+        return attributeNames;
+    }
+
+    /**
+     * 获取武器类型列表
+     */
+    public List<String> getWeaponTypeList(String type) {
+        return weaponTypes.get(type);
+    }
+
+    /**
+     * 获取套装配置
+     */
+    public Map<String, Object> getSuitConfig(String suitName) {
+        return suitConfigs.get(suitName);
+    }
+
+    /**
+     * 获取旧版消息（已转换颜色代码），不存在时返回null
+     */
+    public String getMessage(String key) {
+        return messages.get(key);
+    }
+
+    /**
+     * 预编译 Messages 下的全部消息
+     */
+    private static Map<String, MessageTemplate> compileMessageTemplates(FileConfiguration config) {
+        Map<String, MessageTemplate> templates = new HashMap<>();
+        ConfigurationSection messageSection = config.getConfigurationSection("Messages");
+        if (messageSection != null) {
+            for (String key : messageSection.getKeys(true)) {
+                if (messageSection.isString(key)) {
+                    templates.put("Messages." + key, MessageTemplate.compile(messageSection.getString(key)));
+                }
+            }
+        }
+        return templates;
+    }
+
+    /**
+     * 加载属性名称配置
+     */
+    private static Map<String, String> loadAttributeNames(FileConfiguration config) {
+        Map<String, String> attributeNames = new HashMap<>();
+        attributeNames.put("Damage", config.getString("Damage", "攻击伤害"));
+        attributeNames.put("Crit", config.getString("Crit", "致命几率"));
+        attributeNames.put("CritDamage", config.getString("CritDamage", "致命伤害"));
+        attributeNames.put("CritArmor", config.getString("CritArmor", "致命抗性"));
+        attributeNames.put("HealthHeal", config.getString("HealthHeal", "生命恢复"));
+        attributeNames.put("Health", config.getString("Health", "生命值"));
+        attributeNames.put("LifeSteal", config.getString("LifeSteal", "生命偷取"));
+        attributeNames.put("MoveSpeed", config.getString("MoveSpeed", "移动速度"));
+        attributeNames.put("BuffAdd", config.getString("BuffAdd", "穿戴时"));
+        attributeNames.put("BuffDamage", config.getString("BuffDamage", "对拥有"));
+        attributeNames.put("Armor", config.getString("Armor", "伤害减免"));
+        attributeNames.put("MobDamage", config.getString("MobDamage", "对怪物造成的额外伤害"));
+        attributeNames.put("SumMobDamage", config.getString("SumMobDamage", "对怪物造成的总额外伤害"));
+        attributeNames.put("MobDamageRemove", config.getString("MobDamageRemove", "对怪物的伤害免疫"));
+        attributeNames.put("SumDamage", config.getString("SumDamage", "总伤害"));
+        attributeNames.put("CritBreaker", config.getString("CritBreaker", "招架几率"));
+        attributeNames.put("AOEDamage", config.getString("AOEDamage", "范围伤害"));
+        attributeNames.put("AOERange", config.getString("AOERange", "伤害范围"));
+        attributeNames.put("Speed", config.getString("Speed", "移动速度"));
+        attributeNames.put("AttackSpeed", config.getString("AttackSpeed", "攻击速度"));
+        attributeNames.put("TrueDamage", config.getString("TrueDamage", "真实伤害"));
+        attributeNames.put("ArmorBreak", config.getString("ArmorBreak", "护甲穿透"));
+        attributeNames.put("Dodge", config.getString("Dodge", "闪避几率"));
+        attributeNames.put("DodgeBreaker", config.getString("DodgeBreaker", "破闪几率"));
+        attributeNames.put("Block", config.getString("Block", "格挡几率"));
+        attributeNames.put("BlockBreaker", config.getString("BlockBreaker", "强化重击"));
+        attributeNames.put("FinalDamage", config.getString("FinalDamage", "百分比伤害"));
+        attributeNames.put("FinalTrueDamage", config.getString("FinalTrueDamage", "百分比真实伤害"));
+        attributeNames.put("Injury", config.getString("Injury", "反伤几率"));
+        attributeNames.put("TrueArmor", config.getString("TrueArmor", "真实抗性"));
+        attributeNames.put("Weaken", config.getString("Weaken", "弱化几率"));
+        attributeNames.put("FinalHealth", config.getString("FinalHealth", "百分比生命"));
+        attributeNames.put("ArmorType", config.getString("ArmorType", "护甲"));
+        return attributeNames;
+    }
+
+    /**
+     * 加载武器类型配置
+     */
+    private static Map<String, List<String>> loadWeaponTypes(FileConfiguration config) {
+        Map<String, List<String>> weaponTypes = new HashMap<>();
+        ConfigurationSection typeSection = config.getConfigurationSection("TypeList");
+        if (typeSection != null) {
+            for (String key : typeSection.getKeys(false)) {
+                List<String> types = typeSection.getStringList(key);
+                weaponTypes.put(key, Collections.unmodifiableList(new ArrayList<>(types)));
+            }
+        }
+        return weaponTypes;
+    }
+
+    /**
+     * 加载套装配置
+     */
+    private static Map<String, Map<String, Object>> loadSuitConfigs(FileConfiguration config) {
+        Map<String, Map<String, Object>> suitConfigs = new HashMap<>();
+        ConfigurationSection suitSection = config.getConfigurationSection("Suit");
+        if (suitSection != null) {
+            for (String key : suitSection.getKeys(false)) {
+                ConfigurationSection suit = suitSection.getConfigurationSection(key);
+                if (suit != null) {
+                    Map<String, Object> suitData = new HashMap<>();
+                    suitData.put("Lore", suit.getString("Lore"));
+                    suitData.put("AttributeNeed", suit.getConfigurationSection("AttributeNeed"));
+                    suitConfigs.put(key, Collections.unmodifiableMap(suitData));
+                }
+            }
+        }
+        return suitConfigs;
+    }
+
+    /**
+     * 加载旧版消息配置，加载时转换颜色代码
+     */
+    private static Map<String, String> loadMessages(FileConfiguration config) {
+        Map<String, String> messages = new HashMap<>();
+        messages.put("InventoryTitle", config.getString("InventoryTitle", "战斗背包"));
+        messages.put("InvItemName", config.getString("InvItemName", "&c战斗背包"));
+        messages.put("InvMessage", config.getString("InvMessage", "&c该位置不能放入此物品，请放入正确位置！"));
+        messages.put("ShiftMessage", config.getString("ShiftMessage", "&c禁止在战斗背包界面使用Shift键与键盘按键快捷拖动物品！"));
+        messages.put("DodgeMessage", config.getString("DodgeMessage", "&9闪避！闪避掉来自敌人的 &a<number> &6点伤害！"));
+        messages.put("AtDodgeMessage", config.getString("AtDodgeMessage", "&c被敌人闪避掉 &a<number> &c点伤害！"));
+        messages.put("CritMessage", config.getString("CritMessage", "&6暴击！对敌人造成 &a<number> &6点伤害！"));
+        messages.put("BlockMessage", config.getString("BlockMessage", "&6格挡！格挡掉敌人的伤害！"));
+        messages.put("InjuryMessage", config.getString("InjuryMessage", "&c反伤！返还给敌人十分之一伤害的真实伤害！"));
+        messages.put("AtBlockMessage", config.getString("AtBlockMessage", "&c格挡！被敌人格挡一次伤害！"));
+        messages.put("AtInjuryMessage", config.getString("AtInjuryMessage", "&c反伤！被反伤到本次伤害十分之一的真实伤害！"));
+        messages.put("WeakMessage", config.getString("WeakMessage", "&c您被敌人弱化了，两秒内您的伤害将会被降低40%！"));
+        messages.put("ArmorMessage", config.getString("ArmorMessage", "&c护甲禁止使用右键直接穿上！请打开背包穿戴！"));
+        messages.put("TypeLore", config.getString("TypeLore", "&e类型: &7"));
+        messages.put("TimeLore", config.getString("TimeLore", "&6%time%&4到期"));
+        messages.put("TimeMessage", config.getString("TimeMessage", "&c您的某件战斗道具已到期！"));
+
+        // 加载时转换颜色代码，获取消息时直接返回
+        for (Map.Entry<String, String> entry : messages.entrySet()) {
+            entry.setValue(ChatColor.translateAlternateColorCodes('&', entry.getValue()));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,217 @@
+package dev.charlieveg.loreattribute.config;
+
+import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.manager.CompiledRestrictions;
+import dev.charlieveg.loreattribute.manager.EquipmentRestrictionManager;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.IllegalPluginAccessException;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 配置文件监视器
+ * 监视插件目录中的 config.yml 与 equipment-restrictions.yml，文件保存后自动重新加载，不需要执行重载命令。
+ *
+ * 文件最后一次变化后等待一段时间（Reload.WatchDebounce）再处理，编辑器连续多次写入只重载一次。
+ * 解析YAML与编译配置都在监视线程完成，只有替换快照在主线程进行，重载不会卡住服务器。
+ * 文件格式错误或内容无效时保留原配置并输出警告
+ *
+ * @author charlieveg
+ */
+public class ConfigFileWatcher {
+
+    private static final String CONFIG_FILE_NAME = "config.yml";
+
+    private static final int FILE_CONFIG = 1;
+    private static final int FILE_RESTRICTIONS = 1 << 1;
+
+    private final LoreAttributePlugin plugin;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    private volatile long debounceMillis;
+
+    public ConfigFileWatcher(LoreAttributePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 读取配置并启动监视线程
+     */
+    public void start() {
+        reload();
+    }
+
+    /**
+     * 重新读取监视设置（配置重载时调用），按 Reload.WatchFiles 启动或停止监视线程
+     */
+    public synchronized void reload() {
+        CompiledConfig config = plugin.getConfigManager().getCompiled();
+        debounceMillis = config.getWatchDebounceMillis();
+        if (!config.isWatchFiles()) {
+            stop();
+        } else if (thread == null) {
+            open();
+        }
+    }
+
+    private void open() {
+        WatchService service;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+            plugin.getDataFolder().toPath().register(service,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            plugin.getLogger().warning("无法监视配置文件变化: " + e.getMessage());
+            return;
+        }
+
+        watchService = service;
+        thread = new Thread(() -> watch(service), "LoreAttribute-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 停止监视线程（插件停用时调用）
+     */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+        thread = null;
+        watchService = null;
+    }
+
+    private void watch(WatchService service) {
+        int pendingFiles = 0;
+        long lastChange = 0L;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key;
+                if (pendingFiles == 0) {
+                    key = service.take();
+                } else {
+                    long wait = lastChange + debounceMillis - System.currentTimeMillis();
+                    key = wait > 0 ? service.poll(wait, TimeUnit.MILLISECONDS) : null;
+                }
+
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        int file = toFileMask(event);
+                        if (file != 0) {
+                            pendingFiles |= file;
+                            lastChange = System.currentTimeMillis();
+                        }
+                    }
+                    key.reset();
+                    continue;
+                }
+
+                // 等待期内没有新的变化，开始重载
+                reloadFiles(pendingFiles);
+                pendingFiles = 0;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 监视已停止
+        }
+    }
+
+    private int toFileMask(WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            // 丢失了事件，无法确定变化的文件
+            return FILE_CONFIG | FILE_RESTRICTIONS;
+        }
+        Object context = event.context();
+        if (!(context instanceof Path)) {
+            return 0;
+        }
+        String name = context.toString();
+        if (CONFIG_FILE_NAME.equals(name)) {
+            return FILE_CONFIG;
+        }
+        if (EquipmentRestrictionManager.CONFIG_FILE_NAME.equals(name)) {
+            return FILE_RESTRICTIONS;
+        }
+        return 0;
+    }
+
+    /**
+     * 在监视线程解析、编译并校验变化的文件，全部成功的部分交给主线程替换
+     */
+    private void reloadFiles(int files) {
+        FileConfiguration config = null;
+        CompiledConfig compiledConfig = null;
+        if ((files & FILE_CONFIG) != 0) {
+            try {
+                config = plugin.getConfigManager().parseConfigFile();
+                compiledConfig = new CompiledConfig(config);
+            } catch (IOException | InvalidConfigurationException | RuntimeException e) {
+                config = null;
+                plugin.getLogger().warning(CONFIG_FILE_NAME + " 有错误，已保留当前配置: " + e.getMessage());
+            }
+        }
+
+        FileConfiguration restrictionConfig = null;
+        CompiledRestrictions rules = null;
+        if ((files & FILE_RESTRICTIONS) != 0) {
+            try {
+                restrictionConfig = plugin.getEquipmentRestrictionManager().parseConfigFile();
+                rules = CompiledRestrictions.compile(restrictionConfig);
+            } catch (IOException | InvalidConfigurationException | RuntimeException e) {
+                restrictionConfig = null;
+                plugin.getLogger().warning(EquipmentRestrictionManager.CONFIG_FILE_NAME + " 有错误，已保留当前规则: " + e.getMessage());
+            }
+        }
+
+        if (compiledConfig == null && rules == null) {
+            return;
+        }
+
+        FileConfiguration newConfig = config;
+        CompiledConfig newCompiledConfig = compiledConfig;
+        FileConfiguration newRestrictionConfig = restrictionConfig;
+        CompiledRestrictions newRules = rules;
+        try {
+            plugin.getServer().getScheduler().runTask(plugin,
+                () -> apply(newConfig, newCompiledConfig, newRestrictionConfig, newRules));
+        } catch (IllegalPluginAccessException e) {
+            // 插件正在停用
+        }
+    }
+
+    /**
+     * 在主线程替换配置与规则
+     */
+    private void apply(FileConfiguration config, CompiledConfig compiledConfig,
+                       FileConfiguration restrictionConfig, CompiledRestrictions rules) {
+        if (compiledConfig != null) {
+            plugin.getConfigManager().apply(config, compiledConfig);
+            plugin.reloadServices();
+            plugin.getLogger().info("检测到 " + CONFIG_FILE_NAME + " 变化，已重新加载配置");
+        }
+        if (rules != null) {
+            plugin.getEquipmentRestrictionManager().applyRules(restrictionConfig, rules);
+            plugin.getLogger().info("检测到 " + EquipmentRestrictionManager.CONFIG_FILE_NAME + " 变化，已重新加载装备限制规则");
+        }
+    }
+
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+}
@@ -0,0 +1,189 @@
+package dev.charlieveg.loreattribute.config;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预编译的消息模板
+ * 加载配置时把消息拆分为文本片段与占位符槽位，颜色代码在编译时已经转换，
+ * 发送时只需按顺序拼接片段和参数，不再做字符串替换和格式化
+ *
+ * 模板创建后不再修改，可以在多个线程间共享
+ *
+ * @author charlieveg
+ */
+public final class MessageTemplate {
+
+    /**
+     * 空消息，表示消息在配置中不存在或被关闭
+     */
+    public static final MessageTemplate EMPTY = new MessageTemplate(new String[]{""}, new Placeholder[0]);
+
+    /**
+     * 模板中可用的占位符
+     */
+    public enum Placeholder {
+        /**
+         * 数值，保留一位小数
+         */
+        DAMAGE("{damage}"),
+        /**
+         * 次数，整数
+         */
+        COUNT("{count}"),
+        /**
+         * 合计数值，保留一位小数
+         */
+        TOTAL("{total}");
+
+        private static final Placeholder[] VALUES = values();
+
+        private final String token;
+
+        Placeholder(String token) {
+            this.token = token;
+        }
+
+        public String getToken() {
+            return token;
+        }
+    }
+
+    private static final ThreadLocal<StringBuilder> BUILDERS = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    // 片段数比槽位数多一个：literal[0] slot[0] literal[1] ... slot[n-1] literal[n]
+    private final String[] literals;
+    private final Placeholder[] slots;
+    private final int literalLength;
+
+    private MessageTemplate(String[] literals, Placeholder[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * 编译消息，转换 & 颜色代码并识别占位符，未知的 {xxx} 按普通文本保留
+     */
+    public static MessageTemplate compile(String raw) {
+        if (raw == null || raw.isEmpty()) {
+            return EMPTY;
+        }
+        String text = ChatColor.translateAlternateColorCodes('&', raw);
+
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> slots = new ArrayList<>();
+        int start = 0;
+        int brace = text.indexOf('{');
+        while (brace >= 0) {
+            Placeholder placeholder = match(text, brace);
+            if (placeholder != null) {
+                literals.add(text.substring(start, brace));
+                slots.add(placeholder);
+                start = brace + placeholder.token.length();
+            }
+            brace = text.indexOf('{', placeholder != null ? start : brace + 1);
+        }
+        literals.add(text.substring(start));
+        return new MessageTemplate(literals.toArray(new String[0]), slots.toArray(new Placeholder[0]));
+    }
+
+    private static Placeholder match(String text, int offset) {
+        for (Placeholder placeholder : Placeholder.VALUES) {
+            if (text.startsWith(placeholder.token, offset)) {
+                return placeholder;
+            }
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return slots.length == 0 && literalLength == 0;
+    }
+
+    /**
+     * 是否包含指定占位符
+     */
+    public boolean uses(Placeholder placeholder) {
+        for (Placeholder slot : slots) {
+            if (slot == placeholder) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 渲染只有 {damage} 的消息
+     */
+    public String render(double damage) {
+        return render(damage, 1, damage);
+    }
+
+    /**
+     * 渲染消息，使用线程内复用的 StringBuilder
+     */
+    public String render(double damage, int count, double total) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        StringBuilder builder = BUILDERS.get();
+        builder.setLength(0);
+        appendTo(builder, damage, count, total);
+        return builder.toString();
+    }
+
+    /**
+     * 把消息追加到给定的 StringBuilder
+     */
+    public void appendTo(StringBuilder builder, double damage, int count, double total) {
+        builder.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            switch (slots[i]) {
+                case DAMAGE:
+                    appendDecimal(builder, damage);
+                    break;
+                case COUNT:
+                    builder.append(count);
+                    break;
+                case TOTAL:
+                    appendDecimal(builder, total);
+                    break;
+                default:
+                    break;
+            }
+            builder.append(literals[i + 1]);
+        }
+    }
+
+    /**
+     * 追加保留一位小数的数值，结果与 String.format("%.1f", value) 相同（个别二进制舍入边界除外）
+     */
+    static void appendDecimal(StringBuilder builder, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= 1e17) {
+            builder.append(String.format("%.1f", value));
+            return;
+        }
+        long tenths = Math.round(Math.abs(value) * 10.0);
+        if (value < 0 && tenths != 0) {
+            builder.append('-');
+        }
+        builder.append(tenths / 10).append('.').append((char) ('0' + tenths % 10));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(literalLength + slots.length * 8);
+        builder.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(slots[i].token).append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+}
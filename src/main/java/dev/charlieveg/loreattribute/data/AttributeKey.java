@@ -0,0 +1,102 @@
+package dev.charlieveg.loreattribute.data;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 属性键枚举
+ * 每个属性拥有固定的序号，用作 AttributeVector 中的数组下标
+ * 新属性只能追加在末尾，避免改变已有属性的序号
+ *
+ * @author charlieveg
+ */
+@Getter
+public enum AttributeKey {
+
+    DAMAGE("damage", "攻击伤害"),
+    CRIT("crit", "致命几率"),
+    CRIT_DAMAGE("critDamage", "致命伤害"),
+    CRIT_ARMOR("critArmor", "致命抗性"),
+    HEALTH_HEAL("healthHeal", "生命恢复"),
+    HEALTH("health", "生命值"),
+    LIFE_STEAL("lifeSteal", "生命偷取"),
+    MOVE_SPEED("moveSpeed", "移动速度"),
+    ARMOR("armor", "伤害减免"),
+    MOB_DAMAGE("mobDamage", "对怪物造成的额外伤害"),
+    SUM_MOB_DAMAGE("sumMobDamage", "对怪物造成的总额外伤害"),
+    MOB_DAMAGE_REMOVE("mobDamageRemove", "对怪物的伤害免疫"),
+    SUM_DAMAGE("sumDamage", "总伤害"),
+    CRIT_BREAKER("critBreaker", "招架几率"),
+    AOE_DAMAGE("aoeDamage", "范围伤害"),
+    AOE_RANGE("aoeRange", "范围距离"),
+    ATTACK_SPEED("attackSpeed", "攻击速度"),
+    TRUE_DAMAGE("trueDamage", "真实伤害"),
+    ARMOR_BREAK("armorBreak", "护甲穿透"),
+    DODGE("dodge", "闪避几率"),
+    DODGE_BREAKER("dodgeBreaker", "破闪几率"),
+    BLOCK("block", "格挡几率"),
+    BLOCK_BREAKER("blockBreaker", "强化重击"),
+    FINAL_DAMAGE("finalDamage", "百分比伤害"),
+    FINAL_TRUE_DAMAGE("finalTrueDamage", "百分比真实伤害"),
+    INJURY("injury", "反伤几率"),
+    TRUE_ARMOR("trueArmor", "真实抗性"),
+    WEAKEN("weaken", "弱化几率"),
+    FINAL_HEALTH("finalHealth", "百分比生命");
+
+    /**
+     * 属性数量
+     */
+    public static final int COUNT;
+
+    private static final AttributeKey[] VALUES = values();
+    private static final Map<String, AttributeKey> BY_NAME = new HashMap<>();
+
+    static {
+        COUNT = VALUES.length;
+        for (AttributeKey key : VALUES) {
+            BY_NAME.put(key.key, key);
+            BY_NAME.put(key.key.toLowerCase(), key);
+            BY_NAME.put(key.displayName, key);
+        }
+
+        // 历史代码中使用过的旧键名
+        BY_NAME.put("penetration", ARMOR_BREAK);
+        BY_NAME.put("armorpiercing", ARMOR_BREAK);
+        BY_NAME.put("speed", MOVE_SPEED);
+        BY_NAME.put("regen", HEALTH_HEAL);
+        BY_NAME.put("伤害范围", AOE_RANGE);
+    }
+
+    private final String key;
+    private final String displayName;
+
+    AttributeKey(String key, String displayName) {
+        this.key = key;
+        this.displayName = displayName;
+    }
+
+    /**
+     * 按序号获取属性键
+     */
+    public static AttributeKey byOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * 按内部键名、中文名或旧键名查找属性，不区分英文大小写
+     *
+     * @return 对应的属性键，未知名称返回null
+     */
+    public static AttributeKey fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        AttributeKey key = BY_NAME.get(name);
+        if (key != null) {
+            return key;
+        }
+        return BY_NAME.get(name.toLowerCase());
+    }
+}
@@ -0,0 +1,78 @@
+package dev.charlieveg.loreattribute.data;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 玩家属性快照
+ * 每次重新计算属性都会发布一个新快照，快照本身不再修改，任意线程都可以直接读取
+ *
+ * 版本号全局递增，读取方记录上次看到的版本号，版本号未变化时可跳过后续处理
+ * 战斗用的派生数值随快照一起计算，每次命中直接读取
+ *
+ * @author charlieveg
+ */
+@Getter
+public final class AttributeSnapshot {
+
+    /**
+     * 没有任何属性的快照，版本号为0
+     */
+    public static final AttributeSnapshot EMPTY = new AttributeSnapshot(0L, AttributeVector.EMPTY);
+
+    private final long version;
+
+    /**
+     * 属性向量，已冻结为只读
+     */
+    private final AttributeVector attributes;
+
+    /**
+     * 由属性换算出的战斗数值
+     */
+    private final DerivedCombatProfile combatProfile;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private volatile Map<String, Double> mapView;
+
+    /**
+     * @param attributes 快照独占的属性向量，创建时冻结，之后任何修改都会抛出异常
+     */
+    public AttributeSnapshot(long version, AttributeVector attributes) {
+        this.version = version;
+        this.attributes = attributes.freeze();
+        this.combatProfile = new DerivedCombatProfile(attributes);
+    }
+
+    public double get(AttributeKey key) {
+        return attributes.get(key);
+    }
+
+    public boolean has(AttributeKey key) {
+        return attributes.has(key);
+    }
+
+    public boolean isEmpty() {
+        return attributes.isEmpty();
+    }
+
+    /**
+     * 映射表形式的属性（兼容旧接口），首次调用时生成，之后复用同一个不可修改的映射表
+     */
+    public Map<String, Double> toMap() {
+        Map<String, Double> map = mapView;
+        if (map == null) {
+            // 并发首次调用可能各自生成一次，结果相同，无需加锁
+            map = Collections.unmodifiableMap(attributes.toMap());
+            mapView = map;
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "AttributeSnapshot{version=" + version + ", attributes=" + attributes + "}";
+    }
+}
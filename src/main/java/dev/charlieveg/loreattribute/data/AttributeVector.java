@@ -0,0 +1,198 @@
+package dev.charlieveg.loreattribute.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 属性向量
+ * 以 AttributeKey 的序号为下标的 double 数组，配合位掩码记录出现过的属性
+ * 读取属性无需装箱和哈希，适合战斗计算等热路径
+ *
+ * 缓存与玩家属性中保存的向量由多方共享，发布前调用 freeze() 设为只读，
+ * 之后任何修改都会抛出 UnsupportedOperationException，需要修改时先 copy()
+ *
+ * @author charlieveg
+ */
+public final class AttributeVector {
+
+    /**
+     * 空向量，只读
+     */
+    public static final AttributeVector EMPTY = new AttributeVector().freeze();
+
+    private final double[] values;
+    // 第 n 位表示序号为 n 的属性出现过
+    private long present;
+    // 只读标记，设置后不能再清除；在发布到共享位置之前设置，由发布时的 final/volatile 字段保证可见
+    private boolean frozen;
+
+    public AttributeVector() {
+        this.values = new double[AttributeKey.COUNT];
+    }
+
+    private AttributeVector(double[] values, long present) {
+        this.values = values;
+        this.present = present;
+    }
+
+    public double get(AttributeKey key) {
+        return values[key.ordinal()];
+    }
+
+    public boolean has(AttributeKey key) {
+        return (present & bit(key)) != 0;
+    }
+
+    public boolean isEmpty() {
+        return present == 0;
+    }
+
+    public void set(AttributeKey key, double value) {
+        checkMutable();
+        values[key.ordinal()] = value;
+        present |= bit(key);
+    }
+
+    public void add(AttributeKey key, double value) {
+        checkMutable();
+        values[key.ordinal()] += value;
+        present |= bit(key);
+    }
+
+    /**
+     * 取当前值与给定值中的较大者
+     */
+    public void max(AttributeKey key, double value) {
+        checkMutable();
+        int index = key.ordinal();
+        values[index] = Math.max(values[index], value);
+        present |= bit(key);
+    }
+
+    /**
+     * 逐项累加另一个向量
+     */
+    public void addAll(AttributeVector other) {
+        checkMutable();
+        if (other.present == 0) {
+            return;
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] += other.values[i];
+        }
+        present |= other.present;
+    }
+
+    /**
+     * 逐项减去另一个向量，不改变出现标记
+     */
+    public void subtractAll(AttributeVector other) {
+        checkMutable();
+        if (other.present == 0) {
+            return;
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] -= other.values[i];
+        }
+    }
+
+    /**
+     * 只保留掩码中的属性，其余属性清零并移除出现标记
+     * 用于增量更新后消除已移除属性的浮点残留
+     */
+    public void retainOnly(long mask) {
+        checkMutable();
+        for (int i = 0; i < values.length; i++) {
+            if ((mask & (1L << i)) == 0) {
+                values[i] = 0.0;
+            }
+        }
+        present = mask;
+    }
+
+    /**
+     * 出现过的属性位掩码
+     */
+    public long getPresenceMask() {
+        return present;
+    }
+
+    public void clear() {
+        checkMutable();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 0.0;
+        }
+        present = 0;
+    }
+
+    /**
+     * 设为只读并返回自身，用于发布到缓存、快照等共享位置
+     */
+    public AttributeVector freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("属性向量已共享为只读，修改前请先 copy()");
+        }
+    }
+
+    /**
+     * 复制为新的可修改向量
+     */
+    public AttributeVector copy() {
+        return new AttributeVector(values.clone(), present);
+    }
+
+    /**
+     * 用另一个向量的内容覆盖当前向量，用于复用临时向量
+     */
+    public void copyFrom(AttributeVector other) {
+        checkMutable();
+        System.arraycopy(other.values, 0, values, 0, values.length);
+        present = other.present;
+    }
+
+    /**
+     * 转换为以内部键名为键的映射表（兼容旧接口）
+     * 只包含出现过的属性
+     */
+    public Map<String, Double> toMap() {
+        Map<String, Double> map = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            if ((present & (1L << i)) != 0) {
+                map.put(AttributeKey.byOrdinal(i).getKey(), values[i]);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * 从映射表构建属性向量，无法识别的键会被忽略
+     */
+    public static AttributeVector fromMap(Map<String, Double> map) {
+        AttributeVector vector = new AttributeVector();
+        for (Map.Entry<String, Double> entry : map.entrySet()) {
+            AttributeKey key = AttributeKey.fromName(entry.getKey());
+            if (key != null && entry.getValue() != null) {
+                vector.add(key, entry.getValue());
+            }
+        }
+        return vector;
+    }
+
+    private static long bit(AttributeKey key) {
+        return 1L << key.ordinal();
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
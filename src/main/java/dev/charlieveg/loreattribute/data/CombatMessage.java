@@ -0,0 +1,45 @@
+package dev.charlieveg.loreattribute.data;
+
+import lombok.Getter;
+
+/**
+ * 战斗提示类型
+ * 每种提示对应 Messages.Combat 下的单条消息，以及 Messages.Combat.Summary 下合并多次提示时使用的汇总消息
+ *
+ * @author charlieveg
+ */
+@Getter
+public enum CombatMessage {
+
+    DODGE("Dodge"),
+    AT_DODGE("AtDodge"),
+    CRIT("Crit"),
+    BLOCK("Block"),
+    AT_BLOCK("AtBlock"),
+    INJURY("Injury"),
+    AT_INJURY("AtInjury"),
+    LIFE_STEAL("LifeSteal"),
+    WEAKENED("Weakened"),
+    AOE_HIT("AoeHit"),
+    AOE_ATTACK("AoeAttack");
+
+    /**
+     * 提示类型数量
+     */
+    public static final int COUNT = values().length;
+
+    /**
+     * 单条消息的配置路径
+     */
+    private final String path;
+
+    /**
+     * 汇总消息的配置路径
+     */
+    private final String summaryPath;
+
+    CombatMessage(String key) {
+        this.path = "Messages.Combat." + key;
+        this.summaryPath = "Messages.Combat.Summary." + key;
+    }
+}
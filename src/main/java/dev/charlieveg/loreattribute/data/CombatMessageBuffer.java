@@ -0,0 +1,67 @@
+package dev.charlieveg.loreattribute.data;
+
+import java.util.Arrays;
+
+/**
+ * 单个玩家在当前合并窗口内累计的战斗提示
+ * 保存在玩家会话中，玩家退出时随会话一起清理。只在主线程使用
+ *
+ * @author charlieveg
+ */
+public final class CombatMessageBuffer {
+
+    private final int[] counts = new int[CombatMessage.COUNT];
+    private final double[] totals = new double[CombatMessage.COUNT];
+    private long dueTick;
+    private boolean scheduled;
+
+    /**
+     * 累计一条提示
+     */
+    public void add(CombatMessage message, double value) {
+        counts[message.ordinal()]++;
+        totals[message.ordinal()] += value;
+    }
+
+    /**
+     * 指定序号的提示在窗口内出现的次数
+     */
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    /**
+     * 指定序号的提示在窗口内的数值合计
+     */
+    public double getTotal(int index) {
+        return totals[index];
+    }
+
+    /**
+     * 是否已在等待发送
+     */
+    public boolean isScheduled() {
+        return scheduled;
+    }
+
+    /**
+     * 标记为等待发送，到期后由合并器统一发送
+     */
+    public void schedule(long dueTick) {
+        this.dueTick = dueTick;
+        this.scheduled = true;
+    }
+
+    public long getDueTick() {
+        return dueTick;
+    }
+
+    /**
+     * 清空累计的提示，取消等待发送标记
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(totals, 0.0);
+        scheduled = false;
+    }
+}
@@ -0,0 +1,203 @@
+package dev.charlieveg.loreattribute.data;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Random;
+
+/**
+ * 单次玩家攻击的伤害计算
+ * 按阶段计算：基础伤害 → 暴击 → 真实伤害 → 百分比加成 → 防御（闪避、格挡、护甲穿透与减免）→ 反伤，
+ * 之后给出生命偷取、弱化与范围伤害的数值。
+ *
+ * 只做数值计算并记录各阶段的结果，提示消息、回血、药水效果等由调用方根据结果处理。
+ * 由 CombatListener 按事件嵌套深度复用，begin() 开始新的一次计算，常态下不分配对象。只在主线程使用
+ *
+ * @author charlieveg
+ */
+@Getter
+public final class DamageCalculation {
+
+    /**
+     * 格挡减少的伤害比例
+     */
+    public static final double BLOCK_RATIO = 0.5;
+
+    /**
+     * 反伤比例
+     */
+    public static final double INJURY_RATIO = 0.1;
+
+    @Getter(AccessLevel.NONE)
+    private final Random random;
+
+    private DerivedCombatProfile attackerProfile;
+    private DerivedCombatProfile targetProfile;
+    private boolean targetPlayer;
+
+    /**
+     * 事件原始伤害
+     */
+    private double eventDamage;
+
+    /**
+     * 参与百分比真实伤害计算的基础伤害，设置了攻击伤害属性时为0
+     */
+    private double baseDamage;
+
+    /**
+     * 当前伤害
+     */
+    private double damage;
+
+    /**
+     * 格挡减少的伤害，未格挡时为0
+     */
+    private double blockedDamage;
+
+    /**
+     * 反伤的伤害，未触发时为0
+     */
+    private double injuryDamage;
+
+    /**
+     * @param random 概率判定使用的随机数
+     */
+    public DamageCalculation(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * 开始一次新的计算，当前伤害先设为事件原始伤害
+     *
+     * @param targetPlayer 目标是否为玩家，非玩家目标会计算对怪物额外伤害，不计算防御
+     */
+    public void begin(DerivedCombatProfile attackerProfile, DerivedCombatProfile targetProfile,
+                      double eventDamage, boolean targetPlayer) {
+        this.attackerProfile = attackerProfile;
+        this.targetProfile = targetProfile;
+        this.targetPlayer = targetPlayer;
+        this.eventDamage = eventDamage;
+        this.baseDamage = eventDamage;
+        this.damage = eventDamage;
+        this.blockedDamage = 0.0;
+        this.injuryDamage = 0.0;
+    }
+
+    /**
+     * 释放对战斗数值的引用
+     */
+    public void clear() {
+        attackerProfile = null;
+        targetProfile = null;
+    }
+
+    /**
+     * 基础伤害阶段：攻击伤害、总伤害、对怪物额外伤害
+     * 设置了攻击伤害属性时忽略物品原伤害
+     *
+     * @return 是否用属性伤害替代了物品原伤害
+     */
+    public boolean applyBaseDamage() {
+        boolean replaceBase = attackerProfile.getAttackDamage() > 0;
+        baseDamage = replaceBase ? 0.0 : eventDamage;
+
+        damage = baseDamage + attackerProfile.getFlatDamage();
+        if (!targetPlayer) {
+            damage += attackerProfile.getMobDamage();
+        }
+        return replaceBase;
+    }
+
+    /**
+     * 暴击阶段
+     *
+     * @return 是否暴击
+     */
+    public boolean applyCrit() {
+        if (random.nextDouble() < attackerProfile.getCritChance()) {
+            damage *= attackerProfile.getCritMultiplier();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 真实伤害阶段（不受暴击影响）
+     */
+    public void applyTrueDamage() {
+        damage += attackerProfile.getTrueDamage();
+    }
+
+    /**
+     * 百分比加成阶段：百分比伤害与百分比真实伤害
+     */
+    public void applyPercentModifiers() {
+        damage = damage * attackerProfile.getPercentDamageMultiplier()
+            + baseDamage * attackerProfile.getPercentTrueDamageRatio();
+    }
+
+    /**
+     * 闪避判定（仅玩家目标），被闪避时伤害不再变化
+     *
+     * @return 是否闪避
+     */
+    public boolean rollDodge() {
+        return random.nextDouble() < targetProfile.getDodgeChance();
+    }
+
+    /**
+     * 格挡、护甲穿透与伤害减免（仅玩家目标），需要先确认没有被闪避
+     *
+     * @return 是否格挡，格挡减少的伤害见 getBlockedDamage()
+     */
+    public boolean applyDefense() {
+        boolean blocked = random.nextDouble() < targetProfile.getBlockChance();
+        if (blocked) {
+            blockedDamage = damage * BLOCK_RATIO;
+            damage -= blockedDamage;
+        }
+        damage *= 1.0 - targetProfile.getReductionAgainst(attackerProfile.getArmorPenetration());
+        return blocked;
+    }
+
+    /**
+     * 反伤判定（防御方的属性，仅玩家目标）
+     *
+     * @return 是否触发反伤，反伤的伤害见 getInjuryDamage()
+     */
+    public boolean rollInjury() {
+        if (random.nextDouble() < targetProfile.getInjuryChance()) {
+            injuryDamage = damage * INJURY_RATIO;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 按当前伤害计算的生命偷取量，没有生命偷取时为0
+     */
+    public double getLifeStealAmount() {
+        return damage * attackerProfile.getLifeStealRatio();
+    }
+
+    /**
+     * 弱化判定（武器特殊效果）
+     *
+     * @return 是否触发弱化
+     */
+    public boolean rollWeaken() {
+        double weakenChance = attackerProfile.getWeakenChance();
+        return weakenChance > 0 && random.nextDouble() < weakenChance;
+    }
+
+    /**
+     * 按当前伤害计算的范围伤害，没有范围伤害时为0
+     */
+    public double getAoeDamage() {
+        if (!attackerProfile.hasAoe()) {
+            return 0.0;
+        }
+        return damage * (attackerProfile.getAoeDamage() / 100.0);
+    }
+}
@@ -0,0 +1,181 @@
+package dev.charlieveg.loreattribute.data;
+
+import lombok.Getter;
+
+/**
+ * 派生战斗数值
+ * 在属性重新计算、发布快照时由原始属性一次性换算得到：
+ * 暴击概率与倍率、伤害减免、护甲穿透、攻击间隔、吸血比例等。
+ * 每次命中只需读取这里的字段，不再从原始属性重复换算
+ *
+ * 与快照一样创建后不再修改，任意线程都可以读取
+ *
+ * @author charlieveg
+ */
+@Getter
+public final class DerivedCombatProfile {
+
+    /**
+     * 没有任何属性时的战斗数值
+     */
+    public static final DerivedCombatProfile EMPTY = new DerivedCombatProfile(AttributeVector.EMPTY);
+
+    /**
+     * 伤害减免上限
+     */
+    public static final double MAX_REDUCTION = 0.75;
+
+    /**
+     * 近战攻击基础间隔（纳秒）
+     */
+    public static final long BASE_ATTACK_INTERVAL_NANOS = 600_000_000L;
+
+    /**
+     * 近战攻击最小间隔（纳秒）
+     */
+    public static final long MIN_ATTACK_INTERVAL_NANOS = 50_000_000L;
+
+    // ---- 进攻 ----
+
+    /**
+     * 攻击伤害，大于0时替代物品原伤害
+     */
+    private final double attackDamage;
+
+    /**
+     * 与物品原伤害叠加的固定伤害（攻击伤害 + 总伤害）
+     */
+    private final double flatDamage;
+
+    /**
+     * 对非玩家目标的额外伤害
+     */
+    private final double mobDamage;
+
+    /**
+     * 暴击概率（0-1）
+     */
+    private final double critChance;
+
+    /**
+     * 暴击后的伤害倍率
+     */
+    private final double critMultiplier;
+
+    private final double trueDamage;
+
+    /**
+     * 百分比伤害倍率，没有百分比伤害时为1
+     */
+    private final double percentDamageMultiplier;
+
+    /**
+     * 按基础伤害计算的百分比真实伤害比例
+     */
+    private final double percentTrueDamageRatio;
+
+    /**
+     * 护甲穿透，只抵消目标的普通护甲
+     */
+    private final double armorPenetration;
+
+    /**
+     * 生命偷取比例（0-1）
+     */
+    private final double lifeStealRatio;
+
+    /**
+     * 弱化触发概率（0-1）
+     */
+    private final double weakenChance;
+
+    private final double aoeDamage;
+    private final double aoeRange;
+
+    /**
+     * 近战攻击间隔（纳秒）
+     */
+    private final long attackIntervalNanos;
+
+    // ---- 防御 ----
+
+    /**
+     * 闪避概率（0-1）
+     */
+    private final double dodgeChance;
+
+    /**
+     * 格挡概率（0-1）
+     */
+    private final double blockChance;
+
+    /**
+     * 反伤概率（0-1）
+     */
+    private final double injuryChance;
+
+    private final double armor;
+    private final double trueArmor;
+
+    /**
+     * 不考虑护甲穿透时的伤害减免比例，已应用上限
+     */
+    private final double reduction;
+
+    /**
+     * 原始属性（攻击速度等仍需展示的原值）
+     */
+    private final AttributeVector attributes;
+
+    public DerivedCombatProfile(AttributeVector attributes) {
+        this.attributes = attributes;
+
+        this.attackDamage = attributes.get(AttributeKey.DAMAGE);
+        this.flatDamage = attackDamage + attributes.get(AttributeKey.SUM_DAMAGE);
+        this.mobDamage = attributes.get(AttributeKey.MOB_DAMAGE);
+        this.critChance = attributes.get(AttributeKey.CRIT) / 100.0;
+        this.critMultiplier = 1.0 + attributes.get(AttributeKey.CRIT_DAMAGE) / 100.0;
+        this.trueDamage = attributes.get(AttributeKey.TRUE_DAMAGE);
+        double percentDamage = attributes.get(AttributeKey.FINAL_DAMAGE);
+        this.percentDamageMultiplier = percentDamage > 0 ? 1.0 + percentDamage / 100.0 : 1.0;
+        double percentTrueDamage = attributes.get(AttributeKey.FINAL_TRUE_DAMAGE);
+        this.percentTrueDamageRatio = percentTrueDamage > 0 ? percentTrueDamage / 100.0 : 0.0;
+        this.armorPenetration = attributes.get(AttributeKey.ARMOR_BREAK);
+        double lifeSteal = attributes.get(AttributeKey.LIFE_STEAL);
+        this.lifeStealRatio = lifeSteal > 0 ? lifeSteal / 100.0 : 0.0;
+        this.weakenChance = attributes.get(AttributeKey.WEAKEN) / 100.0;
+        this.aoeDamage = attributes.get(AttributeKey.AOE_DAMAGE);
+        this.aoeRange = attributes.get(AttributeKey.AOE_RANGE);
+
+        // 攻击速度每100点减少2%的攻击间隔，攻击速度最多计算200点
+        double speedReduction = Math.min(attributes.get(AttributeKey.ATTACK_SPEED), 200.0);
+        long interval = (long) (BASE_ATTACK_INTERVAL_NANOS * (1.0 - speedReduction / 100.0 * 0.02));
+        this.attackIntervalNanos = Math.max(interval, MIN_ATTACK_INTERVAL_NANOS);
+
+        this.dodgeChance = attributes.get(AttributeKey.DODGE) / 100.0;
+        this.blockChance = attributes.get(AttributeKey.BLOCK) / 100.0;
+        this.injuryChance = attributes.get(AttributeKey.INJURY) / 100.0;
+        this.armor = attributes.get(AttributeKey.ARMOR);
+        this.trueArmor = attributes.get(AttributeKey.TRUE_ARMOR);
+        this.reduction = Math.min((armor + trueArmor) / 100.0, MAX_REDUCTION);
+    }
+
+    /**
+     * 受到带护甲穿透的攻击时的伤害减免比例
+     * 护甲穿透只影响普通护甲，不影响真实抗性
+     */
+    public double getReductionAgainst(double penetration) {
+        if (penetration <= 0) {
+            return reduction;
+        }
+        double effectiveArmor = Math.max(0, armor - penetration);
+        return Math.min((effectiveArmor + trueArmor) / 100.0, MAX_REDUCTION);
+    }
+
+    /**
+     * 是否有范围伤害
+     */
+    public boolean hasAoe() {
+        return aoeDamage > 0 && aoeRange > 0;
+    }
+}
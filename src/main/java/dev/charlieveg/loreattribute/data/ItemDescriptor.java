@@ -0,0 +1,119 @@
+package dev.charlieveg.loreattribute.data;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 物品描述
+ * 一次读取物品lore得到的全部信息：类型、属性、去色后的lore文本、可放入的战斗背包栏位等，
+ * 属性计算、装备限制、战斗背包和属性界面都从这里读取，不再各自克隆 ItemMeta
+ *
+ * 描述按lore指纹缓存并被多个玩家共享，内容只能读取
+ *
+ * @author charlieveg
+ */
+@Getter
+public final class ItemDescriptor {
+
+    /**
+     * 没有lore的物品
+     */
+    public static final ItemDescriptor EMPTY = new ItemDescriptor(
+        Collections.<String>emptyList(), Collections.<String>emptyList(), "", AttributeVector.EMPTY, 0);
+
+    /**
+     * 原始lore，用于校验指纹碰撞
+     */
+    private final List<String> lore;
+
+    /**
+     * 去除颜色代码并去掉首尾空白后的lore
+     */
+    private final List<String> cleanLore;
+
+    /**
+     * lore中"类型: "行声明的物品类型，未声明时为空字符串
+     */
+    private final String type;
+
+    /**
+     * 物品提供的属性，已冻结为只读
+     */
+    private final AttributeVector attributes;
+
+    /**
+     * 可放入的战斗背包栏位，第 n 位对应第 n+1 号栏
+     */
+    private final int battleSlotMask;
+
+    // 装备限制标签位图，依赖限制配置，按配置版本惰性计算
+    @Getter(lombok.AccessLevel.NONE)
+    private volatile RestrictionTags restrictionTags;
+
+    // FlansModule 枪械属性，首次作为枪械开火时惰性解析
+    @Getter(lombok.AccessLevel.NONE)
+    private volatile AttributeVector flansGunAttributes;
+
+    public ItemDescriptor(List<String> lore, List<String> cleanLore, String type, AttributeVector attributes, int battleSlotMask) {
+        this.lore = Collections.unmodifiableList(new ArrayList<>(lore));
+        this.cleanLore = Collections.unmodifiableList(new ArrayList<>(cleanLore));
+        this.type = type;
+        this.attributes = attributes.freeze();
+        this.battleSlotMask = battleSlotMask;
+    }
+
+    /**
+     * 是否可以放入指定的战斗背包栏位
+     *
+     * @param index 栏位下标（0-4）
+     */
+    public boolean canPlaceInBattleSlot(int index) {
+        return index >= 0 && (battleSlotMask & (1 << index)) != 0;
+    }
+
+    /**
+     * 获取按指定配置版本计算的限制标签位图
+     *
+     * @return 标签位图（只能读取），版本不一致或尚未计算时返回null
+     */
+    public long[] getRestrictionMask(int generation) {
+        RestrictionTags tags = restrictionTags;
+        return tags != null && tags.generation == generation ? tags.mask : null;
+    }
+
+    /**
+     * 记录按指定配置版本计算的限制标签位图
+     */
+    public void setRestrictionMask(int generation, long[] mask) {
+        this.restrictionTags = new RestrictionTags(generation, mask);
+    }
+
+    /**
+     * 获取已解析的 FlansModule 枪械属性
+     *
+     * @return 只读的枪械属性，尚未解析时返回null
+     */
+    public AttributeVector getFlansGunAttributes() {
+        return flansGunAttributes;
+    }
+
+    /**
+     * 记录解析出的 FlansModule 枪械属性，向量会被冻结
+     */
+    public void setFlansGunAttributes(AttributeVector attributes) {
+        this.flansGunAttributes = attributes.freeze();
+    }
+
+    private static final class RestrictionTags {
+        private final int generation;
+        private final long[] mask;
+
+        private RestrictionTags(int generation, long[] mask) {
+            this.generation = generation;
+            this.mask = mask;
+        }
+    }
+}
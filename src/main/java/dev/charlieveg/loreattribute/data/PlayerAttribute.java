@@ -102,64 +102,72 @@ public class PlayerAttribute {
      * 获取指定属性值
      */
     public double getAttribute(String attributeName) {
-        switch (attributeName.toLowerCase()) {
-            case "damage": case "攻击伤害":
+        AttributeKey key = AttributeKey.fromName(attributeName);
+        return key != null ? getAttribute(key) : 0.0;
+    }
+    
+    /**
+     * 获取指定属性值
+     */
+    public double getAttribute(AttributeKey key) {
+        switch (key) {
+            case DAMAGE:
                 return damage;
-            case "truedamage": case "真实伤害":
+            case TRUE_DAMAGE:
                 return trueDamage;
-            case "sumdamage": case "总伤害":
+            case SUM_DAMAGE:
                 return sumDamage;
-            case "finaldamage": case "百分比伤害":
+            case FINAL_DAMAGE:
                 return finalDamage;
-            case "finaltruedamage": case "百分比真实伤害":
+            case FINAL_TRUE_DAMAGE:
                 return finalTrueDamage;
-            case "mobdamage": case "对怪物造成的额外伤害":
+            case MOB_DAMAGE:
                 return mobDamage;
-            case "summobdamage": case "对怪物造成的总额外伤害":
+            case SUM_MOB_DAMAGE:
                 return sumMobDamage;
-            case "aoedamage": case "范围伤害":
+            case AOE_DAMAGE:
                 return aoeDamage;
-            case "aoerange": case "伤害范围":
+            case AOE_RANGE:
                 return aoeRange;
-            case "crit": case "致命几率":
+            case CRIT:
                 return crit;
-            case "critdamage": case "致命伤害":
+            case CRIT_DAMAGE:
                 return critDamage;
-            case "critarmor": case "致命抗性":
+            case CRIT_ARMOR:
                 return critArmor;
-            case "critbreaker": case "招架几率":
+            case CRIT_BREAKER:
                 return critBreaker;
-            case "armor": case "伤害减免":
+            case ARMOR:
                 return armor;
-            case "truearmor": case "真实抗性":
+            case TRUE_ARMOR:
                 return trueArmor;
-            case "dodge": case "闪避几率":
+            case DODGE:
                 return dodge;
-            case "dodgebreaker": case "破闪几率":
+            case DODGE_BREAKER:
                 return dodgeBreaker;
-            case "block": case "格挡几率":
+            case BLOCK:
                 return block;
-            case "blockbreaker": case "强化重击":
+            case BLOCK_BREAKER:
                 return blockBreaker;
-            case "armorbreak": case "护甲穿透":
+            case ARMOR_BREAK:
                 return armorBreak;
-            case "health": case "生命值":
+            case HEALTH:
                 return health;
-            case "healthheal": case "生命恢复":
+            case HEALTH_HEAL:
                 return healthHeal;
-            case "lifesteal": case "生命偷取":
+            case LIFE_STEAL:
                 return lifeSteal;
-            case "finalhealth": case "百分比生命":
+            case FINAL_HEALTH:
                 return finalHealth;
-            case "movespeed": case "移动速度":
+            case MOVE_SPEED:
                 return moveSpeed;
-            case "attackspeed": case "攻击速度":
+            case ATTACK_SPEED:
                 return attackSpeed;
-            case "injury": case "反伤几率":
+            case INJURY:
                 return injury;
-            case "weaken": case "弱化几率":
+            case WEAKEN:
                 return weaken;
-            case "mobdamageremove": case "对怪物的伤害免疫":
+            case MOB_DAMAGE_REMOVE:
                 return mobDamageRemove;
             default:
                 return 0.0;
@@ -170,97 +178,132 @@ public class PlayerAttribute {
      * 设置指定属性值
      */
     public void setAttribute(String attributeName, double value) {
-        switch (attributeName.toLowerCase()) {
-            case "damage": case "攻击伤害":
+        AttributeKey key = AttributeKey.fromName(attributeName);
+        if (key != null) {
+            setAttribute(key, value);
+        }
+    }
+    
+    /**
+     * 设置指定属性值
+     */
+    public void setAttribute(AttributeKey key, double value) {
+        switch (key) {
+            case DAMAGE:
                 this.damage = value;
                 break;
-            case "truedamage": case "真实伤害":
+            case TRUE_DAMAGE:
                 this.trueDamage = value;
                 break;
-            case "sumdamage": case "总伤害":
+            case SUM_DAMAGE:
                 this.sumDamage = value;
                 break;
-            case "finaldamage": case "百分比伤害":
+            case FINAL_DAMAGE:
                 this.finalDamage = value;
                 break;
-            case "finaltruedamage": case "百分比真实伤害":
+            case FINAL_TRUE_DAMAGE:
                 this.finalTrueDamage = value;
                 break;
-            case "mobdamage": case "对怪物造成的额外伤害":
+            case MOB_DAMAGE:
                 this.mobDamage = value;
                 break;
-            case "summobdamage": case "对怪物造成的总额外伤害":
+            case SUM_MOB_DAMAGE:
                 this.sumMobDamage = value;
                 break;
-            case "aoedamage": case "范围伤害":
+            case AOE_DAMAGE:
                 this.aoeDamage = value;
                 break;
-            case "aoerange": case "伤害范围":
+            case AOE_RANGE:
                 this.aoeRange = value;
                 break;
-            case "crit": case "致命几率":
+            case CRIT:
                 this.crit = value;
                 break;
-            case "critdamage": case "致命伤害":
+            case CRIT_DAMAGE:
                 this.critDamage = value;
                 break;
-            case "critarmor": case "致命抗性":
+            case CRIT_ARMOR:
                 this.critArmor = value;
                 break;
-            case "critbreaker": case "招架几率":
+            case CRIT_BREAKER:
                 this.critBreaker = value;
                 break;
-            case "armor": case "伤害减免":
+            case ARMOR:
                 this.armor = value;
                 break;
-            case "truearmor": case "真实抗性":
+            case TRUE_ARMOR:
                 this.trueArmor = value;
                 break;
-            case "dodge": case "闪避几率":
+            case DODGE:
                 this.dodge = value;
                 break;
-            case "dodgebreaker": case "破闪几率":
+            case DODGE_BREAKER:
                 this.dodgeBreaker = value;
                 break;
-            case "block": case "格挡几率":
+            case BLOCK:
                 this.block = value;
                 break;
-            case "blockbreaker": case "强化重击":
+            case BLOCK_BREAKER:
                 this.blockBreaker = value;
                 break;
-            case "armorbreak": case "护甲穿透":
+            case ARMOR_BREAK:
                 this.armorBreak = value;
                 break;
-            case "health": case "生命值":
+            case HEALTH:
                 this.health = value;
                 break;
-            case "healthheal": case "生命恢复":
+            case HEALTH_HEAL:
                 this.healthHeal = value;
                 break;
-            case "lifesteal": case "生命偷取":
+            case LIFE_STEAL:
                 this.lifeSteal = value;
                 break;
-            case "finalhealth": case "百分比生命":
+            case FINAL_HEALTH:
                 this.finalHealth = value;
                 break;
-            case "movespeed": case "移动速度":
+            case MOVE_SPEED:
                 this.moveSpeed = value;
                 break;
-            case "attackspeed": case "攻击速度":
+            case ATTACK_SPEED:
                 this.attackSpeed = value;
                 break;
-            case "injury": case "反伤几率":
+            case INJURY:
                 this.injury = value;
                 break;
-            case "weaken": case "弱化几率":
+            case WEAKEN:
                 this.weaken = value;
                 break;
-            case "mobdamageremove": case "对怪物的伤害免疫":
+            case MOB_DAMAGE_REMOVE:
                 this.mobDamageRemove = value;
                 break;
         }
     }
     
+    /**
+     * 转换为属性向量，只包含非零属性
+     */
+    public AttributeVector toVector() {
+        AttributeVector vector = new AttributeVector();
+        for (AttributeKey key : AttributeKey.values()) {
+            double value = getAttribute(key);
+            if (value != 0.0) {
+                vector.set(key, value);
+            }
+        }
+        return vector;
+    }
+    
+    /**
+     * 从属性向量创建属性数据
+     */
+    public static PlayerAttribute fromVector(AttributeVector vector) {
+        PlayerAttribute attribute = new PlayerAttribute();
+        for (AttributeKey key : AttributeKey.values()) {
+            attribute.setAttribute(key, vector.get(key));
+        }
+        return attribute;
+    }
+    
     /**
      * 添加属性值
      */
@@ -1,23 +1,21 @@
 package dev.charlieveg.loreattribute.listener;
 
 import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.data.AttributeKey;
+import dev.charlieveg.loreattribute.data.AttributeVector;
+import dev.charlieveg.loreattribute.data.DerivedCombatProfile;
+import dev.charlieveg.loreattribute.manager.PlayerSession;
 // 1.7.10不支持Attribute API，移除相关导入
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
 
 
-import java.util.Map;
-import java.util.HashMap;
-import java.util.UUID;
-
 /**
  * 属性效果监听器
  * 处理生命值、移动速度、攻击速度等属性的实际应用
@@ -28,31 +26,10 @@ public class AttributeEffectListener implements Listener {
     
     private final LoreAttributePlugin plugin;
     
-    // 攻击冷却时间记录 (玩家UUID -> 最后攻击时间)
-    private final Map<UUID, Long> attackCooldowns = new HashMap<>();
-    
     public AttributeEffectListener(LoreAttributePlugin plugin) {
         this.plugin = plugin;
     }
     
-    /**
-     * 玩家加入时启动属性效果更新
-     */
-    @EventHandler(priority = EventPriority.MONITOR)
-    public void onPlayerJoin(PlayerJoinEvent event) {
-        Player player = event.getPlayer();
-        
-        // 延迟3秒后开始应用属性效果，确保玩家完全加载
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                applyPlayerAttributeEffects(player);
-            }
-        }.runTaskLater(plugin, 60L);
-    }
-    
-
-    
     /**
      * 处理攻击速度限制 - 仅处理近战攻击，不包括FlansModule枪械
      */
@@ -81,42 +58,38 @@ public class AttributeEffectListener implements Listener {
             return; // FlansModule枪械使用模组内置的攻击速度系统
         }
         
-        UUID playerId = attacker.getUniqueId();
-        long currentTime = System.currentTimeMillis();
-        
-        // 获取玩家攻击速度属性
-        Map<String, Double> attributes = plugin.getAttributeManager().getCachedPlayerAttributes(attacker);
-        double attackSpeed = attributes.getOrDefault("attackSpeed", 0.0);
-        
-        // 近战攻击基础间隔
-        double baseInterval = 600.0; // 600ms基础间隔
+        // 最后攻击时间记录在玩家会话中，玩家退出时随会话清理；没有会话的玩家（不在线）不限制
+        PlayerSession session = plugin.getSessionRegistry().get(attacker);
+        if (session == null) {
+            return;
+        }
+        long currentTime = System.nanoTime();
         
-        // 攻击速度每点减少2%的攻击间隔
-        double speedReduction = Math.min(attackSpeed, 200.0);
-        double reductionFactor = speedReduction / 100.0 * 0.02;
-        double interval = baseInterval * (1.0 - reductionFactor);
-        interval = Math.max(interval, 50.0); // 最小攻击间隔50ms
+        // 攻击间隔在属性发布时已按攻击速度换算好
+        DerivedCombatProfile profile = plugin.getAttributeManager().getCombatProfile(attacker);
+        long interval = profile.getAttackIntervalNanos();
         
         // 检查是否在攻击冷却中
-        Long lastAttackTime = attackCooldowns.get(playerId);
-        if (lastAttackTime != null && (currentTime - lastAttackTime) < interval) {
+        long elapsed = session.getNanosSinceLastAttack(currentTime);
+        if (elapsed < interval) {
             // 取消这次攻击
             event.setCancelled(true);
             
             // 调试信息
-            if (plugin.getConfigManager().getBoolean("Debug.Combat", false)) {
+            if (plugin.getConfigManager().getCompiled().isDebugCombat()) {
                 attacker.sendMessage("§c近战攻击限制: 剩余冷却 " + 
-                    String.format("%.1f", (interval - (currentTime - lastAttackTime)) / 1000.0) + " 秒");
+                    String.format("%.1f", (interval - elapsed) / 1_000_000_000.0) + " 秒");
             }
             return;
         }
         
         // 记录这次攻击时间
-        attackCooldowns.put(playerId, currentTime);
+        session.recordAttack(currentTime);
         
         // 调试信息
-        if (plugin.getConfigManager().getBoolean("Debug.Combat", false)) {
-            attacker.sendMessage("§a近战攻击成功: 间隔 " + String.format("%.1f", interval) + "ms, 攻击速度: " + attackSpeed);
+        if (plugin.getConfigManager().getCompiled().isDebugCombat()) {
+            attacker.sendMessage("§a近战攻击成功: 间隔 " + String.format("%.1f", interval / 1_000_000.0) + "ms, 攻击速度: "
+                + profile.getAttributes().get(AttributeKey.ATTACK_SPEED));
         }
     }
     
@@ -131,10 +104,10 @@ public class AttributeEffectListener implements Listener {
         // 应用属性效果
         applyPlayerAttributeEffects(player);
         
-        if (plugin.getConfigManager().getBoolean("Debug.Combat", false)) {
-            Map<String, Double> attributes = plugin.getAttributeManager().getCachedPlayerAttributes(player);
+        if (plugin.getConfigManager().getCompiled().isDebugCombat()) {
+            AttributeVector attributes = plugin.getAttributeManager().getPlayerAttributeVector(player);
             player.sendMessage("§6手动更新属性完成！");
-            player.sendMessage("§6当前攻击速度: " + attributes.getOrDefault("attackSpeed", 0.0));
+            player.sendMessage("§6当前攻击速度: " + attributes.get(AttributeKey.ATTACK_SPEED));
         }
     }
     
@@ -154,7 +127,7 @@ public class AttributeEffectListener implements Listener {
             return;
         }
         
-        Map<String, Double> attributes = plugin.getAttributeManager().getCachedPlayerAttributes(player);
+        AttributeVector attributes = plugin.getAttributeManager().getPlayerAttributeVector(player);
         
         // 应用生命值属性
         applyHealthAttribute(player, attributes);
@@ -169,10 +142,10 @@ public class AttributeEffectListener implements Listener {
     /**
      * 应用生命值属性
      */
-    private void applyHealthAttribute(Player player, Map<String, Double> attributes) {
+    private void applyHealthAttribute(Player player, AttributeVector attributes) {
         double baseHealth = 20.0; // 基础生命值
-        double additionalHealth = attributes.getOrDefault("health", 0.0);
-        double percentHealth = attributes.getOrDefault("finalHealth", 0.0);
+        double additionalHealth = attributes.get(AttributeKey.HEALTH);
+        double percentHealth = attributes.get(AttributeKey.FINAL_HEALTH);
         
         // 计算最终生命值
         double finalHealth = baseHealth + additionalHealth;
@@ -201,9 +174,9 @@ public class AttributeEffectListener implements Listener {
     /**
      * 应用移动速度属性
      */
-    private void applySpeedAttribute(Player player, Map<String, Double> attributes) {
+    private void applySpeedAttribute(Player player, AttributeVector attributes) {
         double baseSpeed = 0.2; // 基础移动速度
-        double additionalSpeed = attributes.getOrDefault("moveSpeed", 0.0);
+        double additionalSpeed = attributes.get(AttributeKey.MOVE_SPEED);
         
         // 计算最终移动速度（additionalSpeed按百分比计算）
         double finalSpeed = baseSpeed * (1.0 + additionalSpeed / 100.0);
@@ -222,8 +195,8 @@ public class AttributeEffectListener implements Listener {
     /**
      * 应用生命恢复
      */
-    private void applyHealthRegeneration(Player player, Map<String, Double> attributes) {
-        double healthHeal = attributes.getOrDefault("healthHeal", 0.0);
+    private void applyHealthRegeneration(Player player, AttributeVector attributes) {
+        double healthHeal = attributes.get(AttributeKey.HEALTH_HEAL);
         
         if (healthHeal > 0) {
             // 给予生命恢复效果
@@ -234,40 +207,4 @@ public class AttributeEffectListener implements Listener {
             player.addPotionEffect(regenEffect, true);
         }
     }
-    
-    /**
-     * 清理离线玩家的攻击冷却记录
-     */
-    public void cleanupOfflinePlayerCooldowns() {
-        // 清理超过10分钟没有攻击的玩家记录
-        long currentTime = System.currentTimeMillis();
-        long cleanupThreshold = 10 * 60 * 1000; // 10分钟
-        
-        // 1.7.10兼容写法
-        java.util.Iterator<Map.Entry<UUID, Long>> iterator = attackCooldowns.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<UUID, Long> entry = iterator.next();
-            if (currentTime - entry.getValue() > cleanupThreshold) {
-                iterator.remove();
-            }
-        }
-    }
-    
-    /**
-     * 创建属性更新任务
-     */
-    public void startAttributeEffectTask() {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                // 每30秒更新一次所有在线玩家的属性效果
-                for (Player player : plugin.getServer().getOnlinePlayers()) {
-                    applyPlayerAttributeEffects(player);
-                }
-                
-                // 清理攻击冷却记录
-                cleanupOfflinePlayerCooldowns();
-            }
-        }.runTaskTimer(plugin, 600L, 600L); // 30秒后开始，每30秒执行一次
-    }
 } 
\ No newline at end of file
@@ -1,6 +1,7 @@
 package dev.charlieveg.loreattribute.listener;
 
 import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.manager.PlayerEquipmentState;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -12,7 +13,6 @@ import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
 
 /**
  * 战斗背包事件监听器
@@ -104,13 +104,9 @@ public class BattleInventoryListener implements Listener {
         
         // 允许正常的拖拽操作，包括从玩家背包到战斗背包的拖拽
         
-        // 在物品变化后更新属性
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                plugin.getAttributeManager().updatePlayerAttributes(player);
-            }
-        }.runTaskLater(plugin, 1L);
+        // 在物品变化后更新属性（物品可能来自快捷栏，主手槽位一并刷新）
+        plugin.getAttributeUpdateScheduler().markDirty(player,
+            PlayerEquipmentState.MASK_BATTLE | PlayerEquipmentState.MASK_HAND);
     }
     
     /**
@@ -127,12 +123,8 @@ public class BattleInventoryListener implements Listener {
         // 检查是否是战斗背包界面
         if (isBattleInventory(event.getInventory())) {
             // 背包关闭时更新属性
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    plugin.getAttributeManager().updatePlayerAttributes(player);
-                }
-            }.runTaskLater(plugin, 1L);
+            plugin.getAttributeUpdateScheduler().markDirty(player,
+                PlayerEquipmentState.MASK_BATTLE | PlayerEquipmentState.MASK_HAND);
         }
     }
     
@@ -1,24 +1,41 @@
 package dev.charlieveg.loreattribute.listener;
 
 import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.data.AttributeKey;
+import dev.charlieveg.loreattribute.data.AttributeSnapshot;
+import dev.charlieveg.loreattribute.data.AttributeVector;
+import dev.charlieveg.loreattribute.data.CombatMessage;
+import dev.charlieveg.loreattribute.data.DamageCalculation;
+import dev.charlieveg.loreattribute.data.DerivedCombatProfile;
+import dev.charlieveg.loreattribute.manager.PlayerSession;
+import dev.charlieveg.loreattribute.task.AoeDamageQueue;
+import dev.charlieveg.loreattribute.task.BulletRegistry;
+import dev.charlieveg.loreattribute.task.CombatEffectDispatcher;
+import dev.charlieveg.loreattribute.util.EntityGrid;
 import dev.charlieveg.loreattribute.util.FlansModuleIntegration;
 import org.bukkit.ChatColor;
 import org.bukkit.Effect;
 import org.bukkit.Location;
 import org.bukkit.Sound;
+import org.bukkit.World;
 import org.bukkit.entity.*;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.ProjectileLaunchEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.UUID;
 
 /**
  * 战斗事件监听器
@@ -28,9 +45,20 @@ import java.util.Random;
  */
 public class CombatListener implements Listener {
     
+    // 范围伤害网格的格子边长（方块）
+    private static final double AOE_GRID_CELL_SIZE = 8.0;
+    
     private final LoreAttributePlugin plugin;
     private final Random random = new Random();
     
+    // 伤害计算上下文，按事件嵌套深度复用（只在主线程使用）
+    private DamageContext[] contextPool = new DamageContext[4];
+    private int contextDepth;
+    
+    // 世界UID -> 范围伤害目标查询网格，只收录范围伤害中心附近的区块，同一tick内的多次范围伤害共用
+    private final Map<UUID, EntityGrid> aoeGrids = new HashMap<>();
+    private final List<LivingEntity> aoeTargets = new ArrayList<>();
+    
     // 使用 ThreadLocal 存储正在处理的 AOE 伤害事件，避免递归
     private final ThreadLocal<Boolean> isProcessingAoe = ThreadLocal.withInitial(() -> false);
     
@@ -48,6 +76,10 @@ public class CombatListener implements Listener {
     
     /**
      * 处理玩家对实体的伤害
+     * 
+     * 伤害按阶段计算：基础伤害 → 暴击 → 真实伤害 → 百分比加成 → 防御（闪避、格挡、护甲穿透与减免）→ 反伤，
+     * 写回伤害后再处理生命偷取、弱化和范围伤害。
+     * 数值计算由复用的 DamageCalculation 完成，这里根据各阶段的结果发送提示、回血、添加效果，常态下不分配对象。
      */
     @EventHandler(priority = EventPriority.HIGH)
     public void onPlayerDamageEntity(EntityDamageByEntityEvent event) {
@@ -55,159 +87,226 @@ public class CombatListener implements Listener {
             return;
         }
 
-        Player attacker = null;
-        Map<String, Double> weaponAttributes = new java.util.HashMap<>();
-        Entity target = event.getEntity();
+        Player attacker;
+        DerivedCombatProfile attackerProfile = null;
+        Entity damager = event.getDamager();
 
         // FlansModule特殊处理：检查是否为子弹实体伤害
-        if (isFlansModuleBullet(event.getDamager())) {
+        if (isFlansModuleBullet(damager)) {
             // 子弹伤害需要特殊处理，因为伤害者是子弹实体而不是玩家
-            attacker = getFlansModuleBulletOwner(event.getDamager());
-            if (attacker != null) {
-                // 获取射击时使用的FlansModule枪械属性
-                weaponAttributes = getFlansModuleWeaponAttributes(attacker);
+            // 优先使用子弹生成时登记的射击者与开火时合并好的战斗数值
+            BulletRegistry.Entry bullet = plugin.getBulletRegistry().lookup(damager);
+            if (bullet != null) {
+                attacker = bullet.getShooter();
+                attackerProfile = bullet.getAttackerProfile();
+            } else {
+                attacker = getFlansModuleBulletOwner(damager);
+                if (attacker != null) {
+                    // 没有登记时只能取命中时手持的枪械，登记后同一颗子弹的后续命中直接使用
+                    attackerProfile = registerBullet(damager, attacker);
+                }
             }
-        } else if (event.getDamager() instanceof Player) {
-            // 普通玩家攻击（近战、其他武器等）
-            attacker = (Player) event.getDamager();
-            // 这些情况下属性已经在AttributeManager中正确计算
+        } else if (damager instanceof Player) {
+            // 普通玩家攻击（近战、其他武器等），直接使用快照中预先换算的数值
+            attacker = (Player) damager;
+            attackerProfile = plugin.getAttributeManager().getCombatProfile(attacker);
         } else {
             attacker = null;
         }
 
-        if (attacker == null) {
+        if (attacker == null || attackerProfile == null) {
             return;
         }
         
-        // 检查是否是 AOE 递归伤害
-        boolean isAoeRecursive = isProcessingAoe.get();
-        
-        // 调试：显示AOE状态
-        if (plugin.getConfigManager().getBoolean("Debug.Combat", false)) {
-            attacker.sendMessage(ChatColor.GRAY + "伤害事件 - AOE递归状态: " + isAoeRecursive);
-        }
-        
-        double baseDamage = event.getDamage();
-
-        // 获取攻击者属性
-        Map<String, Double> attackerAttributes = plugin.getAttributeManager().getCachedPlayerAttributes(attacker);
-
-        // 合并武器属性
-        Map<String, Double> combinedAttributes = new java.util.HashMap<>(attackerAttributes);
-        mergeWeaponAttributes(combinedAttributes, weaponAttributes);
-        
-        // AOE递归伤害使用简化处理
-        if (isAoeRecursive) {
-            // 对于AOE递归伤害，只应用基础伤害计算和目标的防御属性
-            if (target instanceof Player) {
-                Player targetPlayer = (Player) target;
-                Map<String, Double> targetAttributes = plugin.getAttributeManager().getCachedPlayerAttributes(targetPlayer);
-                
-                // 检查闪避
-                if (checkDodge(targetPlayer, targetAttributes)) {
-                    event.setCancelled(true);
-                    sendCombatMessage(targetPlayer, "dodge", event.getDamage());
-                    sendCombatMessage(attacker, "atDodge", event.getDamage());
-                    return;
-                }
-                
-                // 检查格挡
-                if (checkBlock(targetPlayer, targetAttributes)) {
-                    double blockedDamage = event.getDamage() * 0.5;
-                    event.setDamage(blockedDamage);
-                    sendCombatMessage(targetPlayer, "block", event.getDamage() - blockedDamage);
-                    sendCombatMessage(attacker, "atBlock", event.getDamage() - blockedDamage);
-                }
-                
-                // 应用伤害减免
-                double finalDamage = applyDamageReductionWithPenetration(event.getDamage(), targetAttributes, attackerAttributes);
-                event.setDamage(finalDamage);
-                
-                if (plugin.getConfigManager().getBoolean("Debug.Combat", false)) {
-                    attacker.sendMessage(ChatColor.GREEN + "AOE递归伤害处理完成(玩家): " + String.format("%.1f", finalDamage));
-                }
+        DamageContext context = acquireContext();
+        try {
+            context.attacker = attacker;
+            context.target = event.getEntity();
+            context.targetPlayer = context.target instanceof Player ? (Player) context.target : null;
+            context.debug = plugin.getConfigManager().getCompiled().isDebugCombat();
+            
+            DerivedCombatProfile targetProfile = context.targetPlayer != null
+                ? plugin.getAttributeManager().getCombatProfile(context.targetPlayer)
+                : DerivedCombatProfile.EMPTY;
+            context.calculation.begin(attackerProfile, targetProfile, event.getDamage(), context.targetPlayer != null);
+            
+            if (isProcessingAoe.get()) {
+                processAoeHit(event, context);
             } else {
-                // 对非玩家目标（怪物）的AOE伤害，直接应用伤害，怪物没有复杂的属性系统
-                double finalDamage = event.getDamage();
-                event.setDamage(finalDamage);
-                
-                if (plugin.getConfigManager().getBoolean("Debug.Combat", false)) {
-                    attacker.sendMessage(ChatColor.GREEN + "AOE递归伤害处理完成(怪物): " + String.format("%.1f", finalDamage));
-                }
+                processDirectHit(event, context);
             }
-            return; // AOE递归伤害处理完成，不再执行后续逻辑
-        } else {
-            // 非 AOE 递归伤害，执行完整的伤害计算
-        
-        // 调试：显示关键属性
-            if (plugin.getConfigManager().getBoolean("Debug.Combat", false)) {
-        double damageAttr = combinedAttributes.getOrDefault("damage", 0.0);
-        double aoeDamageAttr = combinedAttributes.getOrDefault("aoeDamage", 0.0);
-        double aoeRangeAttr = combinedAttributes.getOrDefault("aoeRange", 0.0);
-        attacker.sendMessage(ChatColor.BLUE + "属性: 攻击伤害=" + damageAttr + 
-                            ", 范围伤害=" + aoeDamageAttr + "%, 范围=" + aoeRangeAttr);
+        } finally {
+            releaseContext(context);
+        }
+    }
+    
+    /**
+     * 直接攻击：执行完整的伤害计算
+     */
+    private void processDirectHit(EntityDamageByEntityEvent event, DamageContext context) {
+        DamageCalculation calculation = context.calculation;
+        if (context.debug) {
+            DerivedCombatProfile profile = calculation.getAttackerProfile();
+            context.attacker.sendMessage(ChatColor.BLUE + "属性: 攻击伤害=" + profile.getAttackDamage() +
+                                ", 范围伤害=" + profile.getAoeDamage() + "%, 范围=" + profile.getAoeRange());
+        }
+        
+        stageBaseDamage(context);
+        stageCrit(context);
+        calculation.applyTrueDamage();
+        calculation.applyPercentModifiers();
+        
+        if (context.targetPlayer != null) {
+            if (!stageDefense(context)) {
+                event.setCancelled(true);
+                return;
             }
-
-        // 检查是否有设置的攻击伤害属性，如果有则忽略原武器伤害
-        double attackDamage = combinedAttributes.getOrDefault("damage", 0.0);
-        double weaponBaseDamage = baseDamage;
-        
-        // 如果设置了攻击伤害属性，使用属性值而不是物品原伤害
-        if (attackDamage > 0) {
-            weaponBaseDamage = 0.0; // 忽略物品原伤害
-                if (plugin.getConfigManager().getBoolean("Debug.Combat", false)) {
-            attacker.sendMessage(ChatColor.YELLOW + "使用属性伤害替代物品原伤害！");
-                }
+            stageInjury(context);
         }
         
-        // 计算最终伤害
-        double finalDamage = calculateDamageWithTarget(attacker, target, weaponBaseDamage, combinedAttributes);
-
-        // 如果目标是玩家，处理防御机制
-        if (target instanceof Player) {
-            Player targetPlayer = (Player) target;
-            Map<String, Double> targetAttributes = plugin.getAttributeManager().getCachedPlayerAttributes(targetPlayer);
-            
-            // 检查闪避
-            if (checkDodge(targetPlayer, targetAttributes)) {
+        // 应用伤害
+        event.setDamage(calculation.getDamage());
+        
+        if (context.debug) {
+            context.attacker.sendMessage(ChatColor.GREEN + "攻击伤害: " + String.format("%.1f", calculation.getDamage()) +
+                                " (基础: " + String.format("%.1f", calculation.getEventDamage()) + ")");
+        }
+        
+        // 处理特殊效果 - 只有非AOE递归时才处理
+        stageLifeSteal(context);
+        stageWeaken(context);
+        // 只有非AOE递归攻击才触发AOE伤害
+        stageAoe(context);
+    }
+    
+    /**
+     * AOE递归伤害：只应用目标的防御属性，不再触发暴击、吸血、范围伤害等效果
+     */
+    private void processAoeHit(EntityDamageByEntityEvent event, DamageContext context) {
+        // 当前伤害即事件伤害，不经过进攻方的各阶段
+        // 对非玩家目标（怪物）的AOE伤害直接生效，怪物没有复杂的属性系统
+        if (context.targetPlayer != null) {
+            if (!stageDefense(context)) {
                 event.setCancelled(true);
-                sendCombatMessage(targetPlayer, "dodge", finalDamage);
-                sendCombatMessage(attacker, "atDodge", finalDamage);
                 return;
             }
+            event.setDamage(context.calculation.getDamage());
+        }
+        
+        if (context.debug) {
+            context.attacker.sendMessage(ChatColor.GREEN + "AOE递归伤害处理完成(" +
+                (context.targetPlayer != null ? "玩家" : "怪物") + "): " + String.format("%.1f", context.calculation.getDamage()));
+        }
+    }
+    
+    /**
+     * 基础伤害阶段：攻击伤害、总伤害、对怪物额外伤害
+     */
+    private void stageBaseDamage(DamageContext context) {
+        if (context.calculation.applyBaseDamage() && context.debug) {
+            context.attacker.sendMessage(ChatColor.YELLOW + "使用属性伤害替代物品原伤害！");
+        }
+    }
+    
+    /**
+     * 暴击阶段
+     */
+    private void stageCrit(DamageContext context) {
+        if (context.calculation.applyCrit()) {
+            sendCombatMessage(context.attacker, CombatMessage.CRIT, context.calculation.getDamage());
+        }
+    }
+    
+    /**
+     * 防御阶段：闪避、格挡、护甲穿透与伤害减免（仅玩家目标）
+     * 
+     * @return 伤害是否命中，被闪避时返回false
+     */
+    private boolean stageDefense(DamageContext context) {
+        DamageCalculation calculation = context.calculation;
+        
+        // 检查闪避
+        if (calculation.rollDodge()) {
+            sendCombatMessage(context.targetPlayer, CombatMessage.DODGE, calculation.getDamage());
+            sendCombatMessage(context.attacker, CombatMessage.AT_DODGE, calculation.getDamage());
+            return false;
+        }
+        
+        // 检查格挡，并应用伤害减免和护甲穿透
+        if (calculation.applyDefense()) {
+            sendCombatMessage(context.targetPlayer, CombatMessage.BLOCK, calculation.getBlockedDamage());
+            sendCombatMessage(context.attacker, CombatMessage.AT_BLOCK, calculation.getBlockedDamage());
+        }
+        return true;
+    }
+    
+    /**
+     * 反伤阶段（防御方的属性，需要在防具中设置）
+     */
+    private void stageInjury(DamageContext context) {
+        DamageCalculation calculation = context.calculation;
+        if (calculation.rollInjury()) {
+            double injuryDamage = calculation.getInjuryDamage();
+            context.attacker.damage(injuryDamage);
             
-            // 检查格挡
-            if (checkBlock(targetPlayer, targetAttributes)) {
-                double blockedDamage = finalDamage * 0.5;
-                finalDamage = blockedDamage;
-                sendCombatMessage(targetPlayer, "block", finalDamage - blockedDamage);
-                sendCombatMessage(attacker, "atBlock", finalDamage - blockedDamage);
+            sendCombatMessage(context.targetPlayer, CombatMessage.INJURY, injuryDamage);
+            sendCombatMessage(context.attacker, CombatMessage.AT_INJURY, injuryDamage);
+        }
+    }
+    
+    /**
+     * 生命偷取阶段
+     */
+    private void stageLifeSteal(DamageContext context) {
+        double healAmount = context.calculation.getLifeStealAmount();
+        if (healAmount > 0) {
+            Player attacker = context.attacker;
+            double currentHealth = attacker.getHealth();
+            double newHealth = Math.min(attacker.getMaxHealth(), currentHealth + healAmount);
+            if (newHealth > currentHealth) {
+                attacker.setHealth(newHealth);
+                // 发送生命偷取提示
+                sendCombatMessage(attacker, CombatMessage.LIFE_STEAL, healAmount);
             }
+        }
+    }
+    
+    /**
+     * 弱化阶段（武器特殊效果）
+     */
+    private void stageWeaken(DamageContext context) {
+        if (context.target instanceof LivingEntity && context.calculation.rollWeaken()) {
+            LivingEntity livingTarget = (LivingEntity) context.target;
             
-            // 应用伤害减免和护甲穿透
-            finalDamage = applyDamageReductionWithPenetration(finalDamage, targetAttributes, combinedAttributes);
+            // 给目标添加虚弱效果
+            int duration = 20 * 5; // 5秒
+            int amplifier = 1; // 虚弱II
             
-            // 处理反伤
-            handleInjury(targetPlayer, attacker, finalDamage, targetAttributes);
-        }
-        
-        // 应用伤害
-        event.setDamage(finalDamage);
-        
-            // 调试信息
-            if (plugin.getConfigManager().getBoolean("Debug.Combat", false)) {
-        attacker.sendMessage(ChatColor.GREEN + "攻击伤害: " + String.format("%.1f", finalDamage) + 
-                            " (基础: " + String.format("%.1f", baseDamage) + ")");
+            PotionEffect weaknessEffect = new PotionEffect(PotionEffectType.WEAKNESS, duration, amplifier, false);
+            livingTarget.addPotionEffect(weaknessEffect, true);
+            
+            if (context.targetPlayer != null) {
+                double weakenChance = context.calculation.getAttackerProfile().getWeakenChance();
+                sendCombatMessage(context.targetPlayer, CombatMessage.WEAKENED, weakenChance * 100.0);
             }
-
-        // 处理特殊效果 - 只有非AOE递归时才处理
-            handleLifeSteal(attacker, finalDamage, combinedAttributes);
-            handleWeakenEffect(target, combinedAttributes);
-            // 只有非AOE递归攻击才触发AOE伤害
-            handleAoeDamage(attacker, target, finalDamage, combinedAttributes);
         }
     }
     
+    /**
+     * 范围伤害阶段 - 登记到范围伤害队列，在之后的tick按时间预算结算，避免递归（武器特殊效果）
+     */
+    private void stageAoe(DamageContext context) {
+        DerivedCombatProfile profile = context.calculation.getAttackerProfile();
+        if (!profile.hasAoe()) {
+            return;
+        }
+        
+        // 范围伤害值基于主伤害的百分比
+        double aoeBaseDamage = context.calculation.getAoeDamage();
+        Location center = context.target.getLocation().add(0, 1, 0);
+        plugin.getAoeDamageQueue().submit(context.attacker, context.target, center, aoeBaseDamage, profile.getAoeRange());
+    }
+    
     /**
      * 处理玩家受到非玩家伤害（环境伤害、怪物伤害等）
      */
@@ -232,152 +331,153 @@ public class CombatListener implements Listener {
         Player victim = (Player) event.getEntity();
         double baseDamage = event.getDamage();
         
-        // 获取受害者属性
-        Map<String, Double> victimAttributes = plugin.getAttributeManager().getCachedPlayerAttributes(victim);
+        // 获取受害者的防御数值
+        DerivedCombatProfile victimProfile = plugin.getAttributeManager().getCombatProfile(victim);
         
         // 检查闪避
-        if (checkDodge(victim, victimAttributes)) {
+        if (checkDodge(victimProfile)) {
             event.setCancelled(true);
-            sendCombatMessage(victim, "dodge", baseDamage);
+            sendCombatMessage(victim, CombatMessage.DODGE, baseDamage);
             return;
         }
         
         // 检查格挡
-        if (checkBlock(victim, victimAttributes)) {
+        if (checkBlock(victimProfile)) {
             double blockedDamage = baseDamage * 0.5; // 格挡减少50%伤害
             event.setDamage(blockedDamage);
-            sendCombatMessage(victim, "block", baseDamage - blockedDamage);
+            sendCombatMessage(victim, CombatMessage.BLOCK, baseDamage - blockedDamage);
             baseDamage = blockedDamage;
         }
         
         // 应用伤害减免（非玩家攻击，使用普通伤害减免）
-        double finalDamage = applyDamageReduction(baseDamage, victimAttributes);
+        double finalDamage = baseDamage * (1.0 - victimProfile.getReduction());
         event.setDamage(finalDamage);
     }
     
     /**
-     * 计算攻击伤害（带目标实体）
+     * 检查闪避
      */
-    private double calculateDamageWithTarget(Player attacker, Entity target, double baseDamage, Map<String, Double> attributes) {
-        double damage = baseDamage;
-        
-        // 添加基础攻击伤害
-        damage += attributes.getOrDefault("damage", 0.0);
-        
-        // 添加总伤害（只读属性，由系统计算）
-        damage += attributes.getOrDefault("sumDamage", 0.0);
-        
-        // 添加对怪物的额外伤害（如果目标是怪物）
-        if (target != null && !(target instanceof Player)) {
-            damage += attributes.getOrDefault("mobDamage", 0.0);
-        }
-        
-        // 检查暴击
-        boolean isCrit = checkCrit(attacker, attributes);
-        if (isCrit) {
-            double critMultiplier = 1.0 + (attributes.getOrDefault("critDamage", 0.0) / 100.0);
-            damage *= critMultiplier;
-            sendCombatMessage(attacker, "crit", damage);
-        }
-        
-        // 添加真实伤害
-        damage += attributes.getOrDefault("trueDamage", 0.0);
-        
-        // 应用百分比伤害
-        double percentDamage = attributes.getOrDefault("finalDamage", 0.0);
-        if (percentDamage > 0) {
-            damage *= (1.0 + percentDamage / 100.0);
-        }
-        
-        // 应用百分比真实伤害
-        double percentTrueDamage = attributes.getOrDefault("finalTrueDamage", 0.0);
-        if (percentTrueDamage > 0) {
-            damage += (baseDamage * percentTrueDamage / 100.0);
-        }
-        
-        return damage;
+    private boolean checkDodge(DerivedCombatProfile profile) {
+        return random.nextDouble() < profile.getDodgeChance();
     }
     
     /**
-     * 检查暴击
+     * 检查格挡
      */
-    private boolean checkCrit(Player player, Map<String, Double> attributes) {
-        double critChance = attributes.getOrDefault("crit", 0.0);
-        return random.nextDouble() * 100 < critChance;
+    private boolean checkBlock(DerivedCombatProfile profile) {
+        return random.nextDouble() < profile.getBlockChance();
     }
     
     /**
-     * 检查闪避
+     * 发送战斗消息
+     * 交给战斗提示合并器，短时间内的多条提示合并为一行发送
      */
-    private boolean checkDodge(Player player, Map<String, Double> attributes) {
-        double dodgeChance = attributes.getOrDefault("dodge", 0.0);
-        return random.nextDouble() * 100 < dodgeChance;
+    private void sendCombatMessage(Player player, CombatMessage message, double value) {
+        plugin.getCombatMessageAggregator().send(player, message, value);
     }
     
     /**
-     * 检查格挡
+     * 取出一个空闲的伤害计算上下文
+     * 伤害事件可能在处理过程中嵌套触发（如反伤），按嵌套深度各用一个上下文
      */
-    private boolean checkBlock(Player player, Map<String, Double> attributes) {
-        double blockChance = attributes.getOrDefault("block", 0.0);
-        return random.nextDouble() * 100 < blockChance;
+    private DamageContext acquireContext() {
+        if (contextDepth == contextPool.length) {
+            contextPool = java.util.Arrays.copyOf(contextPool, contextPool.length * 2);
+        }
+        DamageContext context = contextPool[contextDepth];
+        if (context == null) {
+            context = new DamageContext(random);
+            contextPool[contextDepth] = context;
+        }
+        contextDepth++;
+        return context;
+    }
+    
+    private void releaseContext(DamageContext context) {
+        context.clear();
+        contextDepth--;
     }
     
     /**
-     * 应用伤害减免
+     * 单次伤害事件的临时状态，由监听器复用
      */
-    private double applyDamageReduction(double damage, Map<String, Double> attributes) {
-        double armor = attributes.getOrDefault("armor", 0.0);
-        double trueArmor = attributes.getOrDefault("trueArmor", 0.0);
-        
-        // 计算伤害减免（普通护甲 + 真实抗性）
-        double reduction = (armor + trueArmor) / 100.0;
-        reduction = Math.min(reduction, 0.75); // 最大减免75%
+    private static final class DamageContext {
+        private final DamageCalculation calculation;
+        private Player attacker;
+        private Entity target;
+        private Player targetPlayer;
+        private boolean debug;
+        
+        private DamageContext(Random random) {
+            this.calculation = new DamageCalculation(random);
+        }
         
-        return damage * (1.0 - reduction);
+        /**
+         * 释放对玩家、实体和战斗数值的引用
+         */
+        private void clear() {
+            attacker = null;
+            target = null;
+            targetPlayer = null;
+            calculation.clear();
+        }
     }
     
     /**
-     * 处理生命偷取
+     * 子弹生成时登记射击者、开火时的枪械属性与合并后的战斗数值
      */
-    private void handleLifeSteal(Player attacker, double damage, Map<String, Double> attributes) {
-        double lifeSteal = attributes.getOrDefault("lifeSteal", 0.0);
-        if (lifeSteal > 0) {
-            double healAmount = damage * (lifeSteal / 100.0);
-            double currentHealth = attacker.getHealth();
-            double newHealth = Math.min(attacker.getMaxHealth(), currentHealth + healAmount);
-            if (newHealth > currentHealth) {
-                attacker.setHealth(newHealth);
-                // 发送生命偷取提示
-                sendCombatMessage(attacker, "lifeSteal", healAmount);
-            }
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onProjectileLaunch(ProjectileLaunchEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        Projectile projectile = event.getEntity();
+        if (!isFlansModuleBullet(projectile)) {
+            return;
+        }
+        
+        Player shooter = projectile.getShooter() instanceof Player
+            ? (Player) projectile.getShooter()
+            : getFlansModuleBulletOwner(projectile);
+        if (shooter != null) {
+            registerBullet(projectile, shooter);
         }
     }
     
     /**
-     * 处理反伤（这是防御方的属性，需要在防具中设置）
+     * 按射击者当前手持的枪械登记子弹
+     * 
+     * @return 登记的射击者战斗数值，射击者没有会话（不在线）时不登记并返回null
      */
-    private void handleInjury(Player victim, Player attacker, double damage, Map<String, Double> attributes) {
-        double injuryChance = attributes.getOrDefault("injury", 0.0);
-        if (random.nextDouble() * 100 < injuryChance) {
-            double injuryDamage = damage * 0.1; // 反伤10%
-            attacker.damage(injuryDamage);
-            
-            sendCombatMessage(victim, "injury", injuryDamage);
-            sendCombatMessage(attacker, "atInjury", injuryDamage);
+    private DerivedCombatProfile registerBullet(Entity bullet, Player shooter) {
+        PlayerSession session = plugin.getSessionRegistry().get(shooter);
+        if (session == null) {
+            return null;
         }
+        AttributeVector weaponAttributes = getFlansModuleWeaponAttributes(shooter);
+        DerivedCombatProfile profile = getMergedProfile(session, weaponAttributes);
+        plugin.getBulletRegistry().register(bullet, shooter, session, weaponAttributes, profile);
+        return profile;
     }
     
     /**
-     * 发送战斗消息
+     * 获取射击者属性合并枪械属性后的战斗数值
+     * 快照与枪械属性都是只读的共享实例，两者都没有变化时复用会话中记录的结果，持续开火不再重复合并
      */
-    private void sendCombatMessage(Player player, String messageType, double value) {
-        String message = plugin.getConfigManager().getString("Messages.Combat." + 
-            messageType.substring(0, 1).toUpperCase() + messageType.substring(1), "");
+    private DerivedCombatProfile getMergedProfile(PlayerSession session, AttributeVector weaponAttributes) {
+        AttributeSnapshot snapshot = session.getSnapshot();
+        if (weaponAttributes.isEmpty()) {
+            return snapshot.getCombatProfile();
+        }
         
-        if (!message.isEmpty()) {
-            message = message.replace("{damage}", String.format("%.1f", value));
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&', message));
+        DerivedCombatProfile profile = session.getGunProfile(snapshot, weaponAttributes);
+        if (profile == null) {
+            AttributeVector merged = snapshot.getAttributes().copy();
+            mergeWeaponAttributes(merged, weaponAttributes);
+            profile = new DerivedCombatProfile(merged.freeze());
+            session.setGunProfile(snapshot, weaponAttributes, profile);
         }
+        return profile;
     }
     
     /**
@@ -396,242 +496,244 @@ public class CombatListener implements Listener {
     
     /**
      * 获取FlansModule武器属性（用于子弹伤害）
+     * 枪械属性按lore指纹缓存在物品描述上，持续开火时直接复用，返回的向量只能读取
      */
-    private Map<String, Double> getFlansModuleWeaponAttributes(Player shooter) {
-        Map<String, Double> attributes = new java.util.HashMap<>();
-        
-        // 优先使用子弹实体关联的武器
-        ItemStack weaponItem = null;
-        
-        // 尝试从子弹实体获取武器（如果可能）
+    private AttributeVector getFlansModuleWeaponAttributes(Player shooter) {
         ItemStack mainHand = shooter.getInventory().getItemInHand();
-        if (mainHand != null && FlansModuleIntegration.isFlansGun(mainHand)) {
-            weaponItem = mainHand;
-        }
-        
-        // 如果找到了FlansModule武器，提取属性
-        if (weaponItem != null) {
-            attributes.putAll(FlansModuleIntegration.extractFlansGunAttributes(weaponItem));
+        if (mainHand == null || !FlansModuleIntegration.isFlansGun(mainHand)) {
+            return AttributeVector.EMPTY;
         }
-        
-        return attributes;
+        return FlansModuleIntegration.getGunAttributes(plugin.getAttributeManager().describeItem(mainHand));
     }
     
     /**
      * 合并武器属性到玩家属性
      */
-    private void mergeWeaponAttributes(Map<String, Double> playerAttributes, Map<String, Double> weaponAttributes) {
-        for (Map.Entry<String, Double> entry : weaponAttributes.entrySet()) {
-            String key = entry.getKey();
-            double value = entry.getValue();
+    private void mergeWeaponAttributes(AttributeVector playerAttributes, AttributeVector weaponAttributes) {
+        for (int i = 0; i < AttributeKey.COUNT; i++) {
+            AttributeKey key = AttributeKey.byOrdinal(i);
+            if (!weaponAttributes.has(key)) {
+                continue;
+            }
+            double value = weaponAttributes.get(key);
             
             // 某些属性叠加，某些属性取最大值
             switch (key) {
-                case "damage":
-                case "trueDamage":
-                case "sumDamage":
-                    // 伤害类属性叠加
-                    playerAttributes.put(key, playerAttributes.getOrDefault(key, 0.0) + value);
-                    break;
-                case "crit":
-                case "critDamage":
-                case "armorPiercing":
-                case "lifeSteal":
+                case CRIT:
+                case CRIT_DAMAGE:
+                case LIFE_STEAL:
                     // 百分比属性取较大值
-                    playerAttributes.put(key, Math.max(playerAttributes.getOrDefault(key, 0.0), value));
+                    playerAttributes.max(key, value);
                     break;
                 default:
-                    // 其他属性叠加
-                    playerAttributes.put(key, playerAttributes.getOrDefault(key, 0.0) + value);
+                    // 伤害类及其他属性叠加
+                    playerAttributes.add(key, value);
                     break;
             }
         }
     }
     
     /**
-     * 处理弱化效果（武器特殊效果）
+     * 开始结算范围伤害任务：播放开始特效并确定全部目标
+     * 由范围伤害队列调用
      */
-    private void handleWeakenEffect(Entity target, Map<String, Double> attributes) {
-        double weakenChance = attributes.getOrDefault("weaken", 0.0);
-        if (weakenChance > 0 && target instanceof LivingEntity && random.nextDouble() * 100 < weakenChance) {
-            LivingEntity livingTarget = (LivingEntity) target;
+    public void beginAoe(AoeDamageQueue.Job job) {
+        Player attacker = job.getAttacker();
+        boolean debug = plugin.getConfigManager().getCompiled().isDebugCombat();
+        
+        for (int proc = 0; proc < job.getProcCount(); proc++) {
+            Location center = job.getCenter(proc);
+            double aoeBaseDamage = job.getBaseDamage(proc);
+            double aoeRange = job.getRange(proc);
             
-            // 给目标添加虚弱效果
-            int duration = 20 * 5; // 5秒
-            int amplifier = 1; // 虚弱II
+            // 调试信息
+            if (debug) {
+                attacker.sendMessage(ChatColor.YELLOW + "触发范围伤害! 基础AOE伤害: " + String.format("%.1f", aoeBaseDamage) + 
+                                    " 范围: " + aoeRange);
+            }
             
-            PotionEffect weaknessEffect = new PotionEffect(PotionEffectType.WEAKNESS, duration, amplifier, false);
-            livingTarget.addPotionEffect(weaknessEffect, true);
+            // 播放范围伤害开始的特效和声音
+            playAoeStartEffect(center, aoeRange);
+            
+            // 获取范围内的所有生物
+            aoeTargets.clear();
+            getAoeGrid(center.getWorld()).queryRadius(center.getX(), center.getY(), center.getZ(), aoeRange, aoeTargets);
             
-            if (target instanceof Player) {
-                sendCombatMessage((Player) target, "weakened", weakenChance);
+            for (LivingEntity entity : aoeTargets) {
+                if (entity == attacker || job.isPrimaryTarget(entity)) {
+                    continue; // 跳过主目标和攻击者
+                }
+                
+                // 计算距离衰减
+                double distance = entity.getLocation().distance(center);
+                double normalizedDistance = Math.min(distance / aoeRange, 1.0);
+                double damageMultiplier = Math.max(0.2, 1.0 - Math.pow(normalizedDistance, 2) * 0.8);
+                job.offerTarget(entity, proc, distance, damageMultiplier, aoeBaseDamage * damageMultiplier);
             }
         }
+        aoeTargets.clear();
     }
     
     /**
-     * 处理范围伤害 - 使用延迟执行避免递归（武器特殊效果）
+     * 对范围伤害任务中的一个目标造成伤害
+     * 由范围伤害队列调用
      */
-    private void handleAoeDamage(Player attacker, Entity primaryTarget, double damage, Map<String, Double> attributes) {
-        double aoeDamage = attributes.getOrDefault("aoeDamage", 0.0);
-        double aoeRange = attributes.getOrDefault("aoeRange", 0.0);
-        
-        if (aoeDamage <= 0 || aoeRange <= 0) {
-            return;
+    public void applyAoeHit(AoeDamageQueue.Job job, int index) {
+        LivingEntity entity = job.getTarget(index);
+        if (entity.isDead() || !entity.isValid()) {
+            return; // 目标在排队期间已经死亡或被移除
         }
         
-        // 延迟1 tick执行AOE伤害，避免递归问题
-        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-            executeAoeDamage(attacker, primaryTarget, damage, aoeDamage, aoeRange);
-        }, 1L);
-    }
-    
-    /**
-     * 执行范围伤害
-     */
-    private void executeAoeDamage(Player attacker, Entity primaryTarget, double damage, double aoeDamage, double aoeRange) {
-        Location targetLocation = primaryTarget.getLocation().add(0, 1, 0);
+        Player attacker = job.getAttacker();
+        Location center = job.getCenter(job.getTargetProc(index));
+        double damageMultiplier = job.getMultiplier(index);
+        double finalAoeDamage = job.getDamage(index);
         
-        // 计算范围伤害值（基于主伤害的百分比）
-        double aoeBaseDamage = damage * (aoeDamage / 100.0);
+        // 创建特效
+        playAoeDamageEffect(center, entity.getLocation().add(0, 1, 0), damageMultiplier);
         
         // 调试信息
-        if (plugin.getConfigManager().getBoolean("Debug.Combat", false)) {
-        attacker.sendMessage(ChatColor.YELLOW + "触发范围伤害! 基础AOE伤害: " + String.format("%.1f", aoeBaseDamage) + 
-                            " 范围: " + aoeRange);
+        if (plugin.getConfigManager().getCompiled().isDebugCombat()) {
+            attacker.sendMessage(ChatColor.RED + "AOE目标: " + entity.getType().name() +
+                    " 距离: " + String.format("%.1f", job.getDistance(index)) +
+                    " 伤害倍数: " + String.format("%.2f", damageMultiplier) +
+                    " 最终伤害: " + String.format("%.1f", finalAoeDamage));
         }
         
-        // 播放范围伤害开始的特效和声音
-        playAoeStartEffect(targetLocation, aoeRange);
-        
-        // 获取范围内的所有实体
-        List<Entity> nearbyEntities = primaryTarget.getNearbyEntities(aoeRange, aoeRange, aoeRange);
-        int hitCount = 0;
-        
         // 设置 AOE 处理标记
         isProcessingAoe.set(true);
         staticAoeProcessingStatus.set(true);
-        
         try {
-            for (Entity entity : nearbyEntities) {
-                if (entity == primaryTarget || entity == attacker) {
-                    continue; // 跳过主目标和攻击者
-                }
-                
-                if (entity instanceof LivingEntity) {
-                    LivingEntity livingEntity = (LivingEntity) entity;
-
-                    // 计算距离衰减
-                    double distance = entity.getLocation().distance(targetLocation);
-                    double normalizedDistance = Math.min(distance / aoeRange, 1.0);
-                    double damageMultiplier = Math.max(0.2, 1.0 - Math.pow(normalizedDistance, 2) * 0.8);
-                    double finalAoeDamage = aoeBaseDamage * damageMultiplier;
-
-                    // 创建特效
-                    playAoeDamageEffect(targetLocation, entity.getLocation().add(0, 1, 0), damageMultiplier);
-
-                    // 调试信息
-                    if (plugin.getConfigManager().getBoolean("Debug.Combat", false)) {
-                    attacker.sendMessage(ChatColor.RED + "AOE目标: " + entity.getType().name() +
-                            " 距离: " + String.format("%.1f", distance) +
-                            " 伤害倍数: " + String.format("%.2f", damageMultiplier) +
-                            " 最终伤害: " + String.format("%.1f", finalAoeDamage));
-                    }
-
-                        // 使用damage方法，这会自动触发伤害事件并应用伤害
-                        livingEntity.damage(finalAoeDamage, attacker);
-                    hitCount++;
-
-                                if (entity instanceof Player) {
-                        sendCombatMessage((Player) entity, "aoeHit", finalAoeDamage);
-                    }
-                }
-            }
+            // 使用damage方法，这会自动触发伤害事件并应用伤害
+            entity.damage(finalAoeDamage, attacker);
         } finally {
             // 清除 AOE 处理标记
             isProcessingAoe.set(false);
             staticAoeProcessingStatus.set(false);
         }
+        job.recordHit();
         
-        // 播放范围伤害结束特效
+        if (entity instanceof Player) {
+            sendCombatMessage((Player) entity, CombatMessage.AOE_HIT, finalAoeDamage);
+        }
+    }
+    
+    /**
+     * 范围伤害任务结算完成：播放结束特效并提示命中数量
+     * 由范围伤害队列调用
+     */
+    public void finishAoe(AoeDamageQueue.Job job) {
+        int hitCount = job.getHits();
         if (hitCount > 0) {
-            playAoeEndEffect(targetLocation, aoeRange, hitCount);
-            sendCombatMessage(attacker, "aoeAttack", hitCount);
-            }
+            playAoeEndEffect(job.getCenter(0), job.getRange(0), hitCount);
+            sendCombatMessage(job.getAttacker(), CombatMessage.AOE_ATTACK, hitCount);
+        }
+    }
+    
+    /**
+     * 获取世界的范围伤害网格，本tick尚未使用时先清空，查询时再收录需要的区块
+     */
+    private EntityGrid getAoeGrid(World world) {
+        EntityGrid grid = aoeGrids.get(world.getUID());
+        if (grid == null) {
+            grid = new EntityGrid(AOE_GRID_CELL_SIZE);
+            aoeGrids.put(world.getUID(), grid);
+        }
+        long tick = plugin.getAttributeUpdateScheduler().getCurrentTick();
+        if (!grid.isBuiltFor(tick)) {
+            grid.rebuild(world, tick);
+        }
+        return grid;
+    }
+    
+    /**
+     * 世界卸载时丢弃对应的网格
+     */
+    @EventHandler
+    public void onWorldUnload(WorldUnloadEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        EntityGrid grid = aoeGrids.remove(event.getWorld().getUID());
+        if (grid != null) {
+            grid.clear();
+        }
     }
     
     /**
      * 播放范围伤害开始特效
+     * 按特效等级减少范围指示粒子，最低等级只保留爆炸和音效
      */
     private void playAoeStartEffect(Location center, double range) {
+        CombatEffectDispatcher effects = plugin.getCombatEffectDispatcher();
+        int level = effects.getLevel(center);
+        
         // 播放简化的爆炸特效
-        center.getWorld().playEffect(center, Effect.EXPLOSION_LARGE, 0);
+        effects.playEffect(center, Effect.EXPLOSION_LARGE, 0);
         
         // 简化的范围指示 - 只显示几个关键点
-        final int particles = Math.min((int)(range * 2), 8); // 大幅减少粒子数量
-        for (int i = 0; i < particles; i++) {
-            double angle = 2 * Math.PI * i / particles;
-            double x = center.getX() + range * Math.cos(angle);
-            double z = center.getZ() + range * Math.sin(angle);
-            Location particleLocation = new Location(center.getWorld(), x, center.getY(), z);
-            
-            // 使用更简单的烟雾粒子
-            center.getWorld().playEffect(particleLocation, Effect.SMOKE, 0);
+        if (level < CombatEffectDispatcher.LEVEL_MINIMAL) {
+            int maxParticles = level == CombatEffectDispatcher.LEVEL_FULL ? 8 : 4;
+            final int particles = Math.min((int)(range * 2), maxParticles); // 大幅减少粒子数量
+            for (int i = 0; i < particles; i++) {
+                double angle = 2 * Math.PI * i / particles;
+                double x = center.getX() + range * Math.cos(angle);
+                double z = center.getZ() + range * Math.sin(angle);
+                Location particleLocation = new Location(center.getWorld(), x, center.getY(), z);
+                
+                // 使用更简单的烟雾粒子
+                effects.playEffect(particleLocation, Effect.SMOKE, 0);
+            }
         }
         
         // 播放范围伤害音效
-        center.getWorld().playSound(center, Sound.EXPLODE, 0.6f, 1.2f);
+        effects.playSound(center, Sound.EXPLODE, 0.6f, 1.2f);
     }
     
     /**
      * 播放范围伤害传递特效
+     * 精简等级只保留高伤害目标的特效，最低等级不播放
      */
     private void playAoeDamageEffect(Location from, Location to, double damageMultiplier) {
+        CombatEffectDispatcher effects = plugin.getCombatEffectDispatcher();
+        int level = effects.getLevel(to);
+        if (level == CombatEffectDispatcher.LEVEL_MINIMAL) {
+            return;
+        }
+        
         // 简化特效 - 只在目标位置显示一个粒子
         if (damageMultiplier > 0.7) {
             // 高伤害：火焰粒子
-            to.getWorld().playEffect(to, Effect.MOBSPAWNER_FLAMES, 0);
+            effects.playEffect(to, Effect.MOBSPAWNER_FLAMES, 0);
+        } else if (level == CombatEffectDispatcher.LEVEL_REDUCED) {
+            return;
         } else if (damageMultiplier > 0.4) {
             // 中等伤害：烟雾粒子
-            to.getWorld().playEffect(to, Effect.SMOKE, 0);
+            effects.playEffect(to, Effect.SMOKE, 0);
         } else {
             // 低伤害：小爆炸
-            to.getWorld().playEffect(to, Effect.EXPLOSION, 0);
+            effects.playEffect(to, Effect.EXPLOSION, 0);
         }
     }
     
     /**
      * 播放范围伤害结束特效
+     * 按特效等级减少扩散粒子的次数
      */
     private void playAoeEndEffect(Location center, double range, int hitCount) {
+        CombatEffectDispatcher effects = plugin.getCombatEffectDispatcher();
+        int level = effects.getLevel(center);
+        
         // 播放结束音效，音调根据命中数量调整
         float pitch = Math.min(2.0f, 1.0f + (hitCount * 0.1f));
-        center.getWorld().playSound(center, Sound.ORB_PICKUP, 0.8f, pitch);
+        effects.playSound(center, Sound.ORB_PICKUP, 0.8f, pitch);
         
         // 播放额外的粒子效果表示伤害扩散完成
-        for (int i = 0; i < 5; i++) {
+        int bursts = level == CombatEffectDispatcher.LEVEL_FULL ? 5 : level == CombatEffectDispatcher.LEVEL_REDUCED ? 1 : 0;
+        for (int i = 0; i < bursts; i++) {
             plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                center.getWorld().playEffect(center, Effect.ENDER_SIGNAL, 0);
+                plugin.getCombatEffectDispatcher().playEffect(center, Effect.ENDER_SIGNAL, 0);
             }, i * 2L);
         }
     }
-    
-    /**
-     * 应用护甲穿透到伤害减免计算
-     */
-    private double applyDamageReductionWithPenetration(double damage, Map<String, Double> victimAttributes, 
-                                                       Map<String, Double> attackerAttributes) {
-        double armor = victimAttributes.getOrDefault("armor", 0.0);
-        double trueArmor = victimAttributes.getOrDefault("trueArmor", 0.0);
-        double armorPenetration = attackerAttributes.getOrDefault("penetration", 0.0);
-        
-        // 护甲穿透只影响普通护甲，不影响真实抗性
-        double effectiveArmor = Math.max(0, armor - armorPenetration);
-        
-        // 计算伤害减免（护甲穿透后的普通护甲 + 真实抗性）
-        double reduction = (effectiveArmor + trueArmor) / 100.0;
-        reduction = Math.min(reduction, 0.75); // 最大减免75%
-        
-        return damage * (1.0 - reduction);
-    }
 } 
\ No newline at end of file
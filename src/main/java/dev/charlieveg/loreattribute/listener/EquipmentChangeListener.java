@@ -1,6 +1,7 @@
 package dev.charlieveg.loreattribute.listener;
 
 import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.manager.PlayerEquipmentState;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -8,13 +9,10 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryType;
-import org.bukkit.event.player.PlayerItemHeldEvent;
-import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
-import org.bukkit.scheduler.BukkitRunnable;
 
 /**
- * 装备变化监听器 - 实时更新玩家属性
+ * 装备变化监听器 - 检测装备变化并登记到属性更新调度器
  */
 @RequiredArgsConstructor
 public class EquipmentChangeListener implements Listener {
@@ -22,28 +20,12 @@ public class EquipmentChangeListener implements Listener {
     private final LoreAttributePlugin plugin;
     
     /**
-     * 玩家加入游戏时初始化属性
-     */
-    @EventHandler(priority = EventPriority.MONITOR)
-    public void onPlayerJoin(PlayerJoinEvent event) {
-        Player player = event.getPlayer();
-        
-        // 延迟1 tick后更新属性，确保玩家完全加载
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                plugin.getAttributeManager().updatePlayerAttributes(player);
-            }
-        }.runTaskLater(plugin, 1L);
-    }
-    
-    /**
-     * 玩家离开游戏时清理属性缓存
+     * 玩家离开游戏时恢复默认移动速度和生命上限
+     * 属性缓存由 PlayerListener 清理
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
-        plugin.getAttributeManager().clearPlayerAttributes(player);
         
         // 重置玩家移动速度到默认值
         if (player.isOnline()) {
@@ -52,26 +34,6 @@ public class EquipmentChangeListener implements Listener {
         }
     }
     
-    /**
-     * 玩家切换手持物品时更新属性
-     */
-    @EventHandler(priority = EventPriority.MONITOR)
-    public void onPlayerItemHeld(PlayerItemHeldEvent event) {
-        if (event.isCancelled()) {
-            return;
-        }
-        
-        Player player = event.getPlayer();
-        
-        // 延迟1 tick后更新属性
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                plugin.getAttributeManager().updatePlayerAttributes(player);
-            }
-        }.runTaskLater(plugin, 1L);
-    }
-    
     /**
      * 监听背包操作，检测装备变化
      */
@@ -81,22 +43,27 @@ public class EquipmentChangeListener implements Listener {
             return;
         }
         
+        // 检查配置是否启用装备变化更新
+        if (!plugin.getConfigManager().getCompiled().isUpdateOnEquipChange()) {
+            return;
+        }
+        
         Player player = (Player) event.getWhoClicked();
         
         // 检查是否涉及装备栏操作
+        boolean battleOperation = isBattleInventoryOperation(event);
         if (isEquipmentSlot(event.getSlot(), event.getInventory().getType()) ||
             isArmorSlot(event.getSlot()) ||
-            isBattleInventoryOperation(event)) {
+            isArmorShiftClick(event) ||
+            battleOperation) {
             
-            // 延迟2 ticks后更新属性，确保物品移动完成
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (player.isOnline()) {
-                        plugin.getAttributeManager().updatePlayerAttributes(player);
-                    }
-                }
-            }.runTaskLater(plugin, 2L);
+            int slotMask = PlayerEquipmentState.MASK_HAND | PlayerEquipmentState.MASK_ARMOR;
+            if (battleOperation) {
+                slotMask |= PlayerEquipmentState.MASK_BATTLE;
+            }
+            
+            // 下一tick由调度器刷新，确保物品移动完成
+            plugin.getAttributeUpdateScheduler().markDirty(player, slotMask);
         }
     }
     
@@ -104,8 +71,8 @@ public class EquipmentChangeListener implements Listener {
      * 检查是否为装备相关的槽位
      */
     private boolean isEquipmentSlot(int slot, InventoryType type) {
-        if (type == InventoryType.PLAYER) {
-            // 玩家背包中的快捷栏 (0-8)
+        if (type == InventoryType.PLAYER || type == InventoryType.CRAFTING) {
+            // 玩家背包中的快捷栏 (0-8)，其中也包括合成界面下的装备栏 (5-8)
             return slot >= 0 && slot <= 8;
         }
         return false;
@@ -119,6 +86,40 @@ public class EquipmentChangeListener implements Listener {
         return slot >= 36 && slot <= 39;
     }
     
+    /**
+     * 检查是否是shift点击装备（自动穿戴）
+     */
+    private boolean isArmorShiftClick(InventoryClickEvent event) {
+        if (!event.isShiftClick() || event.getCurrentItem() == null) {
+            return false;
+        }
+        switch (event.getCurrentItem().getType()) {
+            case LEATHER_HELMET:
+            case CHAINMAIL_HELMET:
+            case IRON_HELMET:
+            case DIAMOND_HELMET:
+            case GOLD_HELMET:
+            case LEATHER_CHESTPLATE:
+            case CHAINMAIL_CHESTPLATE:
+            case IRON_CHESTPLATE:
+            case DIAMOND_CHESTPLATE:
+            case GOLD_CHESTPLATE:
+            case LEATHER_LEGGINGS:
+            case CHAINMAIL_LEGGINGS:
+            case IRON_LEGGINGS:
+            case DIAMOND_LEGGINGS:
+            case GOLD_LEGGINGS:
+            case LEATHER_BOOTS:
+            case CHAINMAIL_BOOTS:
+            case IRON_BOOTS:
+            case DIAMOND_BOOTS:
+            case GOLD_BOOTS:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
     /**
      * 检查是否为战斗背包操作
      */
@@ -127,25 +128,4 @@ public class EquipmentChangeListener implements Listener {
         String title = event.getInventory().getTitle();
         return title != null && (title.contains("战斗背包") || title.contains("饰品"));
     }
-    
-    /**
-     * 定期更新所有在线玩家的属性（确保同步）
-     */
-    public void startPeriodicUpdate() {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                for (Player player : plugin.getServer().getOnlinePlayers()) {
-                    try {
-                        plugin.getAttributeManager().updatePlayerAttributes(player);
-                    } catch (Exception e) {
-                        // 静默处理异常，避免影响其他玩家
-                        if (plugin.getConfigManager().getBoolean("Debug.Attributes", false)) {
-                            plugin.getLogger().warning("更新玩家 " + player.getName() + " 属性时出错: " + e.getMessage());
-                        }
-                    }
-                }
-            }
-        }.runTaskTimer(plugin, 20L, 20L * 5); // 每5秒更新一次
-    }
 } 
\ No newline at end of file
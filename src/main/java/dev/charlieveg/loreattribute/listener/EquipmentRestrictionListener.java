@@ -1,8 +1,9 @@
 package dev.charlieveg.loreattribute.listener;
 
 import dev.charlieveg.loreattribute.manager.EquipmentRestrictionManager;
+import dev.charlieveg.loreattribute.manager.EquippedTagState;
+import dev.charlieveg.loreattribute.task.RestrictionEnforcer;
 import lombok.RequiredArgsConstructor;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -11,23 +12,23 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerItemBreakEvent;
 import org.bukkit.event.player.PlayerItemHeldEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
-import org.bukkit.scheduler.BukkitRunnable;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 
 /**
  * 装备限制监听器
  * 监听物品切换和装备变化，强制执行装备限制规则
+ * 护甲的限制标签保存在玩家会话中，只在护甲槽位可能变化时标记重新读取；
+ * 点击与右键装备只标记玩家需要检查，由 RestrictionEnforcer 每tick合并处理
  */
 @RequiredArgsConstructor
 public class EquipmentRestrictionListener implements Listener {
     
     private final EquipmentRestrictionManager restrictionManager;
+    private final RestrictionEnforcer restrictionEnforcer;
     
     /**
      * 监听玩家切换手持物品
@@ -43,11 +44,11 @@ public class EquipmentRestrictionListener implements Listener {
         }
         
         // 检查新手持物品是否违反限制
-        if (isItemRestricted(player, newItem)) {
+        if (restrictionManager.isHandItemRestricted(player, newItem)) {
             event.setCancelled(true);
             
             // 尝试切换到允许的物品槽
-            int allowedSlot = findAllowedSlot(player);
+            int allowedSlot = restrictionManager.findAllowedHotbarSlot(player);
             if (allowedSlot != -1) {
                 player.getInventory().setHeldItemSlot(allowedSlot);
                 player.sendMessage("§c该物品违反装备限制规则，已自动切换到允许的物品。");
@@ -80,8 +81,9 @@ public class EquipmentRestrictionListener implements Listener {
         
         Player player = (Player) event.getWhoClicked();
         
-        // 只处理玩家自己的背包
-        if (event.getInventory().getType() != InventoryType.PLAYER) {
+        // 只处理玩家自己的背包（打开自己背包时视图类型为 CRAFTING）
+        InventoryType type = event.getInventory().getType();
+        if (type != InventoryType.PLAYER && type != InventoryType.CRAFTING) {
             return;
         }
         
@@ -90,13 +92,9 @@ public class EquipmentRestrictionListener implements Listener {
             return;
         }
         
-        // 延迟检查，确保物品已经被移动
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                checkAndFixEquipmentViolations(player);
-            }
-        }.runTaskLater(Bukkit.getPluginManager().getPlugin("LoreAttribute"), 1L);
+        // 延迟到执行器统一检查，确保物品已经被移动
+        // 点击、Shift点击、数字键交换都可能改变护甲槽位
+        restrictionEnforcer.requestValidation(player, EquippedTagState.MASK_ALL);
     }
     
     /**
@@ -111,197 +109,61 @@ public class EquipmentRestrictionListener implements Listener {
             return;
         }
         
-        // 延迟检查，确保装备已经被穿戴
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                checkAndFixEquipmentViolations(player);
-            }
-        }.runTaskLater(Bukkit.getPluginManager().getPlugin("LoreAttribute"), 1L);
+        // 延迟到执行器统一检查，确保装备已经被穿戴
+        restrictionEnforcer.requestValidation(player, armorSlotMask(item));
     }
     
     /**
-     * 检查物品是否为护甲
+     * 监听物品损坏事件，损坏的护甲会从槽位中消失
      */
-    private boolean isArmorItem(ItemStack item) {
-        if (item == null) {
-            return false;
-        }
-        
-        Material type = item.getType();
-        return type.name().endsWith("_HELMET") ||
-               type.name().endsWith("_CHESTPLATE") ||
-               type.name().endsWith("_LEGGINGS") ||
-               type.name().endsWith("_BOOTS");
-    }
-    
-    /**
-     * 检查并修复装备违规
-     */
-    private void checkAndFixEquipmentViolations(Player player) {
-        PlayerInventory inventory = player.getInventory();
-        boolean hasViolation = false;
-        
-        // 检查护甲
-        if (isItemRestricted(player, inventory.getHelmet())) {
-            ItemStack helmet = inventory.getHelmet();
-            inventory.setHelmet(null);
-            returnItemToPlayer(player, helmet);
-            player.sendMessage("§c头盔违反装备限制规则，已自动卸下。");
-            hasViolation = true;
-        }
-        
-        if (isItemRestricted(player, inventory.getChestplate())) {
-            ItemStack chestplate = inventory.getChestplate();
-            inventory.setChestplate(null);
-            returnItemToPlayer(player, chestplate);
-            player.sendMessage("§c胸甲违反装备限制规则，已自动卸下。");
-            hasViolation = true;
-        }
-        
-        if (isItemRestricted(player, inventory.getLeggings())) {
-            ItemStack leggings = inventory.getLeggings();
-            inventory.setLeggings(null);
-            returnItemToPlayer(player, leggings);
-            player.sendMessage("§c护腿违反装备限制规则，已自动卸下。");
-            hasViolation = true;
-        }
-        
-        if (isItemRestricted(player, inventory.getBoots())) {
-            ItemStack boots = inventory.getBoots();
-            inventory.setBoots(null);
-            returnItemToPlayer(player, boots);
-            player.sendMessage("§c靴子违反装备限制规则，已自动卸下。");
-            hasViolation = true;
-        }
-        
-        // 检查手持物品
-        if (isItemRestricted(player, inventory.getItemInHand())) {
-            int allowedSlot = findAllowedSlot(player);
-            if (allowedSlot != -1) {
-                inventory.setHeldItemSlot(allowedSlot);
-                player.sendMessage("§c手持物品违反装备限制规则，已自动切换。");
-            } else {
-                // 没有允许的物品，清空手持
-                ItemStack handItem = inventory.getItemInHand();
-                inventory.setItemInHand(new ItemStack(Material.AIR));
-                returnItemToPlayer(player, handItem);
-                player.sendMessage("§c手持物品违反装备限制规则，已卸下。");
-            }
-            hasViolation = true;
-        }
-        
-        if (hasViolation) {
-            player.updateInventory();
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerItemBreak(PlayerItemBreakEvent event) {
+        ItemStack item = event.getBrokenItem();
+        if (isArmorItem(item)) {
+            restrictionManager.markArmorChanged(event.getPlayer(), armorSlotMask(item));
         }
     }
     
     /**
-     * 将物品返回给玩家背包
+     * 监听玩家重生事件，死亡时护甲可能已经掉落
      */
-    private void returnItemToPlayer(Player player, ItemStack item) {
-        if (item == null || item.getType() == Material.AIR) {
-            return;
-        }
-        
-        PlayerInventory inventory = player.getInventory();
-        
-        // 尝试放入背包
-        HashMap<Integer, ItemStack> leftover = inventory.addItem(item);
-        
-        // 如果背包满了，掉落到地上
-        if (!leftover.isEmpty()) {
-            for (ItemStack leftoverItem : leftover.values()) {
-                player.getWorld().dropItemNaturally(player.getLocation(), leftoverItem);
-            }
-            player.sendMessage("§e背包已满，物品已掉落在地上。");
-        }
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        restrictionManager.markArmorChanged(event.getPlayer(), EquippedTagState.MASK_ALL);
     }
     
     /**
-     * 检查物品是否被限制
+     * 检查物品是否为护甲
      */
-    private boolean isItemRestricted(Player player, ItemStack item) {
-        if (item == null || item.getType() == Material.AIR) {
+    private boolean isArmorItem(ItemStack item) {
+        if (item == null) {
             return false;
         }
         
-        List<ItemStack> equippedItems = getEquippedItems(player);
-        return restrictionManager.isRestricted(equippedItems, item);
-    }
-    
-    /**
-     * 获取玩家已装备的所有物品
-     */
-    private List<ItemStack> getEquippedItems(Player player) {
-        List<ItemStack> equippedItems = new ArrayList<>();
-        PlayerInventory inventory = player.getInventory();
-        
-        // 添加护甲
-        if (inventory.getHelmet() != null) {
-            equippedItems.add(inventory.getHelmet());
-        }
-        if (inventory.getChestplate() != null) {
-            equippedItems.add(inventory.getChestplate());
-        }
-        if (inventory.getLeggings() != null) {
-            equippedItems.add(inventory.getLeggings());
-        }
-        if (inventory.getBoots() != null) {
-            equippedItems.add(inventory.getBoots());
-        }
-        
-        // 添加手持物品
-        if (inventory.getItemInHand() != null && inventory.getItemInHand().getType() != Material.AIR) {
-            equippedItems.add(inventory.getItemInHand());
-        }
-        
-        return equippedItems;
-    }
-    
-    /**
-     * 寻找允许的物品槽
-     */
-    private int findAllowedSlot(Player player) {
-        PlayerInventory inventory = player.getInventory();
-        
-        for (int i = 0; i < 9; i++) {
-            ItemStack item = inventory.getItem(i);
-            if (item == null || item.getType() == Material.AIR) {
-                return i; // 空槽是允许的
-            }
-            
-            // 只检查手持物品的限制，不检查背包物品
-            List<ItemStack> equippedItems = getEquippedItemsExcludingHand(player);
-            if (!restrictionManager.isRestricted(equippedItems, item)) {
-                return i; // 找到允许的物品
-            }
-        }
-        
-        return -1; // 没有找到允许的物品槽
+        Material type = item.getType();
+        return type.name().endsWith("_HELMET") ||
+               type.name().endsWith("_CHESTPLATE") ||
+               type.name().endsWith("_LEGGINGS") ||
+               type.name().endsWith("_BOOTS");
     }
     
     /**
-     * 获取已装备物品（不包括手持物品）
+     * 护甲物品对应的槽位掩码，无法判断时返回全部槽位
      */
-    private List<ItemStack> getEquippedItemsExcludingHand(Player player) {
-        List<ItemStack> equippedItems = new ArrayList<>();
-        PlayerInventory inventory = player.getInventory();
-        
-        // 只添加护甲
-        if (inventory.getHelmet() != null) {
-            equippedItems.add(inventory.getHelmet());
+    private int armorSlotMask(ItemStack item) {
+        String name = item.getType().name();
+        if (name.endsWith("_HELMET")) {
+            return 1 << EquippedTagState.SLOT_HELMET;
         }
-        if (inventory.getChestplate() != null) {
-            equippedItems.add(inventory.getChestplate());
+        if (name.endsWith("_CHESTPLATE")) {
+            return 1 << EquippedTagState.SLOT_CHESTPLATE;
         }
-        if (inventory.getLeggings() != null) {
-            equippedItems.add(inventory.getLeggings());
+        if (name.endsWith("_LEGGINGS")) {
+            return 1 << EquippedTagState.SLOT_LEGGINGS;
         }
-        if (inventory.getBoots() != null) {
-            equippedItems.add(inventory.getBoots());
+        if (name.endsWith("_BOOTS")) {
+            return 1 << EquippedTagState.SLOT_BOOTS;
         }
-        
-        return equippedItems;
+        return EquippedTagState.MASK_ALL;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,19 +1,19 @@
 package dev.charlieveg.loreattribute.listener;
 
 import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.manager.PlayerEquipmentState;
+import dev.charlieveg.loreattribute.task.AttributeUpdateScheduler;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.player.PlayerItemHeldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
-import org.bukkit.scheduler.BukkitRunnable;
 
 /**
  * 玩家事件监听器
- * 处理玩家登录、退出、装备变化等事件
+ * 处理玩家登录、退出、切换手持物品等事件
  * 
  * @author charlieveg
  */
@@ -25,6 +25,14 @@ public class PlayerListener implements Listener {
         this.plugin = plugin;
     }
     
+    /**
+     * 玩家加入服务器时创建会话，其他监听器处理加入事件时会话已经可用
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void openSession(PlayerJoinEvent event) {
+        plugin.getSessionRegistry().open(event.getPlayer());
+    }
+    
     /**
      * 玩家加入服务器时初始化属性
      */
@@ -32,13 +40,9 @@ public class PlayerListener implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         
-        // 延迟1tick后计算属性，确保玩家完全加载
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                plugin.getAttributeManager().updatePlayerAttributes(player);
-            }
-        }.runTaskLater(plugin, 1L);
+        // 下一tick由调度器全量计算属性并应用属性效果，确保玩家完全加载
+        plugin.getAttributeUpdateScheduler().markDirty(player,
+            PlayerEquipmentState.MASK_ALL | AttributeUpdateScheduler.FLAG_APPLY_EFFECTS);
     }
     
     /**
@@ -46,13 +50,8 @@ public class PlayerListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent event) {
-        Player player = event.getPlayer();
-        
-        // 清除属性缓存
-        plugin.getAttributeManager().clearPlayerAttributes(player);
-        
-        // 移除战斗背包
-        plugin.getBattleInventoryManager().removeBattleInventory(player);
+        // 关闭会话，一并清理属性缓存、待处理的刷新请求与战斗提示、攻击冷却、战斗背包与lore编辑会话
+        plugin.getSessionRegistry().close(event.getPlayer());
     }
     
     /**
@@ -67,91 +66,9 @@ public class PlayerListener implements Listener {
         Player player = event.getPlayer();
         
         // 检查配置是否启用物品变化更新
-        if (plugin.getConfigManager().getBoolean("AttributeUpdate.UpdateOnItemChange", true)) {
-            // 延迟1tick更新属性，确保物品切换完成
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    plugin.getAttributeManager().updatePlayerAttributes(player);
-                }
-            }.runTaskLater(plugin, 1L);
-        }
-    }
-    
-    /**
-     * 玩家点击背包时检查装备变化
-     */
-    @EventHandler(priority = EventPriority.MONITOR)
-    public void onInventoryClick(InventoryClickEvent event) {
-        if (event.isCancelled() || !(event.getWhoClicked() instanceof Player)) {
-            return;
+        if (plugin.getConfigManager().getCompiled().isUpdateOnItemChange()) {
+            // 下一tick刷新主手槽位，确保物品切换完成
+            plugin.getAttributeUpdateScheduler().markDirty(player, PlayerEquipmentState.MASK_HAND);
         }
-        
-        Player player = (Player) event.getWhoClicked();
-        
-        // 检查是否是装备相关的点击
-        if (isEquipmentRelatedClick(event)) {
-            // 检查配置是否启用装备变化更新
-            if (plugin.getConfigManager().getBoolean("AttributeUpdate.UpdateOnEquipChange", true)) {
-                // 延迟2tick更新属性，确保装备变化完成
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        plugin.getAttributeManager().updatePlayerAttributes(player);
-                    }
-                }.runTaskLater(plugin, 2L);
-            }
-        }
-    }
-    
-    /**
-     * 检查是否是装备相关的点击
-     */
-    private boolean isEquipmentRelatedClick(InventoryClickEvent event) {
-        // 检查点击的槽位是否是装备槽位
-        int slot = event.getSlot();
-        
-        // 装备栏槽位: 5-8 (头盔、胸甲、护腿、靴子)
-        // 主手槽位: 当前选中的槽位
-        if (slot >= 5 && slot <= 8) {
-            return true;
-        }
-        
-        // 检查是否是主手槽位
-        if (event.getInventory().equals(event.getWhoClicked().getInventory())) {
-            Player player = (Player) event.getWhoClicked();
-            if (slot == player.getInventory().getHeldItemSlot()) {
-                return true;
-            }
-        }
-        
-        // 检查是否是shift点击装备（自动穿戴）
-        if (event.isShiftClick() && event.getCurrentItem() != null) {
-            switch (event.getCurrentItem().getType()) {
-                case LEATHER_HELMET:
-                case CHAINMAIL_HELMET:
-                case IRON_HELMET:
-                case DIAMOND_HELMET:
-                case GOLD_HELMET:
-                case LEATHER_CHESTPLATE:
-                case CHAINMAIL_CHESTPLATE:
-                case IRON_CHESTPLATE:
-                case DIAMOND_CHESTPLATE:
-                case GOLD_CHESTPLATE:
-                case LEATHER_LEGGINGS:
-                case CHAINMAIL_LEGGINGS:
-                case IRON_LEGGINGS:
-                case DIAMOND_LEGGINGS:
-                case GOLD_LEGGINGS:
-                case LEATHER_BOOTS:
-                case CHAINMAIL_BOOTS:
-                case IRON_BOOTS:
-                case DIAMOND_BOOTS:
-                case GOLD_BOOTS:
-                    return true;
-            }
-        }
-        
-        return false;
     }
 } 
\ No newline at end of file
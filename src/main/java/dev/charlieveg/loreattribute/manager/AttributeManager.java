@@ -1,18 +1,29 @@
 package dev.charlieveg.loreattribute.manager;
 
-import dev.charlieveg.loreattribute.data.BattleInventory;
-import org.bukkit.ChatColor;
+import dev.charlieveg.loreattribute.data.AttributeKey;
+import dev.charlieveg.loreattribute.data.AttributeSnapshot;
+import dev.charlieveg.loreattribute.data.AttributeVector;
+import dev.charlieveg.loreattribute.data.DerivedCombatProfile;
+import dev.charlieveg.loreattribute.data.ItemDescriptor;
+import dev.charlieveg.loreattribute.util.LoreTextScanner;
+import dev.charlieveg.loreattribute.util.MultiPatternMatcher;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.plugin.Plugin;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 属性管理器
@@ -22,133 +33,264 @@ import java.util.regex.Pattern;
  */
 public class AttributeManager {
     
+    private static final int DEFAULT_PARSER_THREADS = 2;
+    
     private final Object plugin;
     
-    private final Map<UUID, Map<String, Double>> playerAttributes = new ConcurrentHashMap<>();
+    // 玩家会话，保存属性快照（每次重算后整体替换）与各装备槽位的解析结果
+    private final PlayerSessionRegistry sessions;
+    private final AtomicLong snapshotVersions = new AtomicLong();
+    
+    // 属性别名表及其编译后的匹配器，重载时整体替换
+    private volatile Map<String, AttributeKey> attributeKeyMap;
+    private volatile MultiPatternMatcher<AttributeKey> attributeKeyMatcher;
     
-    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile("(.+?): ([+-]?\\d+(?:\\.\\d+)?)");
-    private static final Pattern NUMBER_PATTERN = Pattern.compile("([+-]?\\d+(?:\\.\\d+)?)");
+    private final ItemAttributeCache itemCache;
     
-    private final Map<String, String> attributeKeyMap = new HashMap<>();
+    // lore解析线程池，线程数为0时在主线程解析
+    private volatile ExecutorService parserPool;
+    private final AtomicLong asyncParseJobs = new AtomicLong();
+    private final AtomicLong staleParseResults = new AtomicLong();
     
-    public AttributeManager(Object plugin) {
+    public AttributeManager(Object plugin, PlayerSessionRegistry sessions) {
         this.plugin = plugin;
-        initializeAttributeKeys();
+        this.sessions = sessions;
+        this.itemCache = new ItemAttributeCache(getConfiguredCacheSize());
+        reloadAttributeKeys();
+        this.parserPool = createParserPool(getConfiguredParserThreads());
+    }
+    
+    /**
+     * 重载属性解析相关配置
+     * 重新编译别名匹配器并清空物品属性缓存
+     */
+    public void reload() {
+        reloadAttributeKeys();
+        itemCache.reset(getConfiguredCacheSize());
+        // 槽位记录的是旧规则下的解析结果，下次更新时全量重算
+        sessions.forEach(PlayerSession::resetEquipmentState);
+        
+        ExecutorService oldPool = parserPool;
+        parserPool = createParserPool(getConfiguredParserThreads());
+        if (oldPool != null) {
+            oldPool.shutdown();
+        }
+    }
+    
+    /**
+     * 关闭解析线程池（插件停用时调用）
+     */
+    public void shutdown() {
+        ExecutorService pool = parserPool;
+        parserPool = null;
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+    
+    /**
+     * 读取解析线程数
+     */
+    private int getConfiguredParserThreads() {
+        if (plugin instanceof dev.charlieveg.loreattribute.LoreAttributePlugin) {
+            dev.charlieveg.loreattribute.LoreAttributePlugin lorePlugin = (dev.charlieveg.loreattribute.LoreAttributePlugin) plugin;
+            if (lorePlugin.getConfigManager() != null) {
+                return lorePlugin.getConfigManager().getCompiled().getParserThreads();
+            }
+        }
+        return DEFAULT_PARSER_THREADS;
+    }
+    
+    private static ExecutorService createParserPool(int threads) {
+        if (threads <= 0) {
+            return null;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "LoreAttribute-Parser-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * 提交到解析线程池的任务数
+     */
+    public long getAsyncParseJobs() {
+        return asyncParseJobs.get();
+    }
+    
+    /**
+     * 因玩家装备再次变化而作废的异步解析结果数
+     */
+    public long getStaleParseResults() {
+        return staleParseResults.get();
+    }
+    
+    /**
+     * 是否启用了异步解析（AttributeUpdate.ParserThreads 大于0）
+     */
+    public boolean isAsyncParsingEnabled() {
+        return parserPool != null;
+    }
+    
+    /**
+     * 读取物品属性缓存容量
+     */
+    private int getConfiguredCacheSize() {
+        if (plugin instanceof dev.charlieveg.loreattribute.LoreAttributePlugin) {
+            dev.charlieveg.loreattribute.LoreAttributePlugin lorePlugin = (dev.charlieveg.loreattribute.LoreAttributePlugin) plugin;
+            if (lorePlugin.getConfigManager() != null) {
+                return lorePlugin.getConfigManager().getCompiled().getItemCacheSize();
+            }
+        }
+        return ItemAttributeCache.DEFAULT_MAXIMUM_SIZE;
+    }
+    
+    /**
+     * 获取物品属性缓存
+     */
+    public ItemAttributeCache getItemCache() {
+        return itemCache;
+    }
+    
+    /**
+     * 重新构建属性键映射并编译别名匹配器
+     */
+    private void reloadAttributeKeys() {
+        Map<String, AttributeKey> keyMap = new HashMap<>();
+        initializeAttributeKeys(keyMap);
+        
+        MultiPatternMatcher.Builder<AttributeKey> builder = MultiPatternMatcher.builder();
+        for (Map.Entry<String, AttributeKey> entry : keyMap.entrySet()) {
+            builder.add(entry.getKey(), entry.getValue());
+        }
+        
+        this.attributeKeyMatcher = builder.build();
+        this.attributeKeyMap = keyMap;
     }
     
     /**
      * 初始化属性键映射
      */
-    private void initializeAttributeKeys() {
-        attributeKeyMap.put("攻击伤害", "damage");
-        attributeKeyMap.put("致命几率", "crit");
-        attributeKeyMap.put("致命伤害", "critDamage");
-        attributeKeyMap.put("致命抗性", "critArmor");
-        attributeKeyMap.put("生命恢复", "healthHeal");
-        attributeKeyMap.put("生命值", "health");
-        attributeKeyMap.put("生命偷取", "lifeSteal");
-        attributeKeyMap.put("移动速度", "moveSpeed");
-        attributeKeyMap.put("伤害减免", "armor");
-        attributeKeyMap.put("对怪物造成的额外伤害", "mobDamage");
-        attributeKeyMap.put("对怪物造成的总额外伤害", "sumMobDamage");
-        attributeKeyMap.put("对怪物的伤害免疫", "mobDamageRemove");
-        attributeKeyMap.put("总伤害", "sumDamage");
-        attributeKeyMap.put("招架几率", "critBreaker");
-        attributeKeyMap.put("范围伤害", "aoeDamage");
-        attributeKeyMap.put("范围距离", "aoeRange");
-        attributeKeyMap.put("攻击速度", "attackSpeed");
-        attributeKeyMap.put("真实伤害", "trueDamage");
-        attributeKeyMap.put("护甲穿透", "armorBreak");
-        attributeKeyMap.put("闪避几率", "dodge");
-        attributeKeyMap.put("破闪几率", "dodgeBreaker");
-        attributeKeyMap.put("格挡几率", "block");
-        attributeKeyMap.put("强化重击", "blockBreaker");
-        attributeKeyMap.put("百分比伤害", "finalDamage");
-        attributeKeyMap.put("百分比真实伤害", "finalTrueDamage");
-        attributeKeyMap.put("反伤几率", "injury");
-        attributeKeyMap.put("真实抗性", "trueArmor");
-        attributeKeyMap.put("弱化几率", "weaken");
-        attributeKeyMap.put("百分比生命", "finalHealth");
-        
-        attributeKeyMap.put("攻击伤害".toLowerCase(), "damage");
-        attributeKeyMap.put("致命几率".toLowerCase(), "crit");
-        attributeKeyMap.put("致命伤害".toLowerCase(), "critDamage");
-        attributeKeyMap.put("致命抗性".toLowerCase(), "critArmor");
-        attributeKeyMap.put("生命恢复".toLowerCase(), "healthHeal");
-        attributeKeyMap.put("生命值".toLowerCase(), "health");
-        attributeKeyMap.put("生命偷取".toLowerCase(), "lifeSteal");
-        attributeKeyMap.put("移动速度".toLowerCase(), "moveSpeed");
-        attributeKeyMap.put("伤害减免".toLowerCase(), "armor");
-        attributeKeyMap.put("对怪物造成的额外伤害".toLowerCase(), "mobDamage");
-        attributeKeyMap.put("对怪物造成的总额外伤害".toLowerCase(), "sumMobDamage");
-        attributeKeyMap.put("对怪物的伤害免疫".toLowerCase(), "mobDamageRemove");
-        attributeKeyMap.put("总伤害".toLowerCase(), "sumDamage");
-        attributeKeyMap.put("招架几率".toLowerCase(), "critBreaker");
-        attributeKeyMap.put("范围伤害".toLowerCase(), "aoeDamage");
-        attributeKeyMap.put("范围距离".toLowerCase(), "aoeRange");
-        attributeKeyMap.put("攻击速度".toLowerCase(), "attackSpeed");
-        attributeKeyMap.put("真实伤害".toLowerCase(), "trueDamage");
-        attributeKeyMap.put("护甲穿透".toLowerCase(), "armorBreak");
-        attributeKeyMap.put("闪避几率".toLowerCase(), "dodge");
-        attributeKeyMap.put("破闪几率".toLowerCase(), "dodgeBreaker");
-        attributeKeyMap.put("格挡几率".toLowerCase(), "block");
-        attributeKeyMap.put("强化重击".toLowerCase(), "blockBreaker");
-        attributeKeyMap.put("百分比伤害".toLowerCase(), "finalDamage");
-        attributeKeyMap.put("百分比真实伤害".toLowerCase(), "finalTrueDamage");
-        attributeKeyMap.put("反伤几率".toLowerCase(), "injury");
-        attributeKeyMap.put("真实抗性".toLowerCase(), "trueArmor");
-        attributeKeyMap.put("弱化几率".toLowerCase(), "weaken");
-        attributeKeyMap.put("百分比生命".toLowerCase(), "finalHealth");
-        
-        attributeKeyMap.put("damage", "damage");
-        attributeKeyMap.put("crit", "crit");
-        attributeKeyMap.put("critdamage", "critDamage");
-        attributeKeyMap.put("attackspeed", "attackSpeed");
+    private void initializeAttributeKeys(Map<String, AttributeKey> attributeKeyMap) {
+        for (AttributeKey key : AttributeKey.values()) {
+            attributeKeyMap.put(key.getDisplayName(), key);
+        }
+        
+        attributeKeyMap.put("damage", AttributeKey.DAMAGE);
+        attributeKeyMap.put("crit", AttributeKey.CRIT);
+        attributeKeyMap.put("critdamage", AttributeKey.CRIT_DAMAGE);
+        attributeKeyMap.put("attackspeed", AttributeKey.ATTACK_SPEED);
     }
     
     /**
      * 从物品lore中解析属性
      */
     public Map<String, Double> parseItemAttributes(ItemStack item) {
-        Map<String, Double> attributes = new HashMap<>();
-        
+        return parseItemAttributeVector(item).toMap();
+    }
+    
+    /**
+     * 从物品lore中解析属性向量
+     * 返回的向量与缓存共享，只能读取
+     */
+    public AttributeVector parseItemAttributeVector(ItemStack item) {
+        return describeItem(item).getAttributes();
+    }
+    
+    /**
+     * 获取物品描述（类型、属性、去色lore、战斗背包栏位等），优先从缓存读取
+     * 每个物品只读取一次 ItemMeta，需要物品信息时应优先使用此方法
+     * 
+     * @return 物品描述，物品没有lore时返回 ItemDescriptor.EMPTY
+     */
+    public ItemDescriptor describeItem(ItemStack item) {
+        List<String> lore = readLore(item);
+        if (lore == null) {
+            return ItemDescriptor.EMPTY;
+        }
+        return resolveLore(lore, ItemAttributeCache.fingerprint(lore));
+    }
+    
+    /**
+     * 读取物品lore，没有lore时返回null
+     * getItemMeta() 与 getLore() 都会复制数据，每个物品只应调用一次
+     */
+    private List<String> readLore(ItemStack item) {
         if (item == null || !item.hasItemMeta()) {
-            return attributes;
+            return null;
         }
-
+        
         ItemMeta meta = item.getItemMeta();
-        if (meta.hasLore()) {
-            List<String> lore = meta.getLore();
+        if (!meta.hasLore()) {
+            return null;
+        }
+        return meta.getLore();
+    }
+    
+    /**
+     * 按lore指纹查询缓存，未命中时解析并写入缓存
+     */
+    private ItemDescriptor resolveLore(List<String> lore, long fingerprint) {
+        ItemDescriptor cached = itemCache.get(fingerprint, lore);
+        if (cached == null) {
+            cached = parseLore(lore);
+            itemCache.put(fingerprint, cached);
+        }
+        return cached;
+    }
+    
+    /**
+     * 解析主线程查询时未命中的lore（工作线程调用）
+     * 这次未命中已经在主线程统计过，再次查询缓存不计数；排队期间其他任务已解析过同一lore时直接复用
+     */
+    private ItemDescriptor resolveMissedLore(List<String> lore, long fingerprint) {
+        ItemDescriptor cached = itemCache.peek(fingerprint, lore);
+        if (cached == null) {
+            cached = parseLore(lore);
+            itemCache.put(fingerprint, cached);
+        }
+        return cached;
+    }
+    
+    /**
+     * 一次遍历lore，同时解析物品类型、属性与战斗背包栏位
+     */
+    private ItemDescriptor parseLore(List<String> lore) {
+        AttributeVector attributes = new AttributeVector();
+        List<String> cleanLore = new ArrayList<>(lore.size());
+        String type = null;
+        int battleSlotMask = 0;
+        
+        for (String line : lore) {
+            // 移除颜色代码
+            String cleanLine = LoreTextScanner.stripColorAndTrim(line);
+            cleanLore.add(cleanLine);
             
-            for (String line : lore) {
-                // 移除颜色代码
-                String cleanLine = ChatColor.stripColor(line).trim();
-                
-                // 解析属性行
-                parseAttributeLine(cleanLine, attributes);
+            if (type == null && cleanLine.startsWith("类型: ")) {
+                type = cleanLine.substring(4).trim();
             }
+            
+            battleSlotMask |= BattleInventoryManager.getCoreSlotMask(cleanLine);
+            
+            // 解析属性行
+            parseAttributeLine(cleanLine, attributes);
         }
         
-        return attributes;
+        return new ItemDescriptor(lore, cleanLore, type == null ? "" : type, attributes, battleSlotMask);
     }
     
     /**
      * 解析单行属性
      */
-    private void parseAttributeLine(String line, Map<String, Double> attributes) {
-        Matcher matcher = ATTRIBUTE_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String attributeName = matcher.group(1).trim();
-            String valueStr = matcher.group(2).trim();
-            
-            try {
-                double value = Double.parseDouble(valueStr);
-                String key = getAttributeKey(attributeName);
-                if (key != null) {
-                    attributes.put(key, attributes.getOrDefault(key, 0.0) + value);
-                }
-            } catch (NumberFormatException e) {
-                // 忽略无法解析的数值
+    private void parseAttributeLine(String line, AttributeVector attributes) {
+        int separator = LoreTextScanner.findAttributeSeparator(line);
+        if (separator >= 0) {
+            String attributeName = line.substring(0, separator).trim();
+            AttributeKey key = getAttributeKey(attributeName);
+            if (key != null) {
+                attributes.add(key, LoreTextScanner.parseNumber(line, separator + 2));
             }
         } else {
             parseAlternativeFormat(line, attributes);
@@ -157,32 +299,25 @@ public class AttributeManager {
     
     /**
      * 解析其他格式的属性行
+     * 通过编译好的匹配器一次扫描找出行内最长的属性别名
      */
-    private void parseAlternativeFormat(String line, Map<String, Double> attributes) {
-        for (String attributeName : attributeKeyMap.keySet()) {
-            if (line.contains(attributeName)) {
-                Matcher numberMatcher = NUMBER_PATTERN.matcher(line);
-                if (numberMatcher.find()) {
-                    try {
-                        double value = Double.parseDouble(numberMatcher.group(1));
-                        String key = getAttributeKey(attributeName);
-                        if (key != null) {
-                            attributes.put(key, attributes.getOrDefault(key, 0.0) + value);
-                        }
-                    } catch (NumberFormatException e) {
-                        // 忽略无法解析的数值
-                    }
-                }
-                break;
-            }
+    private void parseAlternativeFormat(String line, AttributeVector attributes) {
+        AttributeKey key = attributeKeyMatcher.findLongest(line);
+        if (key == null) {
+            return;
+        }
+        
+        int numberStart = LoreTextScanner.findNumberStart(line, 0);
+        if (numberStart >= 0) {
+            attributes.add(key, LoreTextScanner.parseNumber(line, numberStart));
         }
     }
     
     /**
      * 获取属性键
      */
-    private String getAttributeKey(String attributeName) {
-        String key = attributeKeyMap.get(attributeName);
+    private AttributeKey getAttributeKey(String attributeName) {
+        AttributeKey key = attributeKeyMap.get(attributeName);
         if (key != null) {
             return key;
         }
@@ -192,103 +327,300 @@ public class AttributeManager {
     /**
      * 计算玩家总属性（严格按照类型限制）
      */
-    public Map<String, Double> calculatePlayerAttributes(Player player) {
-        Map<String, Double> totalAttributes = new HashMap<>();
+    public AttributeVector calculatePlayerAttributes(Player player) {
+        return updatePlayerSlots(player, PlayerEquipmentState.MASK_ALL);
+    }
+    
+    /**
+     * 增量更新玩家属性，只重新读取掩码中的槽位
+     * 槽位物品未变化时不会重新解析，变化的槽位用新贡献替换旧贡献
+     * 缓存未命中的物品在当前线程解析，需要立即得到结果时使用
+     * 
+     * @param slotMask PlayerEquipmentState 中的槽位掩码
+     * @return 更新后的玩家属性，玩家没有会话（不在线）时返回空向量
+     */
+    public AttributeVector updatePlayerSlots(Player player, int slotMask) {
+        PlayerSession session = sessions.get(player);
+        if (session == null) {
+            return AttributeVector.EMPTY;
+        }
+        PlayerEquipmentState state = session.getOrCreateEquipmentState();
+        
+        // 首次计算必须读取全部槽位
+        if (!state.isInitialized()) {
+            slotMask = PlayerEquipmentState.MASK_ALL;
+        }
+        
+        // 同步更新会覆盖尚未返回的异步解析结果
+        state.nextGeneration();
+        
+        ItemStack[] items = readSlotItems(player, slotMask);
+        boolean changed = false;
+        for (int slot = 0; slot < PlayerEquipmentState.SLOT_COUNT; slot++) {
+            if ((slotMask & (1 << slot)) != 0) {
+                changed |= refreshSlot(state, slot, items[slot]);
+            }
+        }
+        
+        return publish(player, session, state, changed, slotMask == PlayerEquipmentState.MASK_ALL);
+    }
+    
+    /**
+     * 增量更新玩家属性，缓存未命中的物品交给解析线程池处理
+     * 
+     * 主线程读取lore快照并直接应用缓存命中的槽位；未命中的lore在工作线程解析，
+     * 解析完成后回到主线程应用槽位、发布属性并设置生命值和移动速度。
+     * 期间若玩家又发生了其他更新，旧结果按代数判定为过期，相应槽位重新提交。
+     * 必须在主线程调用。玩家没有会话（不在线）时不做任何事，回调也不会执行。
+     * 
+     * @param slotMask    PlayerEquipmentState 中的槽位掩码
+     * @param onPublished 属性发布后在主线程执行的回调，可为null
+     */
+    public void updatePlayerSlotsAsync(Player player, int slotMask, Runnable onPublished) {
+        PlayerSession session = sessions.get(player);
+        if (session == null) {
+            return;
+        }
+        
+        ExecutorService pool = parserPool;
+        if (pool == null || !(plugin instanceof Plugin)) {
+            updatePlayerSlots(player, slotMask);
+            runCallback(onPublished);
+            return;
+        }
         
-        ItemStack mainHand = player.getInventory().getItemInHand();
-        if (mainHand != null && isWeaponType(mainHand)) {
-            Map<String, Double> weaponAttrs = parseItemAttributesWithTypeCheck(mainHand, "武器");
-            mergeAttributes(totalAttributes, weaponAttrs);
+        PlayerEquipmentState state = session.getOrCreateEquipmentState();
+        if (!state.isInitialized()) {
+            slotMask = PlayerEquipmentState.MASK_ALL;
         }
+        final boolean fullUpdate = slotMask == PlayerEquipmentState.MASK_ALL;
+        final int generation = state.nextGeneration();
+        
+        ItemStack[] items = readSlotItems(player, slotMask);
+        boolean changed = false;
+        List<PendingSlot> misses = null;
         
-        ItemStack[] equipment = player.getInventory().getArmorContents();
-        for (ItemStack armor : equipment) {
-            if (armor != null && isArmorType(armor)) {
-                Map<String, Double> armorAttrs = parseItemAttributesWithTypeCheck(armor, "防具");
-                mergeAttributes(totalAttributes, armorAttrs);
+        for (int slot = 0; slot < PlayerEquipmentState.SLOT_COUNT; slot++) {
+            if ((slotMask & (1 << slot)) == 0) {
+                continue;
+            }
+            // getLore() 返回的是副本，可以安全地交给工作线程
+            List<String> lore = readLore(items[slot]);
+            long fingerprint = lore != null ? ItemAttributeCache.fingerprint(lore) : 0L;
+            if (state.isSameItem(slot, fingerprint, lore)) {
+                continue;
+            }
+            
+            ItemDescriptor cached = lore != null ? itemCache.get(fingerprint, lore) : null;
+            if (lore == null || cached != null) {
+                applySlot(state, slot, fingerprint, cached);
+                changed = true;
+            } else {
+                if (misses == null) {
+                    misses = new ArrayList<>();
+                }
+                misses.add(new PendingSlot(slot, fingerprint, lore));
             }
         }
         
+        if (misses == null) {
+            publish(player, session, state, changed, fullUpdate);
+            runCallback(onPublished);
+            return;
+        }
+        
+        // 缓存命中的槽位先行发布，未命中的槽位等待解析结果
+        if (changed) {
+            publish(player, session, state, true, false);
+        }
+        
+        final List<PendingSlot> pending = misses;
         try {
-            if (plugin instanceof dev.charlieveg.loreattribute.LoreAttributePlugin) {
-                dev.charlieveg.loreattribute.LoreAttributePlugin lorePlugin = (dev.charlieveg.loreattribute.LoreAttributePlugin) plugin;
-                
-                ItemStack[] battleItems = lorePlugin.getBattleInventoryManager().getAllBattleItems(player);
-                if (battleItems != null) {
-                    for (ItemStack battleItem : battleItems) {
-                        if (battleItem != null && isAccessoryType(battleItem)) {
-                            Map<String, Double> accessoryAttrs = parseItemAttributesWithTypeCheck(battleItem, "饰品");
-                            mergeAttributes(totalAttributes, accessoryAttrs);
-                        }
-                    }
+            pool.execute(() -> {
+                ItemDescriptor[] parsed = new ItemDescriptor[pending.size()];
+                for (int i = 0; i < parsed.length; i++) {
+                    PendingSlot slot = pending.get(i);
+                    parsed[i] = resolveMissedLore(slot.lore, slot.fingerprint);
                 }
+                try {
+                    Bukkit.getScheduler().runTask((Plugin) plugin,
+                        () -> completeAsync(session, state, generation, pending, parsed, fullUpdate, onPublished));
+                } catch (IllegalPluginAccessException e) {
+                    // 插件已停用，结果直接丢弃
+                }
+            });
+            asyncParseJobs.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            // 线程池已关闭（重载中），退回主线程解析
+            updatePlayerSlots(player, slotMask);
+            runCallback(onPublished);
+        }
+    }
+    
+    /**
+     * 在主线程应用异步解析结果
+     */
+    private void completeAsync(PlayerSession session, PlayerEquipmentState state, int generation,
+                               List<PendingSlot> pending, ItemDescriptor[] parsed,
+                               boolean fullUpdate, Runnable onPublished) {
+        // 玩家已退出或状态已被重置（重载），结果作废
+        if (session.isClosed() || session.getEquipmentState() != state) {
+            return;
+        }
+        Player player = Bukkit.getPlayer(session.getPlayerId());
+        if (player == null || !player.isOnline()) {
+            return;
+        }
+        
+        if (state.getGeneration() != generation) {
+            // 期间发生过其他更新，槽位内容可能已经变化，重新读取这些槽位
+            // 解析结果已写入缓存，重新提交通常会直接命中
+            staleParseResults.incrementAndGet();
+            int slotMask = 0;
+            for (PendingSlot slot : pending) {
+                slotMask |= 1 << slot.slot;
             }
-        } catch (Exception e) {
-            // 静默处理异常，战斗背包可能不存在
+            updatePlayerSlotsAsync(player, slotMask, onPublished);
+            return;
         }
         
-        playerAttributes.put(player.getUniqueId(), totalAttributes);
-        applySpecialAttributes(player, totalAttributes);
+        for (int i = 0; i < parsed.length; i++) {
+            PendingSlot slot = pending.get(i);
+            applySlot(state, slot.slot, slot.fingerprint, parsed[i]);
+        }
+        publish(player, session, state, true, fullUpdate);
+        runCallback(onPublished);
+    }
+    
+    /**
+     * 发布玩家属性并应用生命值、移动速度等效果
+     * 
+     * @param fullUpdate 是否读取了全部槽位，是则重新求和消除累积误差
+     */
+    private AttributeVector publish(Player player, PlayerSession session, PlayerEquipmentState state,
+                                    boolean changed, boolean fullUpdate) {
+        // 全量计算时重新求和，避免增量更新累积误差
+        if (fullUpdate) {
+            state.resync();
+        }
         
-        return totalAttributes;
+        AttributeSnapshot snapshot = session.getSnapshot();
+        if (changed || snapshot.getVersion() == 0L || !state.isInitialized()) {
+            snapshot = new AttributeSnapshot(snapshotVersions.incrementAndGet(), state.getTotal().copy());
+            session.setSnapshot(snapshot);
+            state.markInitialized();
+        }
+        
+        applySpecialAttributes(player, snapshot.getAttributes());
+        
+        return snapshot.getAttributes();
+    }
+    
+    private void runCallback(Runnable callback) {
+        if (callback != null) {
+            callback.run();
+        }
     }
     
     /**
-     * 检查是否为武器类型
+     * 读取掩码中各槽位的物品，下标为槽位编号
      */
-    private boolean isWeaponType(ItemStack item) {
-        return getItemType(item).equals("武器");
+    private ItemStack[] readSlotItems(Player player, int slotMask) {
+        ItemStack[] items = new ItemStack[PlayerEquipmentState.SLOT_COUNT];
+        
+        if ((slotMask & PlayerEquipmentState.MASK_HAND) != 0) {
+            items[PlayerEquipmentState.SLOT_HAND] = player.getInventory().getItemInHand();
+        }
+        
+        if ((slotMask & PlayerEquipmentState.MASK_ARMOR) != 0) {
+            ItemStack[] equipment = player.getInventory().getArmorContents();
+            for (int i = 0; i < PlayerEquipmentState.ARMOR_SLOT_COUNT; i++) {
+                items[PlayerEquipmentState.SLOT_ARMOR_START + i] = equipment != null && i < equipment.length ? equipment[i] : null;
+            }
+        }
+        
+        if ((slotMask & PlayerEquipmentState.MASK_BATTLE) != 0) {
+            ItemStack[] battleItems = getBattleItems(player);
+            for (int i = 0; i < PlayerEquipmentState.BATTLE_SLOT_COUNT; i++) {
+                items[PlayerEquipmentState.SLOT_BATTLE_START + i] = battleItems != null && i < battleItems.length ? battleItems[i] : null;
+            }
+        }
+        
+        return items;
     }
     
     /**
-     * 检查是否为防具类型
+     * 刷新单个槽位
+     * 
+     * @return 槽位物品是否发生变化
      */
-    private boolean isArmorType(ItemStack item) {
-        return getItemType(item).equals("防具");
+    private boolean refreshSlot(PlayerEquipmentState state, int slot, ItemStack item) {
+        List<String> lore = readLore(item);
+        long fingerprint = lore != null ? ItemAttributeCache.fingerprint(lore) : 0L;
+        if (state.isSameItem(slot, fingerprint, lore)) {
+            return false;
+        }
+        
+        ItemDescriptor cached = lore != null ? resolveLore(lore, fingerprint) : null;
+        applySlot(state, slot, fingerprint, cached);
+        return true;
     }
     
     /**
-     * 检查是否为饰品类型
+     * 用解析结果替换槽位内容，类型与槽位不匹配的物品不提供属性
      */
-    private boolean isAccessoryType(ItemStack item) {
-        return getItemType(item).equals("饰品");
+    private void applySlot(PlayerEquipmentState state, int slot, long fingerprint, ItemDescriptor cached) {
+        AttributeVector contribution = cached != null && cached.getType().equals(getExpectedType(slot))
+            ? cached.getAttributes() : AttributeVector.EMPTY;
+        state.replaceSlot(slot, fingerprint, cached, contribution);
     }
     
     /**
-     * 获取物品类型
+     * 槽位要求的物品类型：主手为武器，护甲栏为防具，战斗背包为饰品
      */
-    private String getItemType(ItemStack item) {
-        if (item == null || !item.hasItemMeta() || !item.getItemMeta().hasLore()) {
-            return "";
+    private static String getExpectedType(int slot) {
+        if (slot == PlayerEquipmentState.SLOT_HAND) {
+            return "武器";
         }
+        return slot < PlayerEquipmentState.SLOT_BATTLE_START ? "防具" : "饰品";
+    }
+    
+    /**
+     * 等待异步解析的槽位
+     */
+    private static final class PendingSlot {
+        private final int slot;
+        private final long fingerprint;
+        private final List<String> lore;
         
-        List<String> lore = item.getItemMeta().getLore();
-        for (String line : lore) {
-            String cleanLine = org.bukkit.ChatColor.stripColor(line).trim();
-            if (cleanLine.startsWith("类型: ")) {
-                return cleanLine.substring(4).trim();
-            }
+        private PendingSlot(int slot, long fingerprint, List<String> lore) {
+            this.slot = slot;
+            this.fingerprint = fingerprint;
+            this.lore = lore;
         }
-        return "";
     }
     
     /**
-     * 解析物品属性并进行类型检查
+     * 获取玩家战斗背包中的物品
      */
-    private Map<String, Double> parseItemAttributesWithTypeCheck(ItemStack item, String expectedType) {
-        String itemType = getItemType(item);
-        if (!itemType.equals(expectedType)) {
-            return new HashMap<>(); // 类型不匹配，返回空属性
+    private ItemStack[] getBattleItems(Player player) {
+        try {
+            if (plugin instanceof dev.charlieveg.loreattribute.LoreAttributePlugin) {
+                dev.charlieveg.loreattribute.LoreAttributePlugin lorePlugin = (dev.charlieveg.loreattribute.LoreAttributePlugin) plugin;
+                return lorePlugin.getBattleInventoryManager().getAllBattleItems(player);
+            }
+        } catch (Exception e) {
+            // 静默处理异常，战斗背包可能不存在
         }
-        return parseItemAttributes(item);
+        return null;
     }
     
     /**
      * 应用特殊属性效果（如移动速度）
      */
-    private void applySpecialAttributes(Player player, Map<String, Double> attributes) {
+    private void applySpecialAttributes(Player player, AttributeVector attributes) {
         // 应用移动速度
-        double speed = attributes.getOrDefault("speed", 0.0);
+        double speed = attributes.get(AttributeKey.MOVE_SPEED);
         float baseSpeed = 0.2f; // 默认玩家移动速度
         float newSpeed = (float) (baseSpeed + (speed / 100.0 * baseSpeed));
         newSpeed = Math.max(0.0f, Math.min(1.0f, newSpeed)); // 限制在0-1之间
@@ -298,7 +630,7 @@ public class AttributeManager {
         }
         
         // 应用生命值上限
-        double health = attributes.getOrDefault("health", 0.0);
+        double health = attributes.get(AttributeKey.HEALTH);
         if (health > 0) {
             double baseHealth = 20.0; // 基础生命值
             double newMaxHealth = baseHealth + health;
@@ -311,42 +643,56 @@ public class AttributeManager {
             }
         }
         
-        // 应用生命恢复
-        double regen = attributes.getOrDefault("regen", 0.0);
-        if (regen > 0) {
-            // 通过定时任务处理生命恢复，这里只是标记
-            // 生命恢复会由其他系统处理，这里只是计算属性值
-        }
+        // 生命恢复由 AttributeEffectListener 通过药水效果处理
     }
     
     /**
-     * 合并属性映射
+     * 获取玩家当前的属性快照，可在任意线程调用
+     * 没有计算过属性时返回 AttributeSnapshot.EMPTY
      */
-    private void mergeAttributes(Map<String, Double> target, Map<String, Double> source) {
-        for (Map.Entry<String, Double> entry : source.entrySet()) {
-            String key = entry.getKey();
-            double value = entry.getValue();
-            target.put(key, target.getOrDefault(key, 0.0) + value);
-        }
+    public AttributeSnapshot getPlayerSnapshot(Player player) {
+        PlayerSession session = sessions.get(player);
+        return session != null ? session.getSnapshot() : AttributeSnapshot.EMPTY;
+    }
+    
+    public AttributeSnapshot getPlayerSnapshot(UUID playerId) {
+        PlayerSession session = sessions.get(playerId);
+        return session != null ? session.getSnapshot() : AttributeSnapshot.EMPTY;
     }
     
     /**
-     * 获取玩家缓存的属性
+     * 获取玩家缓存的属性向量
+     * 返回的向量只能读取，没有缓存时返回空向量
+     */
+    public AttributeVector getPlayerAttributeVector(Player player) {
+        return getPlayerSnapshot(player).getAttributes();
+    }
+    
+    /**
+     * 获取玩家的派生战斗数值（暴击倍率、伤害减免、攻击间隔等）
+     * 随属性快照一起计算，没有缓存时返回 DerivedCombatProfile.EMPTY
+     */
+    public DerivedCombatProfile getCombatProfile(Player player) {
+        return getPlayerSnapshot(player).getCombatProfile();
+    }
+    
+    /**
+     * 获取玩家缓存的属性（映射表形式，兼容旧接口）
+     * 返回的映射表不可修改，同一快照多次调用返回同一个对象
      */
     public Map<String, Double> getCachedPlayerAttributes(Player player) {
-        return playerAttributes.getOrDefault(player.getUniqueId(), new HashMap<>());
+        return getPlayerSnapshot(player).toMap();
     }
     
     /**
      * 获取玩家指定属性值
      */
     public double getPlayerAttribute(Player player, String attributeName) {
-        Map<String, Double> attributes = getCachedPlayerAttributes(player);
-        String key = getAttributeKey(attributeName);
-        if (key != null) {
-            return attributes.getOrDefault(key, 0.0);
+        AttributeKey key = getAttributeKey(attributeName);
+        if (key == null) {
+            key = AttributeKey.fromName(attributeName);
         }
-        return attributes.getOrDefault(attributeName, 0.0);
+        return key != null ? getPlayerAttributeVector(player).get(key) : 0.0;
     }
     
     /**
@@ -377,7 +723,10 @@ public class AttributeManager {
      * 清除玩家属性缓存
      */
     public void clearPlayerAttributes(Player player) {
-        playerAttributes.remove(player.getUniqueId());
+        PlayerSession session = sessions.get(player);
+        if (session != null) {
+            session.clearAttributes();
+        }
     }
     
     /**
@@ -391,7 +740,14 @@ public class AttributeManager {
      * 获取所有缓存的玩家属性
      */
     public Map<UUID, Map<String, Double>> getAllPlayerAttributes() {
-        return new HashMap<>(playerAttributes);
+        Map<UUID, Map<String, Double>> result = new HashMap<>();
+        sessions.forEach(session -> {
+            AttributeSnapshot snapshot = session.getSnapshot();
+            if (snapshot.getVersion() != 0L) {
+                result.put(session.getPlayerId(), snapshot.toMap());
+            }
+        });
+        return result;
     }
     
     /**
@@ -399,18 +755,14 @@ public class AttributeManager {
      */
     public boolean isValidAttributeName(String attributeName) {
         return attributeKeyMap.containsKey(attributeName.toLowerCase()) ||
-               attributeKeyMap.containsValue(attributeName.toLowerCase());
+               AttributeKey.fromName(attributeName) != null;
     }
     
     /**
      * 获取属性显示名称
      */
     public String getAttributeDisplayName(String attributeKey) {
-        for (Map.Entry<String, String> entry : attributeKeyMap.entrySet()) {
-            if (entry.getValue().equals(attributeKey)) {
-                return entry.getKey();
-            }
-        }
-        return attributeKey;
+        AttributeKey key = AttributeKey.fromName(attributeKey);
+        return key != null ? key.getDisplayName() : attributeKey;
     }
-} 
\ No newline at end of file
+} 
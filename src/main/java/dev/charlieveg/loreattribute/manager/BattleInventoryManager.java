@@ -1,5 +1,6 @@
 package dev.charlieveg.loreattribute.manager;
 
+import dev.charlieveg.loreattribute.data.ItemDescriptor;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
@@ -11,9 +12,6 @@ import org.bukkit.inventory.meta.ItemMeta;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 战斗背包管理器
@@ -25,18 +23,29 @@ public class BattleInventoryManager {
     
     private final Object plugin;
     
-    private final Map<UUID, Inventory> battleInventories = new ConcurrentHashMap<>();
+    // 战斗背包保存在玩家会话中，玩家退出时随会话清理
+    private final PlayerSessionRegistry sessions;
     
     public static final int[] BATTLE_SLOTS = {11, 12, 13, 14, 15};
     
+    // 各栏位要求物品lore中包含的核心标识（已去除颜色代码）
+    private static final String[] CORE_LORES = {
+        "战斗背包①号栏核心",
+        "战斗背包②号栏核心",
+        "战斗背包③号栏核心",
+        "战斗背包④号栏核心",
+        "战斗背包⑤号栏核心"
+    };
+    
     private String inventoryTitle = "战斗背包";
     private String inventoryItemName = "&c战斗背包";
     private List<String> inventoryItemLore;
     private String invalidSlotMessage = "&c该位置不能放入此物品，请放入正确位置！";
     private String shiftClickMessage = "&c禁止在战斗背包界面使用Shift键与键盘按键快捷拖动物品！";
     
-    public BattleInventoryManager(Object plugin) {
+    public BattleInventoryManager(Object plugin, PlayerSessionRegistry sessions) {
         this.plugin = plugin;
+        this.sessions = sessions;
         initializeDefaultConfig();
     }
     
@@ -76,16 +85,20 @@ public class BattleInventoryManager {
     
     /**
      * 获取玩家的战斗背包
+     * 玩家没有会话（不在线）时返回一个不保存的空背包，对它的修改会被丢弃
      */
     public Inventory getBattleInventory(Player player) {
-        UUID playerId = player.getUniqueId();
-        
-        return battleInventories.computeIfAbsent(playerId, k -> {
-            Inventory inv = Bukkit.createInventory(null, 27, 
+        PlayerSession session = sessions.get(player);
+        Inventory inv = session != null ? session.getBattleInventory() : null;
+        if (inv == null) {
+            inv = Bukkit.createInventory(null, 27, 
                 ChatColor.translateAlternateColorCodes('&', inventoryTitle));
             initializeBattleInventory(inv);
-            return inv;
-        });
+            if (session != null) {
+                session.setBattleInventory(inv);
+            }
+        }
+        return inv;
     }
     
     /**
@@ -210,39 +223,43 @@ public class BattleInventoryManager {
             return false;
         }
         
-        if (!item.hasItemMeta() || !item.getItemMeta().hasLore()) {
+        if (!(plugin instanceof dev.charlieveg.loreattribute.LoreAttributePlugin)) {
             return false;
         }
         
-        List<String> lore = item.getItemMeta().getLore();
-        String requiredLore = getRequiredLoreForSlot(slot);
-        
-        for (String line : lore) {
-            if (line == null) {
-                continue;
-            }
-            String cleanLine = ChatColor.stripColor(line);
-            String cleanRequired = ChatColor.stripColor(ChatColor.translateAlternateColorCodes('&', requiredLore));
-            if (cleanLine != null && cleanRequired != null && cleanLine.contains(cleanRequired)) {
-                return true;
+        ItemDescriptor descriptor = ((dev.charlieveg.loreattribute.LoreAttributePlugin) plugin)
+            .getAttributeManager().describeItem(item);
+        return descriptor.canPlaceInBattleSlot(getBattleSlotIndex(slot));
+    }
+    
+    /**
+     * 获取战斗物品槽对应的栏位下标（0-4），不是战斗物品槽时返回-1
+     */
+    public static int getBattleSlotIndex(int slot) {
+        for (int i = 0; i < BATTLE_SLOTS.length; i++) {
+            if (BATTLE_SLOTS[i] == slot) {
+                return i;
             }
         }
-        
-        return false;
+        return -1;
     }
     
     /**
-     * 获取指定槽位需要的lore
+     * 计算一行去色lore声明的战斗背包栏位
+     * 
+     * @return 栏位掩码，第 n 位对应第 n+1 号栏
      */
-    private String getRequiredLoreForSlot(int slot) {
-        switch (slot) {
-            case 11: return "&e战斗背包&9①&e号栏核心";
-            case 12: return "&e战斗背包&9②&e号栏核心";
-            case 13: return "&e战斗背包&9③&e号栏核心";
-            case 14: return "&e战斗背包&9④&e号栏核心";
-            case 15: return "&e战斗背包&c⑤&e号栏核心";
-            default: return "";
+    public static int getCoreSlotMask(String cleanLine) {
+        if (cleanLine.indexOf("号栏核心") < 0) {
+            return 0;
+        }
+        int mask = 0;
+        for (int i = 0; i < CORE_LORES.length; i++) {
+            if (cleanLine.contains(CORE_LORES[i])) {
+                mask |= 1 << i;
+            }
         }
+        return mask;
     }
     
     /**
@@ -257,14 +274,18 @@ public class BattleInventoryManager {
      * 移除玩家战斗背包
      */
     public void removeBattleInventory(Player player) {
-        battleInventories.remove(player.getUniqueId());
+        PlayerSession session = sessions.get(player);
+        if (session != null) {
+            session.setBattleInventory(null);
+        }
     }
     
     /**
      * 检查玩家是否有战斗背包
      */
     public boolean hasBattleInventory(Player player) {
-        return battleInventories.containsKey(player.getUniqueId());
+        PlayerSession session = sessions.get(player);
+        return session != null && session.getBattleInventory() != null;
     }
     
     /**
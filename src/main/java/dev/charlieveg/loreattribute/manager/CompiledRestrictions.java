@@ -0,0 +1,328 @@
+package dev.charlieveg.loreattribute.manager;
+
+import dev.charlieveg.loreattribute.data.ItemDescriptor;
+import dev.charlieveg.loreattribute.util.MultiPatternMatcher;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 编译后的装备限制规则
+ * 加载时为规则中出现的每个lore关键字分配一个标签编号，并把全部关键字编译为一个多模式匹配器。
+ * 物品只需扫描一次lore即可得到标签位图，三种限制都化为对位图的按位运算：
+ * <ul>
+ *     <li>冲突：目标物品任一标签的冲突伙伴（同组关键字）与已装备标签相交</li>
+ *     <li>专属：已装备的专属标签不全在目标物品上</li>
+ *     <li>前置：目标物品的前置标签不全在已装备物品上</li>
+ * </ul>
+ * 对象创建后不再修改，可以在任意线程编译，重载时整体替换
+ *
+ * @author charlieveg
+ */
+public final class CompiledRestrictions {
+
+    // 每次编译分配新的版本号，物品描述中缓存的位图按版本失效
+    private static final AtomicInteger GENERATIONS = new AtomicInteger();
+
+    private final int generation;
+
+    // 标签编号 -> 关键字
+    private final String[] tags;
+    private final MultiPatternMatcher<Integer> matcher;
+    private final int words;
+    private final long[] emptyMask;
+
+    // 冲突组名与各组的标签位图
+    private final String[] conflictGroupNames;
+    private final long[][] conflictGroupMasks;
+    // 各冲突组预先创建的判定结果
+    private final RestrictionVerdict[] conflictVerdicts;
+    // 标签编号 -> 所有包含该标签的冲突组的并集，不属于任何冲突组时为null
+    private final long[][] conflictPartners;
+    private final long[] exclusiveMask;
+    private final long[] prerequisiteMask;
+
+    // 原始规则，供命令展示
+    private final Map<String, Set<String>> conflictGroups;
+    private final Set<String> exclusiveGroups;
+    private final Set<String> prerequisiteGroups;
+
+    private CompiledRestrictions(Map<String, Set<String>> conflictGroups, Set<String> exclusiveGroups,
+                                 Set<String> prerequisiteGroups) {
+        this.generation = GENERATIONS.incrementAndGet();
+        this.conflictGroups = Collections.unmodifiableMap(conflictGroups);
+        this.exclusiveGroups = Collections.unmodifiableSet(exclusiveGroups);
+        this.prerequisiteGroups = Collections.unmodifiableSet(prerequisiteGroups);
+
+        // 分配标签编号
+        Map<String, Integer> tagIndex = new HashMap<>();
+        List<String> tagList = new ArrayList<>();
+        for (Set<String> groupLores : conflictGroups.values()) {
+            for (String lore : groupLores) {
+                assignTag(lore, tagIndex, tagList);
+            }
+        }
+        for (String lore : exclusiveGroups) {
+            assignTag(lore, tagIndex, tagList);
+        }
+        for (String lore : prerequisiteGroups) {
+            assignTag(lore, tagIndex, tagList);
+        }
+        this.tags = tagList.toArray(new String[0]);
+        this.words = (tags.length + 63) >>> 6;
+        this.emptyMask = new long[words];
+
+        MultiPatternMatcher.Builder<Integer> builder = MultiPatternMatcher.builder();
+        for (int i = 0; i < tags.length; i++) {
+            builder.add(tags[i], i);
+        }
+        this.matcher = builder.build();
+
+        // 冲突组与每个标签的冲突伙伴
+        this.conflictGroupNames = conflictGroups.keySet().toArray(new String[0]);
+        this.conflictGroupMasks = new long[conflictGroupNames.length][];
+        this.conflictVerdicts = new RestrictionVerdict[conflictGroupNames.length];
+        this.conflictPartners = new long[tags.length][];
+        for (int g = 0; g < conflictGroupNames.length; g++) {
+            long[] groupMask = toMask(conflictGroups.get(conflictGroupNames[g]), tagIndex);
+            conflictGroupMasks[g] = groupMask;
+            conflictVerdicts[g] = RestrictionVerdict.conflict(conflictGroupNames[g]);
+            for (String lore : conflictGroups.get(conflictGroupNames[g])) {
+                int tag = tagIndex.get(lore);
+                if (conflictPartners[tag] == null) {
+                    conflictPartners[tag] = new long[words];
+                }
+                or(conflictPartners[tag], groupMask);
+            }
+        }
+        this.exclusiveMask = toMask(exclusiveGroups, tagIndex);
+        this.prerequisiteMask = toMask(prerequisiteGroups, tagIndex);
+    }
+
+    /**
+     * 从限制配置编译规则
+     */
+    public static CompiledRestrictions compile(FileConfiguration config) {
+        Map<String, Set<String>> conflictGroups = new LinkedHashMap<>();
+        ConfigurationSection conflictSection = config.getConfigurationSection("conflict-restrictions");
+        if (conflictSection != null) {
+            for (String groupName : conflictSection.getKeys(false)) {
+                Set<String> loreSet = new LinkedHashSet<>();
+                for (String lore : conflictSection.getStringList(groupName)) {
+                    if (lore != null && !lore.isEmpty()) {
+                        loreSet.add(lore);
+                    }
+                }
+                conflictGroups.put(groupName, Collections.unmodifiableSet(loreSet));
+            }
+        }
+
+        Set<String> exclusiveGroups = new LinkedHashSet<>();
+        for (String lore : config.getStringList("exclusive-restrictions")) {
+            if (lore != null && !lore.isEmpty()) {
+                exclusiveGroups.add(lore);
+            }
+        }
+
+        Set<String> prerequisiteGroups = new LinkedHashSet<>();
+        for (String lore : config.getStringList("prerequisite-restrictions")) {
+            if (lore != null && !lore.isEmpty()) {
+                prerequisiteGroups.add(lore);
+            }
+        }
+
+        return new CompiledRestrictions(conflictGroups, exclusiveGroups, prerequisiteGroups);
+    }
+
+    private static void assignTag(String lore, Map<String, Integer> tagIndex, List<String> tagList) {
+        if (!tagIndex.containsKey(lore)) {
+            tagIndex.put(lore, tagList.size());
+            tagList.add(lore);
+        }
+    }
+
+    private long[] toMask(Set<String> lores, Map<String, Integer> tagIndex) {
+        long[] mask = new long[words];
+        for (String lore : lores) {
+            int tag = tagIndex.get(lore);
+            mask[tag >>> 6] |= 1L << tag;
+        }
+        return mask;
+    }
+
+    /**
+     * 计算物品描述的标签位图，结果只能读取
+     */
+    public long[] resolve(ItemDescriptor descriptor) {
+        if (descriptor == ItemDescriptor.EMPTY || tags.length == 0) {
+            return emptyMask;
+        }
+        long[] mask = new long[words];
+        for (String line : descriptor.getCleanLore()) {
+            matcher.forEachMatch(line, (start, end, tag) -> mask[tag >>> 6] |= 1L << tag);
+        }
+        return isEmpty(mask) ? emptyMask : mask;
+    }
+
+    /**
+     * 检查冲突限制：目标物品与已装备物品含有同一冲突组的关键字
+     */
+    public boolean hasConflict(long[] targetMask, long[] equippedMask) {
+        return findConflictGroup(targetMask, equippedMask) >= 0;
+    }
+
+    /**
+     * 查找造成冲突的冲突组
+     *
+     * @return 冲突组下标，没有冲突时返回-1
+     */
+    public int findConflictGroup(long[] targetMask, long[] equippedMask) {
+        for (int w = 0; w < words; w++) {
+            long bits = targetMask[w];
+            while (bits != 0) {
+                int tag = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                long[] partners = conflictPartners[tag];
+                if (partners != null && intersects(partners, equippedMask)) {
+                    // 只在发生冲突时逐组确认是哪一组
+                    for (int g = 0; g < conflictGroupMasks.length; g++) {
+                        long[] groupMask = conflictGroupMasks[g];
+                        if ((groupMask[tag >>> 6] & (1L << tag)) != 0 && intersects(groupMask, equippedMask)) {
+                            return g;
+                        }
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 检查专属限制：已装备物品的专属关键字目标物品必须同样包含
+     */
+    public boolean hasExclusiveViolation(long[] targetMask, long[] equippedMask) {
+        for (int w = 0; w < words; w++) {
+            if ((equippedMask[w] & exclusiveMask[w] & ~targetMask[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 检查前置限制：目标物品的前置关键字必须出现在已装备物品上
+     */
+    public boolean hasPrerequisiteViolation(long[] targetMask, long[] equippedMask) {
+        for (int w = 0; w < words; w++) {
+            if ((targetMask[w] & prerequisiteMask[w] & ~equippedMask[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 检查目标物品是否被限制
+     */
+    public boolean isRestricted(long[] targetMask, long[] equippedMask) {
+        return evaluate(targetMask, equippedMask).isRestricted();
+    }
+
+    /**
+     * 判定目标物品是否被限制以及造成限制的规则，依次检查冲突、专属、前置限制
+     */
+    public RestrictionVerdict evaluate(long[] targetMask, long[] equippedMask) {
+        int group = findConflictGroup(targetMask, equippedMask);
+        if (group >= 0) {
+            return conflictVerdicts[group];
+        }
+        if (hasExclusiveViolation(targetMask, equippedMask)) {
+            return RestrictionVerdict.EXCLUSIVE;
+        }
+        if (hasPrerequisiteViolation(targetMask, equippedMask)) {
+            return RestrictionVerdict.PREREQUISITE;
+        }
+        return RestrictionVerdict.ALLOWED;
+    }
+
+    /**
+     * 创建一个空的标签位图，用于累计已装备物品的标签
+     */
+    public long[] newMask() {
+        return new long[words];
+    }
+
+    public static void or(long[] target, long[] mask) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= mask[i];
+        }
+    }
+
+    public static boolean intersects(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if ((a[i] & b[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean isEmpty(long[] mask) {
+        for (long word : mask) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 标签数量
+     */
+    public int getTagCount() {
+        return tags.length;
+    }
+
+    /**
+     * 标签编号对应的关键字
+     */
+    public String getTag(int tag) {
+        return tags[tag];
+    }
+
+    /**
+     * 位图的长度（long 个数）
+     */
+    public int getWords() {
+        return words;
+    }
+
+    public String getConflictGroupName(int group) {
+        return conflictGroupNames[group];
+    }
+
+    public Map<String, Set<String>> getConflictGroups() {
+        return conflictGroups;
+    }
+
+    public Set<String> getExclusiveGroups() {
+        return exclusiveGroups;
+    }
+
+    public Set<String> getPrerequisiteGroups() {
+        return prerequisiteGroups;
+    }
+}
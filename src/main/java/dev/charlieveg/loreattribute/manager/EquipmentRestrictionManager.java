@@ -1,13 +1,18 @@
 package dev.charlieveg.loreattribute.manager;
 
+import dev.charlieveg.loreattribute.data.ItemDescriptor;
+import lombok.AccessLevel;
 import lombok.Getter;
-import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.Material;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.inventory.PlayerInventory;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -17,20 +22,25 @@ import java.util.*;
 @Getter
 public class EquipmentRestrictionManager {
     
+    public static final String CONFIG_FILE_NAME = "equipment-restrictions.yml";
+    
     private final File pluginFolder;
+    @Getter(AccessLevel.NONE)
+    private final AttributeManager attributeManager;
+    @Getter(AccessLevel.NONE)
+    private final PlayerSessionRegistry sessions;
     private FileConfiguration restrictionConfig;
     
-    // 冲突限制组 - 同组内的lore互相冲突
-    private Map<String, Set<String>> conflictGroups = new HashMap<>();
-    
-    // 专属限制 - 穿戴特定lore后只能使用该lore的物品
-    private Set<String> exclusiveGroups = new HashSet<>();
+    // 编译后的限制规则（冲突、专属、前置），重载时整体替换
+    @Getter(AccessLevel.NONE)
+    private volatile CompiledRestrictions rules;
+    // 判定结果缓存，条目按规则版本失效
+    private final RestrictionVerdictCache verdictCache = new RestrictionVerdictCache(RestrictionVerdictCache.DEFAULT_CAPACITY);
     
-    // 前置限制 - 需要穿戴特定lore才能使用某些武器
-    private Set<String> prerequisiteGroups = new HashSet<>();
-    
-    public EquipmentRestrictionManager(File pluginFolder) {
+    public EquipmentRestrictionManager(File pluginFolder, AttributeManager attributeManager, PlayerSessionRegistry sessions) {
         this.pluginFolder = pluginFolder;
+        this.attributeManager = attributeManager;
+        this.sessions = sessions;
         loadConfig();
     }
     
@@ -38,7 +48,7 @@ public class EquipmentRestrictionManager {
      * 加载配置文件
      */
     public void loadConfig() {
-        File configFile = new File(pluginFolder, "equipment-restrictions.yml");
+        File configFile = new File(pluginFolder, CONFIG_FILE_NAME);
         
         if (!configFile.exists()) {
             createDefaultConfig(configFile);
@@ -79,56 +89,231 @@ public class EquipmentRestrictionManager {
      * 加载限制规则
      */
     private void loadRestrictions() {
-        conflictGroups.clear();
-        exclusiveGroups.clear();
-        prerequisiteGroups.clear();
-        
-        // 加载冲突限制
-        ConfigurationSection conflictSection = restrictionConfig.getConfigurationSection("conflict-restrictions");
-        if (conflictSection != null) {
-            for (String groupName : conflictSection.getKeys(false)) {
-                List<String> lores = conflictSection.getStringList(groupName);
-                Set<String> loreSet = new HashSet<>(lores);
-                conflictGroups.put(groupName, loreSet);
-            }
+        rules = CompiledRestrictions.compile(restrictionConfig);
+        // 旧版本的条目已经不会命中，这里只是释放内存并重新统计
+        verdictCache.clear();
+    }
+    
+    /**
+     * 从文件解析限制配置，不修改当前规则，可以在任意线程调用
+     * 
+     * @throws InvalidConfigurationException 文件格式错误、内容为空或没有任何限制配置项
+     */
+    public FileConfiguration parseConfigFile() throws IOException, InvalidConfigurationException {
+        YamlConfiguration loaded = new YamlConfiguration();
+        loaded.load(new File(pluginFolder, CONFIG_FILE_NAME));
+        if (!loaded.contains("conflict-restrictions") && !loaded.contains("exclusive-restrictions")
+                && !loaded.contains("prerequisite-restrictions")) {
+            // 空文件或保存到一半的文件，不应清空现有规则
+            throw new InvalidConfigurationException("没有找到任何限制配置项");
+        }
+        if (loaded.contains("conflict-restrictions") && !loaded.isConfigurationSection("conflict-restrictions")) {
+            throw new InvalidConfigurationException("conflict-restrictions 必须是冲突组名到lore列表的映射");
+        }
+        return loaded;
+    }
+    
+    /**
+     * 替换为已经解析并编译好的规则（在主线程调用）
+     */
+    public void applyRules(FileConfiguration loaded, CompiledRestrictions compiled) {
+        restrictionConfig = loaded;
+        rules = compiled;
+        verdictCache.clear();
+    }
+    
+    /**
+     * 获取当前的限制规则
+     */
+    public CompiledRestrictions getRules() {
+        return rules;
+    }
+    
+    /**
+     * 冲突限制组 - 同组内的lore互相冲突
+     */
+    public Map<String, Set<String>> getConflictGroups() {
+        return rules.getConflictGroups();
+    }
+    
+    /**
+     * 专属限制 - 穿戴特定lore后只能使用该lore的物品
+     */
+    public Set<String> getExclusiveGroups() {
+        return rules.getExclusiveGroups();
+    }
+    
+    /**
+     * 前置限制 - 需要穿戴特定lore才能使用某些武器
+     */
+    public Set<String> getPrerequisiteGroups() {
+        return rules.getPrerequisiteGroups();
+    }
+    
+    /**
+     * 获取物品的限制标签位图
+     * 关键字出现在物品任意一行lore中即算包含，结果缓存在物品描述中，规则重载后重新计算
+     */
+    public long[] getRestrictionMask(ItemStack item) {
+        return getRestrictionMask(rules, item);
+    }
+    
+    private long[] getRestrictionMask(CompiledRestrictions currentRules, ItemStack item) {
+        return getRestrictionMask(currentRules, attributeManager.describeItem(item));
+    }
+    
+    private long[] getRestrictionMask(CompiledRestrictions currentRules, ItemDescriptor descriptor) {
+        if (descriptor == ItemDescriptor.EMPTY) {
+            return currentRules.resolve(descriptor);
         }
         
-        // 加载专属限制
-        List<String> exclusiveList = restrictionConfig.getStringList("exclusive-restrictions");
-        exclusiveGroups.addAll(exclusiveList);
+        int currentGeneration = currentRules.getGeneration();
+        long[] mask = descriptor.getRestrictionMask(currentGeneration);
+        if (mask == null) {
+            mask = currentRules.resolve(descriptor);
+            descriptor.setRestrictionMask(currentGeneration, mask);
+        }
+        return mask;
+    }
+    
+    /**
+     * 计算已装备物品的标签并集，与目标物品相同的物品不计入
+     */
+    private long[] getEquippedMask(CompiledRestrictions currentRules, List<ItemStack> equippedItems, ItemStack targetItem) {
+        long[] equippedMask = currentRules.newMask();
+        for (ItemStack equipped : equippedItems) {
+            if (equipped == null || equipped.equals(targetItem)) continue;
+            CompiledRestrictions.or(equippedMask, getRestrictionMask(currentRules, equipped));
+        }
+        return equippedMask;
+    }
+    
+    /**
+     * 获取玩家已穿戴护甲的限制标签状态
+     * 每次都读取护甲，与上次记录的物品描述比较（描述有缓存，相同lore得到同一对象），
+     * 只重新计算变化或被标记的槽位。没有触发背包事件的护甲变化（例如其他插件直接设置护甲）
+     * 也能在下次检查时发现。限制规则重载后全部重新计算。必须在主线程调用
+     */
+    public EquippedTagState getEquippedTags(Player player) {
+        CompiledRestrictions currentRules = rules;
+        PlayerSession session = sessions.get(player);
+        // 没有会话的玩家（不在线）不保存状态，每次按当前护甲临时计算
+        EquippedTagState state = session != null ? session.getEquippedTags() : new EquippedTagState();
+        if (state.getGeneration() != currentRules.getGeneration()) {
+            state.reset(currentRules.getGeneration(), currentRules.getWords(), currentRules.getTagCount());
+        }
         
-        // 加载前置限制
-        List<String> prerequisiteList = restrictionConfig.getStringList("prerequisite-restrictions");
-        prerequisiteGroups.addAll(prerequisiteList);
+        int dirtySlots = state.getDirtySlots();
+        ItemStack[] armor = player.getInventory().getArmorContents();
+        for (int slot = 0; slot < EquippedTagState.SLOT_COUNT; slot++) {
+            ItemStack item = armor != null && slot < armor.length ? armor[slot] : null;
+            ItemDescriptor descriptor = attributeManager.describeItem(item);
+            if ((dirtySlots & (1 << slot)) != 0 || descriptor != state.getSlotDescriptor(slot)) {
+                state.setSlot(slot, descriptor, getRestrictionMask(currentRules, descriptor));
+            }
+        }
+        state.clearDirty();
+        return state;
+    }
+    
+    /**
+     * 标记玩家的护甲槽位发生了变化
+     * 
+     * @param slotMask 槽位掩码，见 EquippedTagState
+     */
+    public void markArmorChanged(Player player, int slotMask) {
+        PlayerSession session = sessions.get(player);
+        if (session != null) {
+            session.getEquippedTags().markDirty(slotMask);
+        }
+    }
+    
+    /**
+     * 检查手持（或快捷栏中）的物品是否被已穿戴的护甲限制
+     */
+    public boolean isHandItemRestricted(Player player, ItemStack item) {
+        if (item == null) {
+            return false;
+        }
+        return isRestricted(item, getEquippedTags(player).getMask());
     }
     
     /**
-     * 从物品中提取lore文本（去除颜色代码）
+     * 检查指定护甲槽位的物品是否被限制，其余护甲与手持物品视为已装备
      */
-    private Set<String> extractLoreTexts(ItemStack item) {
-        Set<String> loreTexts = new HashSet<>();
+    public boolean isArmorRestricted(Player player, int slot) {
+        EquippedTagState state = getEquippedTags(player);
+        long[] targetMask = state.getSlotMask(slot);
+        if (targetMask == null) {
+            return false;
+        }
         
-        if (item == null || !item.hasItemMeta()) {
-            return loreTexts;
+        CompiledRestrictions currentRules = rules;
+        long[] equippedMask = state.getMaskExcluding(slot);
+        ItemStack hand = player.getInventory().getItemInHand();
+        if (hand != null) {
+            CompiledRestrictions.or(equippedMask, getRestrictionMask(currentRules, hand));
         }
+        return evaluate(currentRules, targetMask, equippedMask).isRestricted();
+    }
+    
+    /**
+     * 寻找快捷栏中允许手持的槽位
+     * 只检查手持物品的限制，护甲标签只取一次，每个快捷栏槽位一次位图检查
+     * 
+     * @return 空槽或不受限制物品所在的槽位，没有时返回-1
+     */
+    public int findAllowedHotbarSlot(Player player) {
+        PlayerInventory inventory = player.getInventory();
+        long[] armorMask = getEquippedTags(player).getMask();
         
-        ItemMeta meta = item.getItemMeta();
-        if (meta.hasLore()) {
-            for (String lore : meta.getLore()) {
-                String cleanLore = lore.replaceAll("§[0-9a-fk-or]", "").trim();
-                loreTexts.add(cleanLore);
+        for (int i = 0; i < 9; i++) {
+            ItemStack item = inventory.getItem(i);
+            if (item == null || item.getType() == Material.AIR) {
+                return i; // 空槽是允许的
+            }
+            
+            if (!isRestricted(item, armorMask)) {
+                return i; // 找到允许的物品
             }
         }
         
-        return loreTexts;
+        return -1; // 没有找到允许的物品槽
+    }
+    
+    /**
+     * 检查物品在给定的已装备标签下是否被限制
+     * 
+     * @param equippedMask 已装备物品的标签并集，如 getEquippedTags(player).getMask()
+     */
+    public boolean isRestricted(ItemStack targetItem, long[] equippedMask) {
+        CompiledRestrictions currentRules = rules;
+        return evaluate(currentRules, getRestrictionMask(currentRules, targetItem), equippedMask).isRestricted();
+    }
+    
+    /**
+     * 判定目标物品是否被限制以及造成限制的规则，优先从缓存读取
+     */
+    private RestrictionVerdict evaluate(CompiledRestrictions currentRules, long[] targetMask, long[] equippedMask) {
+        int generation = currentRules.getGeneration();
+        RestrictionVerdict verdict = verdictCache.get(generation, targetMask, equippedMask);
+        if (verdict == null) {
+            verdict = currentRules.evaluate(targetMask, equippedMask);
+            verdictCache.put(generation, targetMask, equippedMask, verdict);
+        }
+        return verdict;
     }
     
     /**
      * 检查物品是否包含指定的lore
      */
     public boolean hasLore(ItemStack item, String targetLore) {
-        Set<String> loreTexts = extractLoreTexts(item);
-        return loreTexts.stream().anyMatch(lore -> lore.contains(targetLore));
+        for (String line : attributeManager.describeItem(item).getCleanLore()) {
+            if (line.contains(targetLore)) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -138,32 +323,12 @@ public class EquipmentRestrictionManager {
      * @return 是否存在冲突
      */
     public boolean hasConflictRestriction(List<ItemStack> equippedItems, ItemStack targetItem) {
-        Set<String> targetLores = extractLoreTexts(targetItem);
-        
-        for (Map.Entry<String, Set<String>> group : conflictGroups.entrySet()) {
-            Set<String> groupLores = group.getValue();
-            
-            // 检查目标物品是否属于某个冲突组
-            boolean targetInGroup = targetLores.stream().anyMatch(lore -> 
-                groupLores.stream().anyMatch(lore::contains));
-            
-            if (targetInGroup) {
-                // 检查已装备物品是否有同组的其他lore
-                for (ItemStack equipped : equippedItems) {
-                    if (equipped == null || equipped.equals(targetItem)) continue;
-                    
-                    Set<String> equippedLores = extractLoreTexts(equipped);
-                    boolean equippedInGroup = equippedLores.stream().anyMatch(lore -> 
-                        groupLores.stream().anyMatch(lore::contains));
-                    
-                    if (equippedInGroup) {
-                        return true; // 发现冲突
-                    }
-                }
-            }
+        CompiledRestrictions currentRules = rules;
+        long[] targetMask = getRestrictionMask(currentRules, targetItem);
+        if (CompiledRestrictions.isEmpty(targetMask)) {
+            return false;
         }
-        
-        return false;
+        return currentRules.hasConflict(targetMask, getEquippedMask(currentRules, equippedItems, targetItem));
     }
     
     /**
@@ -173,37 +338,9 @@ public class EquipmentRestrictionManager {
      * @return 是否违反专属限制
      */
     public boolean hasExclusiveRestriction(List<ItemStack> equippedItems, ItemStack targetItem) {
-        Set<String> targetLores = extractLoreTexts(targetItem);
-        
-        // 检查已装备物品中是否有专属lore
-        Set<String> equippedExclusiveLores = new HashSet<>();
-        for (ItemStack equipped : equippedItems) {
-            if (equipped == null || equipped.equals(targetItem)) continue;
-            
-            Set<String> equippedLores = extractLoreTexts(equipped);
-            for (String exclusiveLore : exclusiveGroups) {
-                if (equippedLores.stream().anyMatch(lore -> lore.contains(exclusiveLore))) {
-                    equippedExclusiveLores.add(exclusiveLore);
-                }
-            }
-        }
-        
-        // 如果没有装备专属物品，则无限制
-        if (equippedExclusiveLores.isEmpty()) {
-            return false;
-        }
-        
-        // 检查目标物品是否符合已装备的专属要求
-        for (String exclusiveLore : equippedExclusiveLores) {
-            boolean targetHasExclusiveLore = targetLores.stream()
-                .anyMatch(lore -> lore.contains(exclusiveLore));
-            
-            if (!targetHasExclusiveLore) {
-                return true; // 违反专属限制
-            }
-        }
-        
-        return false;
+        CompiledRestrictions currentRules = rules;
+        long[] targetMask = getRestrictionMask(currentRules, targetItem);
+        return currentRules.hasExclusiveViolation(targetMask, getEquippedMask(currentRules, equippedItems, targetItem));
     }
     
     /**
@@ -213,33 +350,12 @@ public class EquipmentRestrictionManager {
      * @return 是否违反前置限制
      */
     public boolean hasPrerequisiteRestriction(List<ItemStack> equippedItems, ItemStack targetItem) {
-        Set<String> targetLores = extractLoreTexts(targetItem);
-        
-        // 检查目标物品是否包含前置限制的lore
-        for (String prerequisiteLore : prerequisiteGroups) {
-            if (targetLores.stream().anyMatch(lore -> lore.contains(prerequisiteLore))) {
-                // 目标物品包含前置lore，检查是否已有相应的前置装备
-                boolean hasPrerequisiteEquipment = false;
-                
-                for (ItemStack equipped : equippedItems) {
-                    if (equipped == null || equipped.equals(targetItem)) continue;
-                    
-                    Set<String> equippedLores = extractLoreTexts(equipped);
-                    // 检查已装备物品是否包含相同的前置lore
-                    if (equippedLores.stream().anyMatch(lore -> lore.contains(prerequisiteLore))) {
-                        hasPrerequisiteEquipment = true;
-                        break;
-                    }
-                }
-                
-                // 如果没有前置装备，则受限制
-                if (!hasPrerequisiteEquipment) {
-                    return true;
-                }
-            }
+        CompiledRestrictions currentRules = rules;
+        long[] targetMask = getRestrictionMask(currentRules, targetItem);
+        if (CompiledRestrictions.isEmpty(targetMask)) {
+            return false;
         }
-        
-        return false;
+        return currentRules.hasPrerequisiteViolation(targetMask, getEquippedMask(currentRules, equippedItems, targetItem));
     }
     
     /**
@@ -249,14 +365,27 @@ public class EquipmentRestrictionManager {
      * @return 是否被限制
      */
     public boolean isRestricted(List<ItemStack> equippedItems, ItemStack targetItem) {
+        return getVerdict(equippedItems, targetItem).isRestricted();
+    }
+    
+    /**
+     * 判定物品是否被限制以及造成限制的规则
+     * @param equippedItems 已装备的物品（包括护甲）
+     * @param targetItem 要检查的目标物品
+     * @return 判定结果，目标物品为null时返回 RestrictionVerdict.ALLOWED
+     */
+    public RestrictionVerdict getVerdict(List<ItemStack> equippedItems, ItemStack targetItem) {
         if (targetItem == null) {
-            return false;
+            return RestrictionVerdict.ALLOWED;
         }
         
-        return hasConflictRestriction(equippedItems, targetItem) ||
-               hasExclusiveRestriction(equippedItems, targetItem) ||
-               hasPrerequisiteRestriction(equippedItems, targetItem);
+        // 已装备物品的标签只合并一次，三种限制共用
+        CompiledRestrictions currentRules = rules;
+        long[] targetMask = getRestrictionMask(currentRules, targetItem);
+        long[] equippedMask = getEquippedMask(currentRules, equippedItems, targetItem);
+        return evaluate(currentRules, targetMask, equippedMask);
     }
+
     
     /**
      * 重载配置
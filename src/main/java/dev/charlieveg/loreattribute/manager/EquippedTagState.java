@@ -0,0 +1,157 @@
+package dev.charlieveg.loreattribute.manager;
+
+import dev.charlieveg.loreattribute.data.ItemDescriptor;
+
+/**
+ * 玩家已穿戴护甲的限制标签状态
+ * 记录每个护甲槽位物品的标签位图，以及每个标签被几件护甲携带，并维护所有护甲标签的并集。
+ * 检查时按物品描述判断槽位是否变化，只有变化或被标记的槽位需要重新计算标签
+ *
+ * 槽位编号与 getArmorContents() 的下标一致：0 靴子、1 护腿、2 胸甲、3 头盔。只在主线程使用
+ *
+ * @author charlieveg
+ */
+public class EquippedTagState {
+
+    public static final int SLOT_BOOTS = 0;
+    public static final int SLOT_LEGGINGS = 1;
+    public static final int SLOT_CHESTPLATE = 2;
+    public static final int SLOT_HELMET = 3;
+    public static final int SLOT_COUNT = 4;
+    public static final int MASK_ALL = (1 << SLOT_COUNT) - 1;
+
+    private static final long[] NO_TAGS = new long[0];
+
+    /**
+     * 把 PlayerEquipmentState 的槽位掩码转换为护甲槽位掩码（两者的护甲顺序相同）
+     */
+    public static int fromEquipmentMask(int equipmentSlotMask) {
+        return (equipmentSlotMask & PlayerEquipmentState.MASK_ARMOR) >>> PlayerEquipmentState.SLOT_ARMOR_START;
+    }
+
+    // 状态对应的限制规则版本，0 表示尚未建立
+    private int generation;
+
+    private final ItemDescriptor[] slotDescriptors = new ItemDescriptor[SLOT_COUNT];
+    private final long[][] slotMasks = new long[SLOT_COUNT][];
+    // 标签编号 -> 携带该标签的护甲件数
+    private int[] counts = new int[0];
+    // 件数大于0的标签
+    private long[] mask = NO_TAGS;
+    // 计算排除某个槽位的并集时复用
+    private long[] scratch = NO_TAGS;
+
+    private int dirtySlots = MASK_ALL;
+
+    /**
+     * 标记护甲槽位发生了变化，下次检查时重新读取
+     *
+     * @param slotMask 槽位掩码，第 n 位对应槽位 n
+     */
+    public void markDirty(int slotMask) {
+        dirtySlots |= slotMask & MASK_ALL;
+    }
+
+    public int getDirtySlots() {
+        return dirtySlots;
+    }
+
+    public void clearDirty() {
+        dirtySlots = 0;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 按新的限制规则重建状态，全部槽位需要重新读取
+     */
+    public void reset(int generation, int words, int tagCount) {
+        this.generation = generation;
+        this.counts = new int[tagCount];
+        this.mask = new long[words];
+        this.scratch = new long[words];
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            slotDescriptors[i] = null;
+            slotMasks[i] = null;
+        }
+        dirtySlots = MASK_ALL;
+    }
+
+    /**
+     * 更新一个槽位的物品，物品描述未变化时不做任何事
+     *
+     * @param slotMask 物品的标签位图
+     */
+    public void setSlot(int slot, ItemDescriptor descriptor, long[] slotMask) {
+        if (slotDescriptors[slot] == descriptor && slotMasks[slot] != null) {
+            return;
+        }
+        if (slotMasks[slot] != null) {
+            apply(slotMasks[slot], -1);
+        }
+        slotDescriptors[slot] = descriptor;
+        slotMasks[slot] = slotMask;
+        apply(slotMask, 1);
+    }
+
+    private void apply(long[] slotMask, int delta) {
+        for (int w = 0; w < slotMask.length; w++) {
+            long bits = slotMask[w];
+            while (bits != 0) {
+                int tag = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                counts[tag] += delta;
+                if (counts[tag] > 0) {
+                    mask[w] |= 1L << tag;
+                } else {
+                    mask[w] &= ~(1L << tag);
+                }
+            }
+        }
+    }
+
+    /**
+     * 所有护甲的标签并集，只能读取
+     */
+    public long[] getMask() {
+        return mask;
+    }
+
+    /**
+     * 除指定槽位外其余护甲的标签并集
+     * 返回复用的数组，下次调用前有效
+     */
+    public long[] getMaskExcluding(int slot) {
+        System.arraycopy(mask, 0, scratch, 0, mask.length);
+        long[] slotMask = slotMasks[slot];
+        if (slotMask != null) {
+            for (int w = 0; w < slotMask.length; w++) {
+                long bits = slotMask[w];
+                while (bits != 0) {
+                    int tag = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (counts[tag] == 1) {
+                        scratch[w] &= ~(1L << tag);
+                    }
+                }
+            }
+        }
+        return scratch;
+    }
+
+    /**
+     * 指定槽位上次记录的物品描述，槽位尚未读取时返回null
+     */
+    public ItemDescriptor getSlotDescriptor(int slot) {
+        return slotDescriptors[slot];
+    }
+
+    /**
+     * 指定槽位物品的标签位图，槽位尚未读取时返回null
+     */
+    public long[] getSlotMask(int slot) {
+        return slotMasks[slot];
+    }
+}
@@ -0,0 +1,132 @@
+package dev.charlieveg.loreattribute.manager;
+
+import dev.charlieveg.loreattribute.data.ItemDescriptor;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 物品属性缓存
+ * 以物品lore的64位指纹为键缓存物品描述，相同模板的物品只解析一次
+ * 容量有限，按最近最少使用（LRU）淘汰
+ *
+ * @author charlieveg
+ */
+public class ItemAttributeCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 2048;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<Long, ItemDescriptor> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Getter
+    private volatile int maximumSize;
+
+    public ItemAttributeCache(int maximumSize) {
+        this.maximumSize = Math.max(1, maximumSize);
+    }
+
+    /**
+     * 计算lore指纹（FNV-1a，逐行加入分隔符避免拼接歧义）
+     */
+    public static long fingerprint(List<String> lore) {
+        long hash = FNV_OFFSET_BASIS;
+        for (String line : lore) {
+            for (int i = 0, n = line.length(); i < n; i++) {
+                char c = line.charAt(i);
+                hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+                hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+            }
+            hash = (hash ^ 0xFF) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 查询缓存，指纹相同但lore不同（哈希碰撞）时视为未命中
+     */
+    public ItemDescriptor get(long fingerprint, List<String> lore) {
+        ItemDescriptor cached = peek(fingerprint, lore);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 查询缓存但不计入命中率统计，用于已经统计过一次的重复查询
+     */
+    public ItemDescriptor peek(long fingerprint, List<String> lore) {
+        ItemDescriptor cached;
+        synchronized (lock) {
+            cached = entries.get(fingerprint);
+        }
+        return cached != null && cached.getLore().equals(lore) ? cached : null;
+    }
+
+    /**
+     * 写入缓存，超出容量时淘汰最久未使用的条目
+     */
+    public void put(long fingerprint, ItemDescriptor item) {
+        synchronized (lock) {
+            entries.put(fingerprint, item);
+            int limit = maximumSize;
+            while (entries.size() > limit) {
+                Long eldest = entries.keySet().iterator().next();
+                entries.remove(eldest);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 清空缓存并重新设置容量（配置重载时调用）
+     */
+    public void reset(int maximumSize) {
+        synchronized (lock) {
+            this.maximumSize = Math.max(1, maximumSize);
+            entries.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * 命中率（0-1）
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+}
@@ -18,12 +18,16 @@ import java.util.regex.Pattern;
  */
 public class LoreEditorManager {
     
-    @Getter
-    private final Map<UUID, LoreEditSession> editSessions = new HashMap<>();
+    // 编辑会话保存在玩家会话中，玩家退出时随会话清理
+    private final PlayerSessionRegistry sessions;
     
     // 匹配数字的正则表达式（支持小数、百分号、负数）
     private static final Pattern NUMBER_PATTERN = Pattern.compile("([+-]?\\d*\\.?\\d+)([%]?)");
     
+    public LoreEditorManager(PlayerSessionRegistry sessions) {
+        this.sessions = sessions;
+    }
+    
     /**
      * Lore行数据结构
      */
@@ -237,14 +241,17 @@ public class LoreEditorManager {
     
     /**
      * 开始编辑lore
+     * 
+     * @return 编辑会话，物品为空或玩家没有会话（不在线）时返回null
      */
     public LoreEditSession startEdit(Player player, ItemStack item) {
-        if (item == null || item.getType() == Material.AIR) {
+        PlayerSession playerSession = sessions.get(player);
+        if (playerSession == null || item == null || item.getType() == Material.AIR) {
             return null;
         }
         
         LoreEditSession session = new LoreEditSession(player, item);
-        editSessions.put(player.getUniqueId(), session);
+        playerSession.setEditSession(session);
         return session;
     }
     
@@ -252,14 +259,18 @@ public class LoreEditorManager {
      * 获取编辑会话
      */
     public LoreEditSession getEditSession(Player player) {
-        return editSessions.get(player.getUniqueId());
+        PlayerSession session = sessions.get(player);
+        return session != null ? session.getEditSession() : null;
     }
     
     /**
      * 结束编辑会话
      */
     public void endEdit(Player player) {
-        editSessions.remove(player.getUniqueId());
+        PlayerSession session = sessions.get(player);
+        if (session != null) {
+            session.setEditSession(null);
+        }
     }
     
     /**
@@ -0,0 +1,121 @@
+package dev.charlieveg.loreattribute.manager;
+
+import dev.charlieveg.loreattribute.data.AttributeVector;
+import dev.charlieveg.loreattribute.data.ItemDescriptor;
+
+import java.util.List;
+
+/**
+ * 玩家装备槽位状态
+ * 记录每个槽位当前物品的解析结果与属性贡献，装备变化时只需处理变化的槽位
+ *
+ * 槽位编号：0 为主手，1-4 为护甲，5-9 为战斗背包
+ *
+ * @author charlieveg
+ */
+public class PlayerEquipmentState {
+
+    public static final int SLOT_HAND = 0;
+    public static final int SLOT_ARMOR_START = 1;
+    public static final int ARMOR_SLOT_COUNT = 4;
+    public static final int SLOT_BATTLE_START = SLOT_ARMOR_START + ARMOR_SLOT_COUNT;
+    public static final int BATTLE_SLOT_COUNT = 5;
+    public static final int SLOT_COUNT = SLOT_BATTLE_START + BATTLE_SLOT_COUNT;
+
+    public static final int MASK_HAND = 1 << SLOT_HAND;
+    public static final int MASK_ARMOR = ((1 << ARMOR_SLOT_COUNT) - 1) << SLOT_ARMOR_START;
+    public static final int MASK_BATTLE = ((1 << BATTLE_SLOT_COUNT) - 1) << SLOT_BATTLE_START;
+    public static final int MASK_ALL = MASK_HAND | MASK_ARMOR | MASK_BATTLE;
+
+    private final ItemDescriptor[] slotItems = new ItemDescriptor[SLOT_COUNT];
+    private final long[] slotFingerprints = new long[SLOT_COUNT];
+    private final AttributeVector[] contributions = new AttributeVector[SLOT_COUNT];
+    private final AttributeVector total = new AttributeVector();
+
+    private boolean initialized;
+    // 每次修改槽位前递增，用于识别过期的异步解析结果
+    private int generation;
+
+    public PlayerEquipmentState() {
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            contributions[i] = AttributeVector.EMPTY;
+        }
+    }
+
+    /**
+     * 是否已经完成过一次全量计算
+     */
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public void markInitialized() {
+        this.initialized = true;
+    }
+
+    /**
+     * 开始一次新的槽位更新，之前提交的异步解析结果随之过期
+     *
+     * @return 本次更新的代数
+     */
+    public int nextGeneration() {
+        return ++generation;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 槽位物品是否与记录一致（指纹相同且lore内容相同）
+     */
+    public boolean isSameItem(int slot, long fingerprint, List<String> lore) {
+        ItemDescriptor current = slotItems[slot];
+        if (current == null) {
+            return lore == null;
+        }
+        return lore != null && slotFingerprints[slot] == fingerprint && current.getLore().equals(lore);
+    }
+
+    /**
+     * 替换槽位内容：减去旧贡献，加上新贡献
+     *
+     * @param item         新物品的描述，空槽位为null
+     * @param contribution 新物品提供的属性（类型不符时为空向量）
+     */
+    public void replaceSlot(int slot, long fingerprint, ItemDescriptor item, AttributeVector contribution) {
+        AttributeVector old = contributions[slot];
+        slotItems[slot] = item;
+        slotFingerprints[slot] = fingerprint;
+        contributions[slot] = contribution;
+
+        total.subtractAll(old);
+        total.addAll(contribution);
+        total.retainOnly(combinedPresence());
+    }
+
+    /**
+     * 按各槽位贡献重新求和，消除增量更新累积的浮点误差
+     */
+    public void resync() {
+        total.clear();
+        for (AttributeVector contribution : contributions) {
+            total.addAll(contribution);
+        }
+    }
+
+    /**
+     * 当前合计属性（内部可变对象，发布前需要复制）
+     */
+    public AttributeVector getTotal() {
+        return total;
+    }
+
+    private long combinedPresence() {
+        long mask = 0;
+        for (AttributeVector contribution : contributions) {
+            mask |= contribution.getPresenceMask();
+        }
+        return mask;
+    }
+}
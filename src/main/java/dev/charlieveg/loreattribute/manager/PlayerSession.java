@@ -0,0 +1,243 @@
+package dev.charlieveg.loreattribute.manager;
+
+import dev.charlieveg.loreattribute.data.AttributeSnapshot;
+import dev.charlieveg.loreattribute.data.AttributeVector;
+import dev.charlieveg.loreattribute.data.CombatMessageBuffer;
+import dev.charlieveg.loreattribute.data.DerivedCombatProfile;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 玩家会话
+ * 集中保存一名在线玩家的全部运行时状态：属性快照、装备槽位状态、待刷新的槽位、攻击冷却、战斗背包、
+ * lore编辑会话、护甲限制标签与累计中的战斗提示。
+ * 由 PlayerSessionRegistry 在玩家加入时创建，退出时在 close() 中统一清理，各任务队列中残留的已关闭会话在取出时跳过
+ *
+ * 属性快照与装备状态可能在解析线程读取，使用 volatile；待刷新的槽位可在任意线程登记；其余字段只在主线程访问
+ *
+ * @author charlieveg
+ */
+public class PlayerSession {
+
+    private final int slot;
+    private final UUID playerId;
+    private final Player player;
+
+    private volatile AttributeSnapshot snapshot = AttributeSnapshot.EMPTY;
+    private volatile PlayerEquipmentState equipmentState;
+    // 等待属性更新调度器处理的槽位掩码（含附加标记），0 表示不在等待中
+    private final AtomicInteger pendingUpdate = new AtomicInteger();
+
+    // 最后一次近战攻击的时间（System.nanoTime），没有攻击过时为 hasAttacked=false
+    private long lastAttackNanos;
+    private boolean hasAttacked;
+
+    private Inventory battleInventory;
+    private LoreEditorManager.LoreEditSession editSession;
+    private EquippedTagState equippedTags;
+    // 是否已在装备限制执行器中等待检查，以及检查前需要重新读取的护甲槽位
+    private boolean validationPending;
+    private int pendingArmorSlots;
+    // 最近一次合并枪械属性得到的战斗数值，快照与枪械属性都未变化时直接复用
+    private AttributeSnapshot gunProfileSnapshot;
+    private AttributeVector gunProfileWeapon;
+    private DerivedCombatProfile gunProfile;
+    private CombatMessageBuffer combatMessages;
+
+    private volatile boolean closed;
+
+    PlayerSession(int slot, Player player) {
+        this.slot = slot;
+        this.playerId = player.getUniqueId();
+        this.player = player;
+    }
+
+    /**
+     * 会话在注册表中的槽位，玩家在线期间不变，退出后会被其他玩家复用
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * 会话所属的玩家，会话关闭后不应再使用
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * 玩家是否已经退出，已关闭的会话不再被注册表引用
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public AttributeSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(AttributeSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * 获取装备槽位状态，没有时创建
+     */
+    public PlayerEquipmentState getOrCreateEquipmentState() {
+        PlayerEquipmentState state = equipmentState;
+        if (state == null) {
+            synchronized (this) {
+                state = equipmentState;
+                if (state == null) {
+                    state = new PlayerEquipmentState();
+                    equipmentState = state;
+                }
+            }
+        }
+        return state;
+    }
+
+    public PlayerEquipmentState getEquipmentState() {
+        return equipmentState;
+    }
+
+    /**
+     * 清除属性快照与装备槽位状态，下次更新时全量重算
+     */
+    public void clearAttributes() {
+        equipmentState = null;
+        snapshot = AttributeSnapshot.EMPTY;
+    }
+
+    /**
+     * 丢弃装备槽位状态（属性规则重载后调用），保留当前快照直到重新计算
+     */
+    public void resetEquipmentState() {
+        equipmentState = null;
+    }
+
+    /**
+     * 合并待刷新的槽位掩码
+     *
+     * @return 合并前的掩码，为0时调用方负责把会话放入处理队列
+     */
+    public int addPendingUpdate(int slotMask) {
+        return pendingUpdate.getAndAccumulate(slotMask, (pending, mask) -> pending | mask);
+    }
+
+    /**
+     * 取出并清除待刷新的槽位掩码
+     */
+    public int takePendingUpdate() {
+        return pendingUpdate.getAndSet(0);
+    }
+
+    /**
+     * 距离上次近战攻击经过的时间（纳秒），没有攻击过时返回 Long.MAX_VALUE
+     */
+    public long getNanosSinceLastAttack(long now) {
+        return hasAttacked ? now - lastAttackNanos : Long.MAX_VALUE;
+    }
+
+    public void recordAttack(long now) {
+        lastAttackNanos = now;
+        hasAttacked = true;
+    }
+
+    public Inventory getBattleInventory() {
+        return battleInventory;
+    }
+
+    public void setBattleInventory(Inventory battleInventory) {
+        this.battleInventory = battleInventory;
+    }
+
+    /**
+     * 获取已穿戴护甲的限制标签状态，没有时创建
+     */
+    public EquippedTagState getEquippedTags() {
+        if (equippedTags == null) {
+            equippedTags = new EquippedTagState();
+        }
+        return equippedTags;
+    }
+
+    public boolean isValidationPending() {
+        return validationPending;
+    }
+
+    public void setValidationPending(boolean validationPending) {
+        this.validationPending = validationPending;
+    }
+
+    public void addPendingArmorSlots(int slotMask) {
+        pendingArmorSlots |= slotMask;
+    }
+
+    /**
+     * 取出并清除等待重新读取的护甲槽位
+     */
+    public int takePendingArmorSlots() {
+        int slots = pendingArmorSlots;
+        pendingArmorSlots = 0;
+        return slots;
+    }
+
+    /**
+     * 获取按指定快照与枪械属性合并过的战斗数值
+     *
+     * @return 两者都与上次记录的相同时返回记录的数值，否则返回null
+     */
+    public DerivedCombatProfile getGunProfile(AttributeSnapshot snapshot, AttributeVector weaponAttributes) {
+        return snapshot == gunProfileSnapshot && weaponAttributes == gunProfileWeapon ? gunProfile : null;
+    }
+
+    public void setGunProfile(AttributeSnapshot snapshot, AttributeVector weaponAttributes, DerivedCombatProfile profile) {
+        this.gunProfileSnapshot = snapshot;
+        this.gunProfileWeapon = weaponAttributes;
+        this.gunProfile = profile;
+    }
+
+    /**
+     * 获取累计中的战斗提示，没有时创建
+     */
+    public CombatMessageBuffer getCombatMessages() {
+        if (combatMessages == null) {
+            combatMessages = new CombatMessageBuffer();
+        }
+        return combatMessages;
+    }
+
+    public LoreEditorManager.LoreEditSession getEditSession() {
+        return editSession;
+    }
+
+    public void setEditSession(LoreEditorManager.LoreEditSession editSession) {
+        this.editSession = editSession;
+    }
+
+    /**
+     * 释放会话持有的全部状态（玩家退出时由注册表调用）
+     */
+    void close() {
+        closed = true;
+        clearAttributes();
+        pendingUpdate.set(0);
+        combatMessages = null;
+        hasAttacked = false;
+        battleInventory = null;
+        editSession = null;
+        equippedTags = null;
+        validationPending = false;
+        pendingArmorSlots = 0;
+        setGunProfile(null, null, null);
+    }
+}
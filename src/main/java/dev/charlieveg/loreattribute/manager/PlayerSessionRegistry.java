@@ -0,0 +1,128 @@
+package dev.charlieveg.loreattribute.manager;
+
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 玩家会话注册表
+ * 玩家加入时分配一个紧凑的整数槽位并创建 PlayerSession，退出时释放槽位并清理会话中的全部状态。
+ * 每名玩家的属性、冷却、战斗背包、编辑会话都保存在同一个会话对象里，
+ * 一次查找即可取得全部状态；按槽位分批处理玩家的任务（如兜底刷新）直接按下标读取数组
+ *
+ * 只有玩家加入（以及插件启用时已在线的玩家）会创建会话，其他地方只查询，没有会话即视为玩家不在线、没有状态；
+ * 这样退出后的调用不会重新创建无人关闭的会话。
+ * 创建与释放在主线程进行，查询可在任意线程调用
+ *
+ * @author charlieveg
+ */
+public class PlayerSessionRegistry {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<UUID, PlayerSession> sessionsById = new ConcurrentHashMap<>();
+
+    // 槽位 -> 会话，空槽位为null；扩容时整体替换
+    private volatile PlayerSession[] slots = new PlayerSession[INITIAL_CAPACITY];
+    // 已释放的槽位，优先复用以保持数组紧凑
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int nextSlot;
+
+    /**
+     * 为玩家创建会话，已存在时返回现有会话
+     * 只应在玩家加入时调用，其他地方使用 get()
+     */
+    public PlayerSession open(Player player) {
+        PlayerSession session = sessionsById.get(player.getUniqueId());
+        return session != null ? session : allocate(player);
+    }
+
+    private synchronized PlayerSession allocate(Player player) {
+        UUID playerId = player.getUniqueId();
+        PlayerSession session = sessionsById.get(playerId);
+        if (session != null) {
+            return session;
+        }
+
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = nextSlot++;
+            if (slot >= slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+        }
+
+        session = new PlayerSession(slot, player);
+        slots[slot] = session;
+        sessionsById.put(playerId, session);
+        return session;
+    }
+
+    /**
+     * 关闭玩家会话，释放槽位与会话中的全部状态
+     */
+    public synchronized void close(Player player) {
+        PlayerSession session = sessionsById.remove(player.getUniqueId());
+        if (session == null) {
+            return;
+        }
+        slots[session.getSlot()] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = session.getSlot();
+        session.close();
+    }
+
+    /**
+     * 获取玩家会话，玩家没有会话时返回null
+     */
+    public PlayerSession get(Player player) {
+        return sessionsById.get(player.getUniqueId());
+    }
+
+    public PlayerSession get(UUID playerId) {
+        return sessionsById.get(playerId);
+    }
+
+    /**
+     * 按槽位获取会话，槽位为空时返回null
+     * 槽位从0开始连续分配，配合 getCapacity() 可按下标遍历
+     */
+    public PlayerSession get(int slot) {
+        PlayerSession[] current = slots;
+        return slot >= 0 && slot < current.length ? current[slot] : null;
+    }
+
+    /**
+     * 遍历所有会话
+     */
+    public void forEach(Consumer<PlayerSession> action) {
+        for (PlayerSession session : slots) {
+            if (session != null) {
+                action.accept(session);
+            }
+        }
+    }
+
+    /**
+     * 当前的会话数
+     */
+    public int size() {
+        return sessionsById.size();
+    }
+
+    /**
+     * 槽位数组的容量
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+}
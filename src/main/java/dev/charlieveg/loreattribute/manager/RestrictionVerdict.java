@@ -0,0 +1,72 @@
+package dev.charlieveg.loreattribute.manager;
+
+/**
+ * 装备限制的判定结果
+ * 记录目标物品是否被限制，以及造成限制的规则（冲突限制时还记录冲突组）
+ * 对象不可变，允许与冲突组的判定结果在规则编译时预先创建，判定时不分配对象
+ *
+ * @author charlieveg
+ */
+public final class RestrictionVerdict {
+
+    /**
+     * 造成限制的规则类型
+     */
+    public enum Rule {
+        NONE("允许"),
+        CONFLICT("冲突限制"),
+        EXCLUSIVE("专属限制"),
+        PREREQUISITE("前置限制");
+
+        private final String displayName;
+
+        Rule(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    public static final RestrictionVerdict ALLOWED = new RestrictionVerdict(Rule.NONE, null);
+    public static final RestrictionVerdict EXCLUSIVE = new RestrictionVerdict(Rule.EXCLUSIVE, null);
+    public static final RestrictionVerdict PREREQUISITE = new RestrictionVerdict(Rule.PREREQUISITE, null);
+
+    private final Rule rule;
+    private final String conflictGroup;
+
+    private RestrictionVerdict(Rule rule, String conflictGroup) {
+        this.rule = rule;
+        this.conflictGroup = conflictGroup;
+    }
+
+    /**
+     * 创建冲突组的判定结果
+     */
+    public static RestrictionVerdict conflict(String groupName) {
+        return new RestrictionVerdict(Rule.CONFLICT, groupName);
+    }
+
+    public boolean isRestricted() {
+        return rule != Rule.NONE;
+    }
+
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * 造成冲突的冲突组名，不是冲突限制时返回null
+     */
+    public String getConflictGroup() {
+        return conflictGroup;
+    }
+
+    /**
+     * 用于展示的规则描述，如 "冲突限制(group1)"
+     */
+    public String describe() {
+        return conflictGroup == null ? rule.getDisplayName() : rule.getDisplayName() + "(" + conflictGroup + ")";
+    }
+}
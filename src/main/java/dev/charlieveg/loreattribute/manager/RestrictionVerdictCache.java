@@ -0,0 +1,151 @@
+package dev.charlieveg.loreattribute.manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 装备限制判定缓存
+ * 以目标物品的标签位图与已装备标签位图为键缓存判定结果，稳定状态下重复的检查只需一次哈希与一次数组比较。
+ *
+ * 缓存是固定大小的直接映射表，每个键只对应一个位置，发生碰撞时新条目覆盖旧条目，不需要加锁与淘汰链表。
+ * 条目记录写入时的规则版本，规则重载后旧版本的条目视为未命中
+ *
+ * @author charlieveg
+ */
+public class RestrictionVerdictCache {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final Entry[] entries;
+    private final int mask;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong replacements = new AtomicLong();
+
+    public RestrictionVerdictCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1) << 1);
+        this.entries = new Entry[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * 查询判定结果，没有缓存或版本不一致时返回null
+     */
+    public RestrictionVerdict get(int generation, long[] targetMask, long[] equippedMask) {
+        Entry entry = entries[indexFor(targetMask, equippedMask)];
+        if (entry != null && entry.generation == generation
+                && entry.matches(targetMask, equippedMask)) {
+            hits.incrementAndGet();
+            return entry.verdict;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 写入判定结果，位图会被复制（已装备位图可能是调用方复用的数组）
+     */
+    public void put(int generation, long[] targetMask, long[] equippedMask, RestrictionVerdict verdict) {
+        int index = indexFor(targetMask, equippedMask);
+        if (entries[index] != null) {
+            replacements.incrementAndGet();
+        }
+        entries[index] = new Entry(generation, targetMask.clone(), equippedMask.clone(), verdict);
+    }
+
+    /**
+     * 清空缓存与统计数据（规则重载时调用）
+     */
+    public void clear() {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+        hits.set(0);
+        misses.set(0);
+        replacements.set(0);
+    }
+
+    private int indexFor(long[] targetMask, long[] equippedMask) {
+        long hash = 0x9E3779B97F4A7C15L;
+        for (long word : targetMask) {
+            hash = (hash ^ word) * 0xBF58476D1CE4E5B9L;
+        }
+        for (long word : equippedMask) {
+            hash = (hash ^ word) * 0x94D049BB133111EBL;
+        }
+        hash ^= hash >>> 31;
+        return (int) hash & mask;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Entry entry : entries) {
+            if (entry != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 碰撞时被覆盖的条目数
+     */
+    public long getReplacements() {
+        return replacements.get();
+    }
+
+    /**
+     * 命中率（0-1）
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * 缓存条目，创建后不再修改，可以安全地在线程间发布
+     */
+    private static final class Entry {
+        private final int generation;
+        private final long[] targetMask;
+        private final long[] equippedMask;
+        private final RestrictionVerdict verdict;
+
+        private Entry(int generation, long[] targetMask, long[] equippedMask, RestrictionVerdict verdict) {
+            this.generation = generation;
+            this.targetMask = targetMask;
+            this.equippedMask = equippedMask;
+            this.verdict = verdict;
+        }
+
+        private boolean matches(long[] target, long[] equipped) {
+            if (target.length != targetMask.length || equipped.length != equippedMask.length) {
+                return false;
+            }
+            for (int i = 0; i < target.length; i++) {
+                if (target[i] != targetMask[i]) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < equipped.length; i++) {
+                if (equipped[i] != equippedMask[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
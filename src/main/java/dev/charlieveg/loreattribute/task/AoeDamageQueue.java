@@ -0,0 +1,464 @@
+package dev.charlieveg.loreattribute.task;
+
+import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.config.CompiledConfig;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 范围伤害队列
+ * 范围伤害触发时只登记一个任务，队列每tick在时间预算内逐个目标结算，
+ * 目标很多的范围伤害会分摊到多个tick，不会占满整个tick（每tick至少结算一个目标，保证进度）
+ *
+ * 同一攻击者尚未开始结算的任务与新触发的范围伤害范围重叠时合并为一个任务，
+ * 同时处于多个范围内的目标只按伤害最高的一次结算。
+ *
+ * 只在主线程使用
+ *
+ * @author charlieveg
+ */
+public class AoeDamageQueue extends BukkitRunnable {
+
+    private final LoreAttributePlugin plugin;
+
+    private final Deque<Job> jobs = new ArrayDeque<>();
+    // 攻击者UUID -> 尚未开始结算、可以合并的任务
+    private final Map<UUID, Job> mergeableJobs = new HashMap<>();
+
+    private volatile long tickBudgetNanos;
+    private volatile boolean mergeOverlapping;
+
+    // 统计数据（只在主线程写入）
+    private volatile long submittedCount;
+    private volatile long mergedCount;
+    private volatile long completedCount;
+    private volatile long hitCount;
+    private volatile long deferredTicks;
+    private volatile int maxDepth;
+    private volatile long lastLatencyNanos;
+    private volatile long maxLatencyNanos;
+    private volatile long totalLatencyNanos;
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+
+    public AoeDamageQueue(LoreAttributePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 读取配置并启动队列，每tick执行一次
+     */
+    public void start() {
+        reload();
+        runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * 重新读取时间预算与合并设置（配置重载时调用），同时清空统计数据
+     */
+    public void reload() {
+        CompiledConfig config = plugin.getConfigManager().getCompiled();
+        tickBudgetNanos = config.getAoeTickBudgetNanos();
+        mergeOverlapping = config.isAoeMergeOverlapping();
+        resetStats();
+    }
+
+    /**
+     * 登记一次范围伤害
+     *
+     * @param center     范围中心
+     * @param baseDamage 范围伤害基础值（已按范围伤害百分比换算）
+     */
+    public void submit(Player attacker, Entity primaryTarget, Location center, double baseDamage, double range) {
+        submittedCount++;
+
+        if (mergeOverlapping) {
+            Job pending = mergeableJobs.get(attacker.getUniqueId());
+            if (pending != null && pending.overlaps(center, range)) {
+                pending.addProc(primaryTarget, center, baseDamage, range);
+                mergedCount++;
+                return;
+            }
+        }
+
+        Job job = new Job(attacker, System.nanoTime());
+        job.addProc(primaryTarget, center, baseDamage, range);
+        jobs.add(job);
+        mergeableJobs.put(attacker.getUniqueId(), job);
+        if (jobs.size() > maxDepth) {
+            maxDepth = jobs.size();
+        }
+    }
+
+    @Override
+    public void run() {
+        if (jobs.isEmpty()) {
+            lastTickNanos = 0L;
+            return;
+        }
+
+        long start = System.nanoTime();
+        long budget = tickBudgetNanos;
+        int processed = 0;
+
+        // 每轮循环开始一个任务、结算一个目标或完成一个任务
+        while (!jobs.isEmpty()) {
+            Job job = jobs.peek();
+            if (!job.started) {
+                // 开始结算后不再接受合并
+                mergeableJobs.remove(job.attacker.getUniqueId(), job);
+                job.started = true;
+                if (job.attacker.isOnline()) {
+                    plugin.getCombatListener().beginAoe(job);
+                } else {
+                    job.clearTargets();
+                }
+            }
+
+            if (job.cursor < job.targetCount) {
+                if (job.attacker.isOnline()) {
+                    plugin.getCombatListener().applyAoeHit(job, job.cursor);
+                }
+                job.cursor++;
+                processed++;
+            }
+
+            if (job.cursor >= job.targetCount) {
+                jobs.poll();
+                if (job.attacker.isOnline()) {
+                    plugin.getCombatListener().finishAoe(job);
+                }
+                recordCompleted(job);
+            }
+
+            if (budget > 0 && System.nanoTime() - start >= budget) {
+                break;
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        hitCount += processed;
+        lastTickNanos = elapsed;
+        if (elapsed > maxTickNanos) {
+            maxTickNanos = elapsed;
+        }
+        if (!jobs.isEmpty()) {
+            deferredTicks++;
+        }
+    }
+
+    private void recordCompleted(Job job) {
+        long latency = System.nanoTime() - job.submittedAt;
+        completedCount++;
+        lastLatencyNanos = latency;
+        totalLatencyNanos += latency;
+        if (latency > maxLatencyNanos) {
+            maxLatencyNanos = latency;
+        }
+        job.clearTargets();
+    }
+
+    /**
+     * 丢弃所有未结算的范围伤害（插件关闭时调用）
+     */
+    public void clear() {
+        jobs.clear();
+        mergeableJobs.clear();
+    }
+
+    /**
+     * 清空统计数据
+     */
+    public void resetStats() {
+        submittedCount = 0L;
+        mergedCount = 0L;
+        completedCount = 0L;
+        hitCount = 0L;
+        deferredTicks = 0L;
+        maxDepth = jobs.size();
+        lastLatencyNanos = 0L;
+        maxLatencyNanos = 0L;
+        totalLatencyNanos = 0L;
+        lastTickNanos = 0L;
+        maxTickNanos = 0L;
+    }
+
+    /**
+     * 当前排队中的任务数量
+     */
+    public int getDepth() {
+        return jobs.size();
+    }
+
+    /**
+     * 排队任务中尚未结算的目标数量（未开始的任务不计）
+     */
+    public int getPendingTargets() {
+        int pending = 0;
+        for (Job job : jobs) {
+            pending += job.targetCount - job.cursor;
+        }
+        return pending;
+    }
+
+    /**
+     * 每tick处理时间预算（纳秒），0 表示不限制
+     */
+    public long getTickBudgetNanos() {
+        return tickBudgetNanos;
+    }
+
+    public boolean isMergeOverlapping() {
+        return mergeOverlapping;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    /**
+     * 合并到已有任务中的范围伤害次数
+     */
+    public long getMergedCount() {
+        return mergedCount;
+    }
+
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * 累计结算的目标数
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * 结束时仍有任务未完成的tick数
+     */
+    public long getDeferredTicks() {
+        return deferredTicks;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 上一个任务从登记到结算完成的耗时（纳秒）
+     */
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    public long getAverageLatencyNanos() {
+        long completed = completedCount;
+        return completed > 0 ? totalLatencyNanos / completed : 0L;
+    }
+
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    /**
+     * 一个范围伤害任务，可能由同一攻击者的多次范围伤害合并而成
+     * 目标在开始结算时确定，之后按顺序逐个结算
+     */
+    public static final class Job {
+
+        private final Player attacker;
+        private final long submittedAt;
+
+        // 合并进来的每次范围伤害
+        private final List<Entity> primaryTargets = new ArrayList<>(1);
+        private final List<Location> centers = new ArrayList<>(1);
+        private double[] baseDamages = new double[1];
+        private double[] ranges = new double[1];
+        private int procCount;
+
+        // 结算目标：目标、所属的范围伤害、距离、伤害倍数、最终伤害
+        // 多次范围伤害合并时用于查找重复目标
+        private Map<LivingEntity, Integer> targetIndex;
+        private LivingEntity[] targets = new LivingEntity[0];
+        private int[] targetProcs = new int[0];
+        private double[] distances = new double[0];
+        private double[] multipliers = new double[0];
+        private double[] damages = new double[0];
+        private int targetCount;
+
+        private boolean started;
+        private int cursor;
+        private int hits;
+
+        private Job(Player attacker, long submittedAt) {
+            this.attacker = attacker;
+            this.submittedAt = submittedAt;
+        }
+
+        private void addProc(Entity primaryTarget, Location center, double baseDamage, double range) {
+            if (procCount == baseDamages.length) {
+                baseDamages = Arrays.copyOf(baseDamages, procCount * 2);
+                ranges = Arrays.copyOf(ranges, procCount * 2);
+            }
+            primaryTargets.add(primaryTarget);
+            centers.add(center);
+            baseDamages[procCount] = baseDamage;
+            ranges[procCount] = range;
+            procCount++;
+        }
+
+        /**
+         * 新的范围是否与任务中任意一次范围伤害重叠
+         */
+        private boolean overlaps(Location center, double range) {
+            for (int i = 0; i < procCount; i++) {
+                Location other = centers.get(i);
+                if (other.getWorld() != center.getWorld()) {
+                    continue;
+                }
+                double reach = ranges[i] + range;
+                if (other.distanceSquared(center) <= reach * reach) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 记录一名目标在某次范围伤害下的结算数值
+         * 目标已存在时保留伤害较高的一次
+         */
+        public void offerTarget(LivingEntity target, int proc, double distance, double multiplier, double damage) {
+            if (procCount > 1) {
+                // 单次范围伤害的查询结果不会重复，合并后才需要去重
+                if (targetIndex == null) {
+                    targetIndex = new IdentityHashMap<>();
+                }
+                Integer existing = targetIndex.get(target);
+                if (existing != null) {
+                    if (damage > damages[existing]) {
+                        setTarget(existing, target, proc, distance, multiplier, damage);
+                    }
+                    return;
+                }
+                targetIndex.put(target, targetCount);
+            }
+            if (targetCount == targets.length) {
+                int capacity = Math.max(8, targetCount * 2);
+                targets = Arrays.copyOf(targets, capacity);
+                targetProcs = Arrays.copyOf(targetProcs, capacity);
+                distances = Arrays.copyOf(distances, capacity);
+                multipliers = Arrays.copyOf(multipliers, capacity);
+                damages = Arrays.copyOf(damages, capacity);
+            }
+            setTarget(targetCount++, target, proc, distance, multiplier, damage);
+        }
+
+        private void setTarget(int index, LivingEntity target, int proc, double distance, double multiplier, double damage) {
+            targets[index] = target;
+            targetProcs[index] = proc;
+            distances[index] = distance;
+            multipliers[index] = multiplier;
+            damages[index] = damage;
+        }
+
+        private void clearTargets() {
+            Arrays.fill(targets, 0, targetCount, null);
+            targetIndex = null;
+            targetCount = 0;
+            cursor = 0;
+        }
+
+        /**
+         * 记录一次实际造成的范围伤害
+         */
+        public void recordHit() {
+            hits++;
+        }
+
+        /**
+         * 实际命中的目标数
+         */
+        public int getHits() {
+            return hits;
+        }
+
+        public Player getAttacker() {
+            return attacker;
+        }
+
+        public int getProcCount() {
+            return procCount;
+        }
+
+        public Entity getPrimaryTarget(int proc) {
+            return primaryTargets.get(proc);
+        }
+
+        public Location getCenter(int proc) {
+            return centers.get(proc);
+        }
+
+        public double getBaseDamage(int proc) {
+            return baseDamages[proc];
+        }
+
+        public double getRange(int proc) {
+            return ranges[proc];
+        }
+
+        public int getTargetCount() {
+            return targetCount;
+        }
+
+        public LivingEntity getTarget(int index) {
+            return targets[index];
+        }
+
+        public int getTargetProc(int index) {
+            return targetProcs[index];
+        }
+
+        public double getDistance(int index) {
+            return distances[index];
+        }
+
+        public double getMultiplier(int index) {
+            return multipliers[index];
+        }
+
+        public double getDamage(int index) {
+            return damages[index];
+        }
+
+        /**
+         * 是否是任务中某次范围伤害的主目标
+         * 主目标已经受到直接伤害，不再受到任何一次范围伤害
+         */
+        public boolean isPrimaryTarget(Entity entity) {
+            return primaryTargets.contains(entity);
+        }
+    }
+}
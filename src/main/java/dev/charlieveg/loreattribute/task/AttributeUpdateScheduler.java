@@ -0,0 +1,305 @@
+package dev.charlieveg.loreattribute.task;
+
+import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.config.CompiledConfig;
+import dev.charlieveg.loreattribute.manager.EquippedTagState;
+import dev.charlieveg.loreattribute.manager.PlayerEquipmentState;
+import dev.charlieveg.loreattribute.manager.PlayerSession;
+import dev.charlieveg.loreattribute.manager.PlayerSessionRegistry;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 属性更新调度器
+ * 各处监听器只登记"玩家的哪些槽位需要刷新"，调度器每tick合并处理一次，
+ * 同一玩家在一个tick内最多重新计算一次属性
+ *
+ * 待刷新的槽位掩码保存在玩家会话中，队列中排的也是会话，玩家退出时会话关闭即丢弃未处理的请求，不需要单独清理。
+ *
+ * 定时全量刷新只作为兜底（防止遗漏的装备变化），间隔可配置，设为0即关闭。
+ * 兜底刷新按会话槽位分桶，每tick只按下标读取本桶的槽位，分摊到刷新间隔内的每个tick，不会在同一tick集中处理所有玩家。
+ *
+ * 每tick的处理时间受预算限制，超出预算的请求顺延到下一tick（至少处理一名玩家，保证进度）。
+ * 事件触发的刷新优先于兜底刷新处理。
+ *
+ * @author charlieveg
+ */
+public class AttributeUpdateScheduler extends BukkitRunnable {
+
+    /**
+     * 附加标记：刷新后重新应用属性效果（生命恢复等药水效果）
+     * 位于槽位掩码之外，可与槽位掩码组合使用
+     */
+    public static final int FLAG_APPLY_EFFECTS = 1 << 16;
+
+    private final LoreAttributePlugin plugin;
+
+    // 处理顺序：事件触发的请求与兜底刷新请求分开排队，掩码保存在会话中
+    private final Queue<PlayerSession> eventQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<PlayerSession> sweepQueue = new ConcurrentLinkedQueue<>();
+    // 两个队列中的会话总数（含已关闭、取出时跳过的会话）
+    private final AtomicInteger queuedCount = new AtomicInteger();
+
+    private volatile int sweepInterval;
+    private volatile int effectInterval;
+    private volatile long tickBudgetNanos;
+    private long ticks;
+
+    // 统计数据（只在主线程写入）
+    private volatile long processedCount;
+    private volatile long deferredTicks;
+    private volatile int lastDeferred;
+    private volatile int maxDeferred;
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+
+    public AttributeUpdateScheduler(LoreAttributePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 读取配置并启动调度器，每tick执行一次
+     */
+    public void start() {
+        reload();
+        runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * 重新读取刷新间隔与tick预算（配置重载时调用），同时清空统计数据
+     */
+    public void reload() {
+        CompiledConfig config = plugin.getConfigManager().getCompiled();
+        sweepInterval = config.getSweepInterval();
+        effectInterval = config.getEffectInterval();
+        tickBudgetNanos = config.getUpdateTickBudgetNanos();
+        resetStats();
+    }
+
+    /**
+     * 标记玩家的指定槽位需要刷新，下一tick统一处理
+     * 玩家没有会话（不在线）时忽略
+     *
+     * @param slotMask PlayerEquipmentState 中的槽位掩码，可附加 FLAG_APPLY_EFFECTS
+     */
+    public void markDirty(Player player, int slotMask) {
+        PlayerSession session = plugin.getSessionRegistry().get(player);
+        if (session != null) {
+            enqueue(session, slotMask, eventQueue);
+        }
+    }
+
+    public void markDirty(UUID playerId, int slotMask) {
+        PlayerSession session = plugin.getSessionRegistry().get(playerId);
+        if (session != null) {
+            enqueue(session, slotMask, eventQueue);
+        }
+    }
+
+    /**
+     * 标记所有在线玩家需要刷新
+     */
+    public void markAllDirty(int slotMask) {
+        PlayerSessionRegistry sessions = plugin.getSessionRegistry();
+        for (int slot = 0; slot < sessions.getCapacity(); slot++) {
+            PlayerSession session = sessions.get(slot);
+            if (session != null) {
+                enqueue(session, slotMask, eventQueue);
+            }
+        }
+    }
+
+    private void enqueue(PlayerSession session, int slotMask, Queue<PlayerSession> queue) {
+        // 首次登记时入队，已在等待中的玩家只合并掩码
+        if (slotMask != 0 && session.addPendingUpdate(slotMask) == 0) {
+            queue.add(session);
+            queuedCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        ticks++;
+
+        scheduleSweepBucket();
+
+        if (eventQueue.isEmpty() && sweepQueue.isEmpty()) {
+            lastDeferred = 0;
+            lastTickNanos = 0L;
+            return;
+        }
+
+        long budget = tickBudgetNanos;
+        int processed = 0;
+        while (true) {
+            PlayerSession session = eventQueue.poll();
+            if (session == null) {
+                session = sweepQueue.poll();
+                if (session == null) {
+                    break;
+                }
+            }
+            queuedCount.decrementAndGet();
+            // 先出队再取掩码，期间合并进来的请求会一起被取走，之后的请求重新入队
+            int mask = session.takePendingUpdate();
+            if (mask == 0 || session.isClosed()) {
+                continue; // 玩家已退出，会话关闭时已清除掩码
+            }
+            Player player = session.getPlayer();
+            if (player.isOnline()) {
+                process(player, mask);
+                processed++;
+            }
+            if (budget > 0 && System.nanoTime() - start >= budget) {
+                break;
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        int deferred = queuedCount.get();
+        processedCount += processed;
+        lastTickNanos = elapsed;
+        lastDeferred = deferred;
+        if (elapsed > maxTickNanos) {
+            maxTickNanos = elapsed;
+        }
+        if (deferred > 0) {
+            deferredTicks++;
+            if (deferred > maxDeferred) {
+                maxDeferred = deferred;
+            }
+        }
+    }
+
+    /**
+     * 登记本tick对应分桶中的玩家
+     * 会话槽位按 槽位 % 间隔 落入 [0, 间隔) 中的某个桶，每个间隔内每名玩家恰好被兜底刷新一次；
+     * 每tick只读取本桶的槽位，不遍历全部在线玩家
+     */
+    private void scheduleSweepBucket() {
+        int sweep = sweepInterval;
+        int effect = effectInterval;
+        if (sweep > 0) {
+            sweepSlots((int) (ticks % sweep), sweep, PlayerEquipmentState.MASK_ALL);
+        }
+        if (effect > 0) {
+            sweepSlots((int) (ticks % effect), effect, FLAG_APPLY_EFFECTS);
+        }
+    }
+
+    private void sweepSlots(int bucket, int interval, int mask) {
+        PlayerSessionRegistry sessions = plugin.getSessionRegistry();
+        for (int slot = bucket; slot < sessions.getCapacity(); slot += interval) {
+            PlayerSession session = sessions.get(slot);
+            if (session != null) {
+                enqueue(session, mask, sweepQueue);
+            }
+        }
+    }
+
+    private void process(Player player, int mask) {
+        try {
+            int slotMask = mask & PlayerEquipmentState.MASK_ALL;
+            // 护甲可能被点击以外的方式修改，属性刷新读取护甲时同时让装备限制标签重新读取
+            int armorSlots = EquippedTagState.fromEquipmentMask(slotMask);
+            if (armorSlots != 0) {
+                plugin.getEquipmentRestrictionManager().markArmorChanged(player, armorSlots);
+            }
+            // 属性效果依赖最新属性，等属性发布后再应用
+            Runnable applyEffects = (mask & FLAG_APPLY_EFFECTS) != 0
+                ? () -> plugin.getAttributeEffectListener().applyPlayerAttributeEffects(player)
+                : null;
+            if (slotMask != 0) {
+                // 缓存未命中的lore在解析线程池处理，不阻塞主线程
+                plugin.getAttributeManager().updatePlayerSlotsAsync(player, slotMask, applyEffects);
+            } else if (applyEffects != null) {
+                applyEffects.run();
+            }
+        } catch (Exception e) {
+            // 单个玩家出错不影响其他玩家
+            if (plugin.getConfigManager().getCompiled().isDebugAttributes()) {
+                plugin.getLogger().warning("更新玩家 " + player.getName() + " 属性时出错: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 清空统计数据
+     */
+    public void resetStats() {
+        processedCount = 0L;
+        deferredTicks = 0L;
+        lastDeferred = 0;
+        maxDeferred = 0;
+        lastTickNanos = 0L;
+        maxTickNanos = 0L;
+    }
+
+    /**
+     * 当前等待处理的玩家数量
+     */
+    public int getPendingCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * 调度器启动以来经过的tick数，可作为主线程上的tick编号
+     */
+    public long getCurrentTick() {
+        return ticks;
+    }
+
+    public int getSweepInterval() {
+        return sweepInterval;
+    }
+
+    public int getEffectInterval() {
+        return effectInterval;
+    }
+
+    /**
+     * 每tick处理时间预算（纳秒），0 表示不限制
+     */
+    public long getTickBudgetNanos() {
+        return tickBudgetNanos;
+    }
+
+    /**
+     * 累计处理的玩家刷新次数
+     */
+    public long getProcessedCount() {
+        return processedCount;
+    }
+
+    /**
+     * 因超出预算而留有未处理请求的tick数
+     */
+    public long getDeferredTicks() {
+        return deferredTicks;
+    }
+
+    /**
+     * 上一tick结束时顺延到下一tick的玩家数量
+     */
+    public int getLastDeferred() {
+        return lastDeferred;
+    }
+
+    public int getMaxDeferred() {
+        return maxDeferred;
+    }
+
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+}
@@ -0,0 +1,313 @@
+package dev.charlieveg.loreattribute.task;
+
+import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.data.AttributeVector;
+import dev.charlieveg.loreattribute.data.DerivedCombatProfile;
+import dev.charlieveg.loreattribute.manager.PlayerSession;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Arrays;
+
+/**
+ * FlansModule子弹登记表
+ * 子弹生成时登记射击者的会话、开火时的枪械属性与合并后的战斗数值，命中时按实体ID直接取出，
+ * 不再反射查询子弹主人、按名字查找玩家、重新合并属性，也不会读到命中时已经换掉的武器。
+ *
+ * 登记项按存活时间（Combat.Flans.BulletLifetime）放入时间轮，每tick只检查当前格的到期项。
+ * 没有登记的子弹（未触发生成事件）第一次命中时退回反射查询，结果随即登记，同一颗子弹后续命中直接使用。
+ * 只在主线程使用
+ *
+ * @author charlieveg
+ */
+public class BulletRegistry extends BukkitRunnable {
+
+    private static final int WHEEL_SIZE = 128;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final LoreAttributePlugin plugin;
+
+    // 实体ID -> 登记项，开放寻址（线性探测），删除时回移后续项，不留墓碑
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private Entry[] entries = new Entry[INITIAL_CAPACITY];
+    private int size;
+
+    // 时间轮，每格是一条到期时间落在该格的登记项链表
+    private final Entry[] wheel = new Entry[WHEEL_SIZE];
+    private long ticks;
+
+    private volatile int lifetimeTicks;
+
+    // 统计数据（只在主线程写入）
+    private volatile long registeredCount;
+    private volatile long hitCount;
+    private volatile long missCount;
+    private volatile long expiredCount;
+
+    public BulletRegistry(LoreAttributePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 读取配置并启动登记表，每tick执行一次
+     */
+    public void start() {
+        reload();
+        runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * 重新读取子弹存活时间（配置重载时调用），同时清空统计数据
+     */
+    public void reload() {
+        lifetimeTicks = plugin.getConfigManager().getCompiled().getBulletLifetimeTicks();
+        resetStats();
+    }
+
+    /**
+     * 登记子弹
+     *
+     * @param weaponAttributes 开火时的枪械属性，登记后不再修改
+     * @param attackerProfile  开火时射击者属性与枪械属性合并后的战斗数值
+     */
+    public void register(Entity bullet, Player shooter, PlayerSession session,
+                         AttributeVector weaponAttributes, DerivedCombatProfile attackerProfile) {
+        int entityId = bullet.getEntityId();
+        Entry entry = find(entityId);
+        if (entry == null) {
+            entry = new Entry(entityId);
+            insert(entityId, entry);
+        } else {
+            unlink(entry);
+        }
+        entry.shooter = shooter;
+        entry.session = session;
+        entry.weaponAttributes = weaponAttributes;
+        entry.attackerProfile = attackerProfile;
+        entry.expireTick = ticks + Math.max(1, lifetimeTicks);
+        link(entry);
+        registeredCount++;
+    }
+
+    /**
+     * 查找子弹的登记项，没有登记、已过期或射击者已退出时返回null
+     */
+    public Entry lookup(Entity bullet) {
+        Entry entry = find(bullet.getEntityId());
+        if (entry == null || entry.session.isClosed() || !entry.shooter.isOnline()) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry;
+    }
+
+    @Override
+    public void run() {
+        ticks++;
+        int bucket = (int) (ticks & (WHEEL_SIZE - 1));
+        Entry entry = wheel[bucket];
+        wheel[bucket] = null;
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.next = null;
+            if (entry.expireTick <= ticks) {
+                remove(entry.entityId);
+                expiredCount++;
+            } else {
+                // 存活时间超过一圈，留到下一圈
+                entry.next = wheel[bucket];
+                wheel[bucket] = entry;
+            }
+            entry = next;
+        }
+    }
+
+    /**
+     * 清空所有登记项（插件停用时调用）
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, null);
+        Arrays.fill(wheel, null);
+        size = 0;
+    }
+
+    private void link(Entry entry) {
+        int bucket = (int) (entry.expireTick & (WHEEL_SIZE - 1));
+        entry.next = wheel[bucket];
+        wheel[bucket] = entry;
+    }
+
+    private void unlink(Entry entry) {
+        int bucket = (int) (entry.expireTick & (WHEEL_SIZE - 1));
+        Entry previous = null;
+        for (Entry current = wheel[bucket]; current != null; previous = current, current = current.next) {
+            if (current == entry) {
+                if (previous == null) {
+                    wheel[bucket] = current.next;
+                } else {
+                    previous.next = current.next;
+                }
+                entry.next = null;
+                return;
+            }
+        }
+    }
+
+    private static int indexFor(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private Entry find(int key) {
+        int mask = keys.length - 1;
+        for (int i = indexFor(key, mask); entries[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return entries[i];
+            }
+        }
+        return null;
+    }
+
+    private void insert(int key, Entry entry) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int i = indexFor(key, mask);
+        while (entries[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        entries[i] = entry;
+        size++;
+    }
+
+    private void remove(int key) {
+        int mask = keys.length - 1;
+        int i = indexFor(key, mask);
+        while (entries[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (entries[i] == null) {
+            return;
+        }
+        entries[i] = null;
+        size--;
+
+        // 回移同一探测链上的后续项，保证查找不会提前遇到空位
+        for (int j = (i + 1) & mask; entries[j] != null; j = (j + 1) & mask) {
+            int home = indexFor(keys[j], mask);
+            boolean movable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+            if (movable) {
+                keys[i] = keys[j];
+                entries[i] = entries[j];
+                entries[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Entry[] oldEntries = entries;
+        keys = new int[oldKeys.length * 2];
+        entries = new Entry[oldEntries.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldEntries.length; i++) {
+            if (oldEntries[i] != null) {
+                int j = indexFor(oldKeys[i], mask);
+                while (entries[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                entries[j] = oldEntries[i];
+            }
+        }
+    }
+
+    /**
+     * 清空统计数据
+     */
+    public void resetStats() {
+        registeredCount = 0L;
+        hitCount = 0L;
+        missCount = 0L;
+        expiredCount = 0L;
+    }
+
+    public int getLifetimeTicks() {
+        return lifetimeTicks;
+    }
+
+    /**
+     * 当前登记的子弹数
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public long getRegisteredCount() {
+        return registeredCount;
+    }
+
+    /**
+     * 命中时在登记表中找到射击者的次数
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * 命中时没有登记、需要退回反射查询的次数
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+
+    /**
+     * 一颗子弹的登记项
+     */
+    public static final class Entry {
+        private final int entityId;
+        private Player shooter;
+        private PlayerSession session;
+        private AttributeVector weaponAttributes;
+        private DerivedCombatProfile attackerProfile;
+        private long expireTick;
+        // 时间轮同一格中的下一项
+        private Entry next;
+
+        private Entry(int entityId) {
+            this.entityId = entityId;
+        }
+
+        public Player getShooter() {
+            return shooter;
+        }
+
+        public PlayerSession getSession() {
+            return session;
+        }
+
+        /**
+         * 开火时的枪械属性，没有枪械时为 AttributeVector.EMPTY
+         */
+        public AttributeVector getWeaponAttributes() {
+            return weaponAttributes;
+        }
+
+        /**
+         * 开火时合并了枪械属性的射击者战斗数值
+         */
+        public DerivedCombatProfile getAttackerProfile() {
+            return attackerProfile;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package dev.charlieveg.loreattribute.task;
+
+import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.config.CompiledConfig;
+import dev.charlieveg.loreattribute.util.LongIntMap;
+import org.bukkit.Effect;
+import org.bukkit.Location;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 战斗特效分发器
+ * 战斗特效与音效统一经过这里逐个发送给附近玩家：
+ * 同一tick内相同位置的相同特效只发送一次，每个区块、每名玩家每tick能收到的特效数量有上限。
+ *
+ * 特效分为三个等级，服务器TPS下降或附近玩家过多时自动降低等级，调用方按等级决定播放哪些特效。
+ * 每tick执行一次，用于清空本tick的计数并估算TPS。
+ * 计数表以打包的long为键（区块坐标、方块坐标加特效类型、玩家实体ID），按世界分开存放，不装箱，每tick清空后复用。
+ * 只在主线程使用
+ *
+ * @author charlieveg
+ */
+public class CombatEffectDispatcher extends BukkitRunnable {
+
+    /**
+     * 完整特效
+     */
+    public static final int LEVEL_FULL = 0;
+
+    /**
+     * 精简特效：减少粒子数量，省略次要特效
+     */
+    public static final int LEVEL_REDUCED = 1;
+
+    /**
+     * 最低特效：只保留关键提示
+     */
+    public static final int LEVEL_MINIMAL = 2;
+
+    private static final double TICK_NANOS = 50_000_000.0;
+    // TPS估算的平滑系数，约等于最近20tick的平均值
+    private static final double TPS_SMOOTHING = 0.05;
+
+    // 音效在特效类型中的标记位，与特效的序号区分
+    private static final int SOUND_TYPE = 1 << 9;
+    private static final int TYPE_MASK = (1 << 10) - 1;
+    // 特效键中水平坐标占用的位数，超出范围的坐标会回绕，只会让相距很远的同类特效被合并
+    private static final int COORDINATE_BITS = 23;
+    private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final LoreAttributePlugin plugin;
+
+    // 各世界本tick的特效计数，世界数量很少，按顺序查找
+    private final List<WorldCounters> worlds = new ArrayList<>();
+    // 玩家实体ID -> 本tick收到的特效数据包数（实体ID在所有世界中唯一）
+    private final LongIntMap viewerCounts = new LongIntMap(INITIAL_CAPACITY);
+
+    private volatile boolean enabled;
+    private volatile int maxPerChunk;
+    private volatile int maxPerViewer;
+    private volatile double viewDistance;
+    private volatile double reducedTps;
+    private volatile double minimalTps;
+    private volatile int crowdedPlayers;
+
+    private long lastRun;
+    private double averageTickNanos = TICK_NANOS;
+    private volatile int globalLevel = LEVEL_FULL;
+
+    // 统计数据（只在主线程写入）
+    private volatile long sentPackets;
+    private volatile long mergedEffects;
+    private volatile long chunkLimited;
+    private volatile long viewerLimited;
+
+    public CombatEffectDispatcher(LoreAttributePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 读取配置并启动分发器，每tick执行一次
+     */
+    public void start() {
+        reload();
+        runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * 重新读取限流与降级设置（配置重载时调用），同时清空统计数据
+     */
+    public void reload() {
+        CompiledConfig config = plugin.getConfigManager().getCompiled();
+        enabled = config.isEffectsEnabled();
+        maxPerChunk = config.getEffectsMaxPerChunk();
+        maxPerViewer = config.getEffectsMaxPerViewer();
+        viewDistance = config.getEffectsViewDistance();
+        reducedTps = config.getEffectsReducedTps();
+        minimalTps = config.getEffectsMinimalTps();
+        crowdedPlayers = config.getEffectsCrowdedPlayers();
+        resetStats();
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        if (lastRun != 0L) {
+            averageTickNanos += (now - lastRun - averageTickNanos) * TPS_SMOOTHING;
+        }
+        lastRun = now;
+
+        double tps = getTps();
+        if (tps < minimalTps) {
+            globalLevel = LEVEL_MINIMAL;
+        } else if (tps < reducedTps) {
+            globalLevel = LEVEL_REDUCED;
+        } else {
+            globalLevel = LEVEL_FULL;
+        }
+
+        for (int i = 0; i < worlds.size(); i++) {
+            worlds.get(i).clear();
+        }
+        viewerCounts.clear();
+    }
+
+    /**
+     * 获取指定位置当前应使用的特效等级
+     * 以TPS决定的等级为基础，附近玩家超过 CrowdedPlayers 时再降低一级；同一区块在同一tick内只计算一次
+     */
+    public int getLevel(Location location) {
+        if (!enabled) {
+            return LEVEL_FULL;
+        }
+        int level = globalLevel;
+        if (crowdedPlayers <= 0 || level == LEVEL_MINIMAL) {
+            return level;
+        }
+
+        LongIntMap chunkLevels = countersFor(location.getWorld()).chunkLevels;
+        long chunkKey = chunkKey(location);
+        int cached = chunkLevels.get(chunkKey, -1);
+        if (cached >= 0) {
+            return cached;
+        }
+        if (countViewers(location, viewDistance) > crowdedPlayers) {
+            level++;
+        }
+        chunkLevels.put(chunkKey, level);
+        return level;
+    }
+
+    /**
+     * 播放特效
+     */
+    public void playEffect(Location location, Effect effect, int data) {
+        World world = location.getWorld();
+        if (!enabled) {
+            world.playEffect(location, effect, data);
+            return;
+        }
+        if (!admit(location, effect.ordinal() & TYPE_MASK)) {
+            return;
+        }
+
+        double maxDistanceSquared = viewDistance * viewDistance;
+        for (Player viewer : world.getPlayers()) {
+            if (canReceive(viewer, location, maxDistanceSquared)) {
+                viewer.playEffect(location, effect, data);
+            }
+        }
+    }
+
+    /**
+     * 播放音效，只发送给能听到的玩家（音量1时约16格）
+     */
+    public void playSound(Location location, Sound sound, float volume, float pitch) {
+        World world = location.getWorld();
+        if (!enabled) {
+            world.playSound(location, sound, volume, pitch);
+            return;
+        }
+        // 音效与特效使用不同的合并标识
+        if (!admit(location, (SOUND_TYPE | sound.ordinal()) & TYPE_MASK)) {
+            return;
+        }
+
+        double hearingDistance = Math.max(16.0, 16.0 * volume);
+        double maxDistanceSquared = hearingDistance * hearingDistance;
+        for (Player viewer : world.getPlayers()) {
+            if (canReceive(viewer, location, maxDistanceSquared)) {
+                viewer.playSound(location, sound, volume, pitch);
+            }
+        }
+    }
+
+    /**
+     * 合并重复特效并检查区块上限
+     */
+    private boolean admit(Location location, int type) {
+        WorldCounters counters = countersFor(location.getWorld());
+        if (!counters.sent.putIfAbsent(effectKey(location, type), 0)) {
+            mergedEffects++;
+            return false;
+        }
+
+        if (maxPerChunk > 0) {
+            long chunkKey = chunkKey(location);
+            if (counters.chunkCounts.get(chunkKey, 0) >= maxPerChunk) {
+                chunkLimited++;
+                return false;
+            }
+            counters.chunkCounts.increment(chunkKey);
+        }
+        return true;
+    }
+
+    /**
+     * 玩家是否在范围内且本tick还能接收特效
+     */
+    private boolean canReceive(Player viewer, Location location, double maxDistanceSquared) {
+        if (viewer.getLocation().distanceSquared(location) > maxDistanceSquared) {
+            return false;
+        }
+        if (maxPerViewer > 0) {
+            long viewerId = viewer.getEntityId();
+            if (viewerCounts.get(viewerId, 0) >= maxPerViewer) {
+                viewerLimited++;
+                return false;
+            }
+            viewerCounts.increment(viewerId);
+        }
+        sentPackets++;
+        return true;
+    }
+
+    private int countViewers(Location location, double distance) {
+        List<Player> players = location.getWorld().getPlayers();
+        double maxDistanceSquared = distance * distance;
+        int count = 0;
+        for (Player player : players) {
+            if (player.getLocation().distanceSquared(location) <= maxDistanceSquared) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 获取世界的计数表，第一次遇到的世界创建一份，之后一直复用
+     */
+    private WorldCounters countersFor(World world) {
+        UUID worldId = world.getUID();
+        for (int i = 0; i < worlds.size(); i++) {
+            WorldCounters counters = worlds.get(i);
+            if (counters.worldId.equals(worldId)) {
+                return counters;
+            }
+        }
+        WorldCounters counters = new WorldCounters(worldId);
+        worlds.add(counters);
+        return counters;
+    }
+
+    /**
+     * 区块坐标打包为 高32位X、低32位Z
+     */
+    private static long chunkKey(Location location) {
+        long chunkX = location.getBlockX() >> 4;
+        long chunkZ = location.getBlockZ() >> 4;
+        return chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 方块坐标与特效类型打包为 X(23位) Z(23位) Y(8位) 类型(10位)
+     */
+    private static long effectKey(Location location, int type) {
+        return ((long) location.getBlockX() & COORDINATE_MASK) << 41
+            | ((long) location.getBlockZ() & COORDINATE_MASK) << 18
+            | (location.getBlockY() & 0xFFL) << 10
+            | type;
+    }
+
+    /**
+     * 清空统计数据
+     */
+    public void resetStats() {
+        sentPackets = 0L;
+        mergedEffects = 0L;
+        chunkLimited = 0L;
+        viewerLimited = 0L;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 按最近的tick间隔估算的TPS
+     */
+    public double getTps() {
+        return Math.min(20.0, 1_000_000_000.0 / averageTickNanos);
+    }
+
+    /**
+     * 由TPS决定的特效等级（未计入附近玩家数量）
+     */
+    public int getGlobalLevel() {
+        return globalLevel;
+    }
+
+    public long getSentPackets() {
+        return sentPackets;
+    }
+
+    /**
+     * 因同一tick内重复而合并掉的特效数
+     */
+    public long getMergedEffects() {
+        return mergedEffects;
+    }
+
+    /**
+     * 因区块上限被丢弃的特效数
+     */
+    public long getChunkLimited() {
+        return chunkLimited;
+    }
+
+    /**
+     * 因玩家上限未发送的数据包数
+     */
+    public long getViewerLimited() {
+        return viewerLimited;
+    }
+
+    /**
+     * 一个世界本tick的特效计数
+     */
+    private static final class WorldCounters {
+        private final UUID worldId;
+        // 本tick已发送的特效（位置+类型），用于合并重复特效
+        private final LongIntMap sent = new LongIntMap(INITIAL_CAPACITY);
+        // 区块 -> 本tick已发送的特效数
+        private final LongIntMap chunkCounts = new LongIntMap(INITIAL_CAPACITY);
+        // 区块 -> 本tick的特效等级
+        private final LongIntMap chunkLevels = new LongIntMap(INITIAL_CAPACITY);
+
+        private WorldCounters(UUID worldId) {
+            this.worldId = worldId;
+        }
+
+        private void clear() {
+            sent.clear();
+            chunkCounts.clear();
+            chunkLevels.clear();
+        }
+    }
+}
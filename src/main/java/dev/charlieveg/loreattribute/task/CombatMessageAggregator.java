@@ -0,0 +1,167 @@
+package dev.charlieveg.loreattribute.task;
+
+import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.config.CompiledConfig;
+import dev.charlieveg.loreattribute.config.MessageTemplate;
+import dev.charlieveg.loreattribute.data.CombatMessage;
+import dev.charlieveg.loreattribute.data.CombatMessageBuffer;
+import dev.charlieveg.loreattribute.manager.PlayerSession;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 战斗提示合并器
+ * 战斗中的暴击、闪避、格挡、吸血、范围伤害等提示先按玩家和类型累计，
+ * 在一个短窗口（Combat.Messages.AggregateTicks）结束时合并成一行发送：
+ * 窗口内只出现一次的提示按原消息发送，出现多次的提示使用 Messages.Combat.Summary 中的汇总消息。
+ *
+ * 累计中的提示保存在玩家会话中，玩家退出时随会话清理，队列中残留的已关闭会话在到期时跳过。
+ * 消息使用配置快照中预编译的模板，发送时不再访问配置，也不做字符串替换。只在主线程使用
+ *
+ * @author charlieveg
+ */
+public class CombatMessageAggregator extends BukkitRunnable {
+
+    private final LoreAttributePlugin plugin;
+
+    // 等待发送的玩家会话，按到期时间排列
+    private final Deque<PlayerSession> dueQueue = new ArrayDeque<>();
+
+    private final MessageTemplate[] templates = new MessageTemplate[CombatMessage.COUNT];
+    private final MessageTemplate[] summaryTemplates = new MessageTemplate[CombatMessage.COUNT];
+    private String separator;
+    // 拼接合并消息时复用
+    private final StringBuilder lineBuilder = new StringBuilder(256);
+
+    private volatile int windowTicks;
+    private long ticks;
+
+    // 统计数据（只在主线程写入）
+    private volatile long queuedMessages;
+    private volatile long sentLines;
+
+    public CombatMessageAggregator(LoreAttributePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 读取配置并启动合并器，每tick执行一次
+     */
+    public void start() {
+        reload();
+        runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * 重新读取合并窗口与消息模板（配置重载时调用），同时清空统计数据
+     */
+    public void reload() {
+        CompiledConfig config = plugin.getConfigManager().getCompiled();
+        for (CombatMessage message : CombatMessage.values()) {
+            templates[message.ordinal()] = config.getCombatMessage(message);
+            summaryTemplates[message.ordinal()] = config.getCombatSummary(message);
+        }
+        separator = config.getSummarySeparator();
+        windowTicks = config.getMessageAggregateTicks();
+        queuedMessages = 0L;
+        sentLines = 0L;
+    }
+
+    /**
+     * 登记一条战斗提示
+     *
+     * @param value 提示中的数值，替换模板中的 {damage}
+     */
+    public void send(Player player, CombatMessage message, double value) {
+        int index = message.ordinal();
+        if (templates[index].isEmpty()) {
+            return; // 该提示已在配置中关闭
+        }
+        queuedMessages++;
+
+        // 没有会话的玩家（不在线）无法累计，直接发送
+        PlayerSession session = windowTicks > 0 ? plugin.getSessionRegistry().get(player) : null;
+        if (session == null) {
+            player.sendMessage(templates[index].render(value));
+            sentLines++;
+            return;
+        }
+
+        CombatMessageBuffer pending = session.getCombatMessages();
+        if (!pending.isScheduled()) {
+            pending.schedule(ticks + windowTicks);
+            dueQueue.add(session);
+        }
+        pending.add(message, value);
+    }
+
+    @Override
+    public void run() {
+        ticks++;
+        while (!dueQueue.isEmpty()) {
+            PlayerSession session = dueQueue.peek();
+            if (session.isClosed()) {
+                dueQueue.poll(); // 玩家已退出，累计的提示已随会话清理
+                continue;
+            }
+            CombatMessageBuffer pending = session.getCombatMessages();
+            if (pending.getDueTick() > ticks) {
+                break;
+            }
+            dueQueue.poll();
+            if (session.getPlayer().isOnline()) {
+                flush(session.getPlayer(), pending);
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * 把玩家累计的提示合并成一行发送
+     */
+    private void flush(Player player, CombatMessageBuffer pending) {
+        StringBuilder line = lineBuilder;
+        line.setLength(0);
+        for (int i = 0; i < CombatMessage.COUNT; i++) {
+            int count = pending.getCount(i);
+            if (count == 0) {
+                continue;
+            }
+            // 只出现一次时发送原消息；没有汇总消息时按合计值发送原消息
+            MessageTemplate template = count > 1 && !summaryTemplates[i].isEmpty() ? summaryTemplates[i] : templates[i];
+            if (line.length() > 0) {
+                line.append(separator);
+            }
+            double total = pending.getTotal(i);
+            template.appendTo(line, total, count, total);
+        }
+        if (line.length() > 0) {
+            player.sendMessage(line.toString());
+            sentLines++;
+        }
+    }
+
+    /**
+     * 窗口长度（tick），0 表示不合并
+     */
+    public int getWindowTicks() {
+        return windowTicks;
+    }
+
+    /**
+     * 累计登记的提示数
+     */
+    public long getQueuedMessages() {
+        return queuedMessages;
+    }
+
+    /**
+     * 累计实际发送的聊天消息数
+     */
+    public long getSentLines() {
+        return sentLines;
+    }
+}
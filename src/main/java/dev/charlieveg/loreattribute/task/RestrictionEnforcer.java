@@ -0,0 +1,237 @@
+package dev.charlieveg.loreattribute.task;
+
+import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.manager.EquipmentRestrictionManager;
+import dev.charlieveg.loreattribute.manager.EquippedTagState;
+import dev.charlieveg.loreattribute.manager.PlayerSession;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * 装备限制执行器
+ * 监听器只标记"玩家需要检查装备限制"，执行器每tick统一处理一次，
+ * 同一玩家在一个tick内无论点击多少次（如整理背包的mod连续发出几十次点击）都只检查一次。
+ *
+ * 卸下违规护甲或切换手持物品后不再调用 updateInventory() 重发整个背包，
+ * 服务端在玩家tick时会对比背包容器，只把发生变化的槽位发送给客户端。
+ * 只在主线程使用
+ *
+ * @author charlieveg
+ */
+public class RestrictionEnforcer extends BukkitRunnable {
+
+    private final LoreAttributePlugin plugin;
+
+    // 等待检查的玩家会话，每名玩家在会话标记清除前只入队一次；玩家退出后会话关闭，取出时跳过
+    private final ArrayDeque<PlayerSession> pending = new ArrayDeque<>();
+
+    // 统计数据（只在主线程写入）
+    private volatile long requestedCount;
+    private volatile long coalescedCount;
+    private volatile long validatedCount;
+    private volatile long violationCount;
+    private volatile int lastBatch;
+    private volatile int maxBatch;
+
+    public RestrictionEnforcer(LoreAttributePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 启动执行器，每tick执行一次
+     */
+    public void start() {
+        runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * 标记玩家需要检查装备限制，下一次执行时统一处理
+     *
+     * @param armorSlots 可能发生变化的护甲槽位（EquippedTagState 槽位掩码），检查前重新读取
+     */
+    public void requestValidation(Player player, int armorSlots) {
+        PlayerSession session = plugin.getSessionRegistry().get(player);
+        if (session == null) {
+            return;
+        }
+        session.addPendingArmorSlots(armorSlots);
+        requestedCount++;
+        if (session.isValidationPending()) {
+            coalescedCount++;
+            return;
+        }
+        session.setValidationPending(true);
+        pending.add(session);
+    }
+
+    @Override
+    public void run() {
+        int batch = pending.size();
+        if (batch == 0) {
+            lastBatch = 0;
+            return;
+        }
+
+        // 只处理本次开始时已在队列中的玩家，检查过程中产生的新请求留到下一tick
+        for (int i = 0; i < batch; i++) {
+            PlayerSession session = pending.poll();
+            Player player = session.getPlayer();
+            if (session.isClosed() || !player.isOnline()) {
+                continue;
+            }
+            session.setValidationPending(false);
+            // 事件触发时物品还没有移动，到这里才标记槽位，保证读到移动后的护甲
+            plugin.getEquipmentRestrictionManager().markArmorChanged(player, session.takePendingArmorSlots());
+            validatedCount++;
+            checkAndFixEquipmentViolations(player);
+        }
+
+        lastBatch = batch;
+        if (batch > maxBatch) {
+            maxBatch = batch;
+        }
+    }
+
+    /**
+     * 丢弃所有等待检查的请求（插件停用时调用）
+     */
+    public void clear() {
+        pending.clear();
+    }
+
+    /**
+     * 检查并修复装备违规
+     */
+    private void checkAndFixEquipmentViolations(Player player) {
+        EquipmentRestrictionManager restrictionManager = plugin.getEquipmentRestrictionManager();
+        PlayerInventory inventory = player.getInventory();
+
+        // 检查护甲，卸下后该槽位重新读取，后续槽位按卸下后的装备检查
+        if (restrictionManager.isArmorRestricted(player, EquippedTagState.SLOT_HELMET)) {
+            ItemStack helmet = inventory.getHelmet();
+            inventory.setHelmet(null);
+            restrictionManager.markArmorChanged(player, 1 << EquippedTagState.SLOT_HELMET);
+            returnItemToPlayer(player, helmet);
+            player.sendMessage("§c头盔违反装备限制规则，已自动卸下。");
+            violationCount++;
+        }
+
+        if (restrictionManager.isArmorRestricted(player, EquippedTagState.SLOT_CHESTPLATE)) {
+            ItemStack chestplate = inventory.getChestplate();
+            inventory.setChestplate(null);
+            restrictionManager.markArmorChanged(player, 1 << EquippedTagState.SLOT_CHESTPLATE);
+            returnItemToPlayer(player, chestplate);
+            player.sendMessage("§c胸甲违反装备限制规则，已自动卸下。");
+            violationCount++;
+        }
+
+        if (restrictionManager.isArmorRestricted(player, EquippedTagState.SLOT_LEGGINGS)) {
+            ItemStack leggings = inventory.getLeggings();
+            inventory.setLeggings(null);
+            restrictionManager.markArmorChanged(player, 1 << EquippedTagState.SLOT_LEGGINGS);
+            returnItemToPlayer(player, leggings);
+            player.sendMessage("§c护腿违反装备限制规则，已自动卸下。");
+            violationCount++;
+        }
+
+        if (restrictionManager.isArmorRestricted(player, EquippedTagState.SLOT_BOOTS)) {
+            ItemStack boots = inventory.getBoots();
+            inventory.setBoots(null);
+            restrictionManager.markArmorChanged(player, 1 << EquippedTagState.SLOT_BOOTS);
+            returnItemToPlayer(player, boots);
+            player.sendMessage("§c靴子违反装备限制规则，已自动卸下。");
+            violationCount++;
+        }
+
+        // 检查手持物品
+        ItemStack handItem = inventory.getItemInHand();
+        if (handItem != null && handItem.getType() != Material.AIR
+                && restrictionManager.isHandItemRestricted(player, handItem)) {
+            int allowedSlot = restrictionManager.findAllowedHotbarSlot(player);
+            if (allowedSlot != -1) {
+                inventory.setHeldItemSlot(allowedSlot);
+                player.sendMessage("§c手持物品违反装备限制规则，已自动切换。");
+            } else {
+                // 没有允许的物品，清空手持
+                inventory.setItemInHand(new ItemStack(Material.AIR));
+                returnItemToPlayer(player, handItem);
+                player.sendMessage("§c手持物品违反装备限制规则，已卸下。");
+            }
+            violationCount++;
+        }
+    }
+
+    /**
+     * 将物品返回给玩家背包
+     */
+    private void returnItemToPlayer(Player player, ItemStack item) {
+        if (item == null || item.getType() == Material.AIR) {
+            return;
+        }
+
+        PlayerInventory inventory = player.getInventory();
+
+        // 尝试放入背包
+        HashMap<Integer, ItemStack> leftover = inventory.addItem(item);
+
+        // 如果背包满了，掉落到地上
+        if (!leftover.isEmpty()) {
+            for (ItemStack leftoverItem : leftover.values()) {
+                player.getWorld().dropItemNaturally(player.getLocation(), leftoverItem);
+            }
+            player.sendMessage("§e背包已满，物品已掉落在地上。");
+        }
+    }
+
+    /**
+     * 清空统计数据
+     */
+    public void resetStats() {
+        requestedCount = 0L;
+        coalescedCount = 0L;
+        validatedCount = 0L;
+        violationCount = 0L;
+        lastBatch = 0;
+        maxBatch = 0;
+    }
+
+    /**
+     * 当前等待检查的玩家数
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getRequestedCount() {
+        return requestedCount;
+    }
+
+    /**
+     * 玩家已在等待检查、被合并掉的请求数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getValidatedCount() {
+        return validatedCount;
+    }
+
+    public long getViolationCount() {
+        return violationCount;
+    }
+
+    public int getLastBatch() {
+        return lastBatch;
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+}
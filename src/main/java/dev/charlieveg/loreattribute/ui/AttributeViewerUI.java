@@ -1,6 +1,8 @@
 package dev.charlieveg.loreattribute.ui;
 
 import dev.charlieveg.loreattribute.LoreAttributePlugin;
+import dev.charlieveg.loreattribute.data.AttributeKey;
+import dev.charlieveg.loreattribute.data.AttributeVector;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
@@ -11,8 +13,6 @@ import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Map;
 
 /**
  * 属性查看界面
@@ -176,21 +176,10 @@ public class AttributeViewerUI {
     }
     
     /**
-     * 获取物品类型
+     * 获取物品类型（读取缓存的物品描述）
      */
     private String getItemType(ItemStack item) {
-        if (item == null || !item.hasItemMeta() || !item.getItemMeta().hasLore()) {
-            return "";
-        }
-        
-        List<String> lore = item.getItemMeta().getLore();
-        for (String line : lore) {
-            String cleanLine = ChatColor.stripColor(line).trim();
-            if (cleanLine.startsWith("类型: ")) {
-                return cleanLine.substring(4).trim();
-            }
-        }
-        return "";
+        return LoreAttributePlugin.getInstance().getAttributeManager().describeItem(item).getType();
     }
     
     /**
@@ -219,26 +208,26 @@ public class AttributeViewerUI {
      * 设置基础属性显示
      */
     private void setupBasicAttributes(Inventory inventory, Player player) {
-        Map<String, Double> attributes = LoreAttributePlugin.getInstance().getAttributeManager().getCachedPlayerAttributes(player);
+        AttributeVector attributes = LoreAttributePlugin.getInstance().getAttributeManager().getPlayerAttributeVector(player);
         
         // 生命值
         ItemStack healthItem = createAttributeItem(Material.GOLDEN_APPLE, 
-            "&c生命值", "&7当前生命值加成", attributes.getOrDefault("health", 0.0));
+            "&c生命值", "&7当前生命值加成", attributes.get(AttributeKey.HEALTH));
         inventory.setItem(10, healthItem);
         
         // 攻击伤害
         ItemStack damageItem = createAttributeItem(Material.DIAMOND_SWORD, 
-            "&e攻击伤害", "&7当前攻击伤害加成", attributes.getOrDefault("damage", 0.0));
+            "&e攻击伤害", "&7当前攻击伤害加成", attributes.get(AttributeKey.DAMAGE));
         inventory.setItem(11, damageItem);
         
         // 移动速度
         ItemStack speedItem = createAttributeItem(Material.FEATHER, 
-            "&b移动速度", "&7当前移动速度加成", attributes.getOrDefault("moveSpeed", 0.0));
+            "&b移动速度", "&7当前移动速度加成", attributes.get(AttributeKey.MOVE_SPEED));
         inventory.setItem(12, speedItem);
         
         // 伤害减免
         ItemStack armorItem = createAttributeItem(Material.DIAMOND_CHESTPLATE, 
-            "&9伤害减免", "&7当前伤害减免加成", attributes.getOrDefault("armor", 0.0));
+            "&9伤害减免", "&7当前伤害减免加成", attributes.get(AttributeKey.ARMOR));
         inventory.setItem(13, armorItem);
     }
     
@@ -246,26 +235,26 @@ public class AttributeViewerUI {
      * 设置战斗属性显示
      */
     private void setupCombatAttributes(Inventory inventory, Player player) {
-        Map<String, Double> attributes = LoreAttributePlugin.getInstance().getAttributeManager().getCachedPlayerAttributes(player);
+        AttributeVector attributes = LoreAttributePlugin.getInstance().getAttributeManager().getPlayerAttributeVector(player);
         
         // 致命几率
         ItemStack critItem = createAttributeItem(Material.NETHER_STAR, 
-            "&6致命几率", "&7当前暴击几率", attributes.getOrDefault("crit", 0.0));
+            "&6致命几率", "&7当前暴击几率", attributes.get(AttributeKey.CRIT));
         inventory.setItem(19, critItem);
         
         // 致命伤害
         ItemStack critDamageItem = createAttributeItem(Material.BLAZE_POWDER, 
-            "&c致命伤害", "&7当前暴击伤害加成", attributes.getOrDefault("critDamage", 0.0));
+            "&c致命伤害", "&7当前暴击伤害加成", attributes.get(AttributeKey.CRIT_DAMAGE));
         inventory.setItem(20, critDamageItem);
         
         // 闪避几率
         ItemStack dodgeItem = createAttributeItem(Material.RAW_BEEF,
-            "&a闪避几率", "&7当前闪避几率", attributes.getOrDefault("dodge", 0.0));
+            "&a闪避几率", "&7当前闪避几率", attributes.get(AttributeKey.DODGE));
         inventory.setItem(21, dodgeItem);
         
         // 格挡几率
         ItemStack blockItem = createAttributeItem(Material.DIRT,
-            "&8格挡几率", "&7当前格挡几率", attributes.getOrDefault("block", 0.0));
+            "&8格挡几率", "&7当前格挡几率", attributes.get(AttributeKey.BLOCK));
         inventory.setItem(23, blockItem);
     }
     
@@ -273,26 +262,26 @@ public class AttributeViewerUI {
      * 设置特殊属性显示
      */
     private void setupSpecialAttributes(Inventory inventory, Player player) {
-        Map<String, Double> attributes = LoreAttributePlugin.getInstance().getAttributeManager().getCachedPlayerAttributes(player);
+        AttributeVector attributes = LoreAttributePlugin.getInstance().getAttributeManager().getPlayerAttributeVector(player);
         
         // 生命偷取
         ItemStack lifeStealItem = createAttributeItem(Material.GHAST_TEAR, 
-            "&d生命偷取", "&7攻击时恢复生命值", attributes.getOrDefault("lifeSteal", 0.0));
+            "&d生命偷取", "&7攻击时恢复生命值", attributes.get(AttributeKey.LIFE_STEAL));
         inventory.setItem(28, lifeStealItem);
         
         // 真实伤害
         ItemStack trueDamageItem = createAttributeItem(Material.ARROW, 
-            "&4真实伤害", "&7无视护甲的伤害", attributes.getOrDefault("trueDamage", 0.0));
+            "&4真实伤害", "&7无视护甲的伤害", attributes.get(AttributeKey.TRUE_DAMAGE));
         inventory.setItem(29, trueDamageItem);
         
         // 护甲穿透
         ItemStack armorBreakItem = createAttributeItem(Material.GOLD_PICKAXE, 
-            "&e护甲穿透", "&7穿透敌人护甲", attributes.getOrDefault("penetration", 0.0));
+            "&e护甲穿透", "&7穿透敌人护甲", attributes.get(AttributeKey.ARMOR_BREAK));
         inventory.setItem(30, armorBreakItem);
         
         // 生命恢复
         ItemStack healthHealItem = createAttributeItem(Material.GOLDEN_CARROT, 
-            "&2生命恢复", "&7持续恢复生命值", attributes.getOrDefault("healthHeal", 0.0));
+            "&2生命恢复", "&7持续恢复生命值", attributes.get(AttributeKey.HEALTH_HEAL));
         inventory.setItem(31, healthHealItem);
     }
     
@@ -0,0 +1,337 @@
+package dev.charlieveg.loreattribute.util;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单个世界的生物实体均匀网格
+ * 按固定边长把生物划分到立方体格子中，球形范围查询只检查与球相交的格子，
+ * 替代每次范围攻击都调用 getNearbyEntities 扫描区块实体列表
+ *
+ * 网格按tick重置，并且只收录查询范围覆盖到的区块：每次查询先补充尚未收录的区块，
+ * 同一tick内的多次查询共用已收录的区块，没有查询的tick不做任何工作，
+ * 范围伤害只读取中心附近几个区块的实体，不再遍历整个世界的生物列表。
+ * 实体位置在收录时记录，tick内实体不会移动，查询结果与实时位置一致。
+ * 数组在多次构建之间复用，只在实体数量增长时扩容。只能在主线程使用
+ *
+ * @author charlieveg
+ */
+public final class EntityGrid {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int COORDINATE_MASK = (1 << 21) - 1;
+
+    // 一次查询覆盖的区块超过该数量时直接收录整个世界的生物
+    private static final int MAX_QUERY_CHUNKS = 256;
+
+    private final double cellSize;
+    private final double inverseCellSize;
+
+    // 实体及其构建时的坐标，next 串起同一格子中的实体
+    private LivingEntity[] entities = new LivingEntity[INITIAL_CAPACITY];
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private double[] zs = new double[INITIAL_CAPACITY];
+    private int[] next = new int[INITIAL_CAPACITY];
+    private int count;
+
+    // 格子坐标 -> 链表头（开放寻址，cellHeads 中存 下标+1，0 表示空位）
+    private long[] cellKeys = new long[INITIAL_CAPACITY * 2];
+    private int[] cellHeads = new int[INITIAL_CAPACITY * 2];
+    private int cellCount;
+
+    // 本tick已收录的区块坐标（开放寻址，chunkUsed 标记占用）
+    private long[] chunkKeys = new long[INITIAL_CAPACITY];
+    private boolean[] chunkUsed = new boolean[INITIAL_CAPACITY];
+    private int chunkCount;
+    // 本tick是否已经收录整个世界
+    private boolean wholeWorld;
+
+    private World world;
+    private long builtTick = -1L;
+    private Location scratch;
+
+    public EntityGrid(double cellSize) {
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1.0 / cellSize;
+    }
+
+    /**
+     * 是否已经为指定tick重置过
+     */
+    public boolean isBuiltFor(long tick) {
+        return builtTick == tick;
+    }
+
+    /**
+     * 清空上一tick收录的实体，准备在指定tick按需收录区块
+     */
+    public void rebuild(World world, long tick) {
+        clear();
+        this.world = world;
+        if (scratch == null || scratch.getWorld() != world) {
+            scratch = new Location(world, 0, 0, 0);
+        }
+        builtTick = tick;
+    }
+
+    /**
+     * 查询球形范围内（按脚下坐标计算）仍然存活的生物
+     * 范围覆盖的区块本tick尚未收录时先收录
+     *
+     * @param out 结果追加到该列表，调用方可复用同一个列表
+     */
+    public void queryRadius(double x, double y, double z, double radius, List<LivingEntity> out) {
+        double radiusSquared = radius * radius;
+        ensureChunks(x, z, radius);
+
+        int minX = cell(x - radius);
+        int maxX = cell(x + radius);
+        int minY = cell(y - radius);
+        int maxY = cell(y + radius);
+        int minZ = cell(z - radius);
+        int maxZ = cell(z + radius);
+
+        long span = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        if (span > cellCount) {
+            // 范围覆盖的格子比实际存在的格子还多，直接遍历全部实体更快
+            for (int i = 0; i < count; i++) {
+                collect(i, x, y, z, radiusSquared, out);
+            }
+            return;
+        }
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    for (int i = findHead(key(cx, cy, cz)); i >= 0; i = next[i]) {
+                        collect(i, x, y, z, radiusSquared, out);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空网格并释放对实体的引用
+     */
+    public void clear() {
+        Arrays.fill(entities, 0, count, null);
+        Arrays.fill(cellHeads, 0);
+        Arrays.fill(chunkUsed, false);
+        count = 0;
+        cellCount = 0;
+        chunkCount = 0;
+        wholeWorld = false;
+        world = null;
+        builtTick = -1L;
+    }
+
+    /**
+     * 收录范围覆盖的、本tick尚未收录的已加载区块
+     */
+    private void ensureChunks(double x, double z, double radius) {
+        if (wholeWorld) {
+            return;
+        }
+        int minChunkX = (int) Math.floor(x - radius) >> 4;
+        int maxChunkX = (int) Math.floor(x + radius) >> 4;
+        int minChunkZ = (int) Math.floor(z - radius) >> 4;
+        int maxChunkZ = (int) Math.floor(z + radius) >> 4;
+
+        long span = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+        if (span > MAX_QUERY_CHUNKS) {
+            addWholeWorld();
+            return;
+        }
+
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                if (markChunk(chunkKey(chunkX, chunkZ)) && world.isChunkLoaded(chunkX, chunkZ)) {
+                    addChunk(world.getChunkAt(chunkX, chunkZ).getEntities());
+                }
+            }
+        }
+    }
+
+    private void addChunk(Entity[] chunkEntities) {
+        ensureCapacity(count + chunkEntities.length);
+        for (Entity entity : chunkEntities) {
+            if (entity instanceof LivingEntity && !entity.isDead()) {
+                Location location = entity.getLocation(scratch);
+                insert((LivingEntity) entity, location.getX(), location.getY(), location.getZ());
+            }
+        }
+    }
+
+    /**
+     * 范围过大时丢弃已收录的区块，改为收录整个世界的生物
+     */
+    private void addWholeWorld() {
+        Arrays.fill(entities, 0, count, null);
+        Arrays.fill(cellHeads, 0);
+        count = 0;
+        cellCount = 0;
+        wholeWorld = true;
+
+        List<LivingEntity> living = world.getLivingEntities();
+        ensureCapacity(living.size());
+        for (LivingEntity entity : living) {
+            if (entity.isDead()) {
+                continue;
+            }
+            Location location = entity.getLocation(scratch);
+            insert(entity, location.getX(), location.getY(), location.getZ());
+        }
+    }
+
+    /**
+     * 标记区块为已收录
+     *
+     * @return 本tick之前是否尚未收录
+     */
+    private boolean markChunk(long key) {
+        if ((chunkCount + 1) * 2 > chunkKeys.length) {
+            growChunks();
+        }
+        int mask = chunkKeys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (chunkUsed[slot]) {
+            if (chunkKeys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        chunkKeys[slot] = key;
+        chunkUsed[slot] = true;
+        chunkCount++;
+        return true;
+    }
+
+    private void growChunks() {
+        long[] oldKeys = chunkKeys;
+        boolean[] oldUsed = chunkUsed;
+        chunkKeys = new long[oldKeys.length * 2];
+        chunkUsed = new boolean[oldUsed.length * 2];
+        chunkCount = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                markChunk(oldKeys[i]);
+            }
+        }
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private void collect(int index, double x, double y, double z, double radiusSquared, List<LivingEntity> out) {
+        double dx = xs[index] - x;
+        double dy = ys[index] - y;
+        double dz = zs[index] - z;
+        if (dx * dx + dy * dy + dz * dz <= radiusSquared && !entities[index].isDead()) {
+            out.add(entities[index]);
+        }
+    }
+
+    private void insert(LivingEntity entity, double x, double y, double z) {
+        int index = count++;
+        entities[index] = entity;
+        xs[index] = x;
+        ys[index] = y;
+        zs[index] = z;
+
+        long key = key(cell(x), cell(y), cell(z));
+        int slot = slot(key);
+        while (cellHeads[slot] != 0 && cellKeys[slot] != key) {
+            slot = (slot + 1) & (cellKeys.length - 1);
+        }
+        if (cellHeads[slot] == 0) {
+            cellKeys[slot] = key;
+            cellCount++;
+            next[index] = -1;
+        } else {
+            next[index] = cellHeads[slot] - 1;
+        }
+        cellHeads[slot] = index + 1;
+    }
+
+    private int findHead(long key) {
+        int slot = slot(key);
+        while (cellHeads[slot] != 0) {
+            if (cellKeys[slot] == key) {
+                return cellHeads[slot] - 1;
+            }
+            slot = (slot + 1) & (cellKeys.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * 保证能容纳指定数量的实体，格子表容量保持在实体数量的两倍以上（格子数不会超过实体数）
+     * 扩容时保留已收录的实体与格子
+     */
+    private void ensureCapacity(int size) {
+        if (size > entities.length) {
+            int capacity = Integer.highestOneBit(size - 1) << 1;
+            entities = Arrays.copyOf(entities, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        if (size * 2 > cellKeys.length) {
+            int capacity = Integer.highestOneBit(size * 2 - 1) << 1;
+            long[] oldKeys = cellKeys;
+            int[] oldHeads = cellHeads;
+            cellKeys = new long[capacity];
+            cellHeads = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldHeads[i] != 0) {
+                    int slot = slot(oldKeys[i]);
+                    while (cellHeads[slot] != 0) {
+                        slot = (slot + 1) & (capacity - 1);
+                    }
+                    cellKeys[slot] = oldKeys[i];
+                    cellHeads[slot] = oldHeads[i];
+                }
+            }
+        }
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate * inverseCellSize);
+    }
+
+    private static long key(int cx, int cy, int cz) {
+        return ((long) (cx & COORDINATE_MASK) << 42) | ((long) (cz & COORDINATE_MASK) << 21) | (cy & COORDINATE_MASK);
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (cellKeys.length - 1);
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * 本tick已收录的实体数量
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 本tick已收录的区块数量
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+}
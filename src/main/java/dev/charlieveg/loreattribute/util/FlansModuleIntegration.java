@@ -1,26 +1,42 @@
 package dev.charlieveg.loreattribute.util;
 
+import dev.charlieveg.loreattribute.data.AttributeKey;
+import dev.charlieveg.loreattribute.data.AttributeVector;
+import dev.charlieveg.loreattribute.data.ItemDescriptor;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * FlansModule集成工具类
  * 参考BigAttribute的实现，提供正确的FlansModule支持
  * 
+ * FlansAPI 的方法在初始化时绑定为 MethodHandle，调用时不再反射查找；
+ * 枪械判定按物品ID缓存在位图中，同一种物品只询问一次 FlansAPI
+ * 
  * @author charlieveg
  */
 public class FlansModuleIntegration {
     
+    // 1.7.10 的物品ID范围
+    private static final int MAX_ITEM_ID = 32000;
+    
     private static boolean flansModuleAvailable = false;
-    private static Class<?> bulletHandlerClass;
-    private static Object bulletHandlerInstance;
-    private static Method getBulletOwnerMethod;
+    // BulletHandler.getBulletOwner(String) -> 玩家名，已绑定到处理器实例
+    private static MethodHandle getBulletOwnerHandle;
+    // ItemHandler.isGun(int) -> boolean，已绑定到处理器实例；FlansAPI 不提供时为null
+    private static MethodHandle isGunHandle;
+    
+    // 物品ID -> 是否已询问过 FlansAPI / 是否为枪械
+    private static final AtomicLongArray checkedTypes = new AtomicLongArray((MAX_ITEM_ID + 63) >>> 6);
+    private static final AtomicLongArray gunTypes = new AtomicLongArray((MAX_ITEM_ID + 63) >>> 6);
     
     static {
         init();
@@ -30,24 +46,54 @@ public class FlansModuleIntegration {
      * 初始化FlansModule集成
      */
     public static void init() {
+        flansModuleAvailable = false;
+        getBulletOwnerHandle = null;
+        isGunHandle = null;
+        clearGunCache();
+        
         try {
             // 首先检查FlansModule是否存在
             Class.forName("com.flansmod.common.guns.EntityBullet");
-            
-            // 尝试初始化FlansAPI BulletHandler
-            try {
-                bulletHandlerClass = Class.forName("flansapi.handlers.BulletHandler");
-                bulletHandlerInstance = bulletHandlerClass.newInstance();
-                getBulletOwnerMethod = bulletHandlerClass.getMethod("getBulletOwner", String.class);
-                flansModuleAvailable = true;
-                Bukkit.getLogger().info("[LoreAttribute] 成功加载FlansAPI BulletHandler");
-            } catch (Exception e) {
-                flansModuleAvailable = false;
-                Bukkit.getLogger().warning("[LoreAttribute] 无法加载FlansAPI BulletHandler: " + e.getMessage());
-            }
         } catch (ClassNotFoundException e) {
-            flansModuleAvailable = false;
             Bukkit.getLogger().info("[LoreAttribute] FlansModule未检测到");
+            return;
+        }
+        
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        
+        // 尝试初始化FlansAPI BulletHandler
+        try {
+            Class<?> bulletHandlerClass = Class.forName("flansapi.handlers.BulletHandler");
+            Object bulletHandler = bulletHandlerClass.newInstance();
+            getBulletOwnerHandle = lookup.unreflect(bulletHandlerClass.getMethod("getBulletOwner", String.class))
+                .bindTo(bulletHandler)
+                .asType(MethodType.methodType(Object.class, String.class));
+            flansModuleAvailable = true;
+            Bukkit.getLogger().info("[LoreAttribute] 成功加载FlansAPI BulletHandler");
+        } catch (Exception e) {
+            Bukkit.getLogger().warning("[LoreAttribute] 无法加载FlansAPI BulletHandler: " + e.getMessage());
+            return;
+        }
+        
+        // ItemHandler 不可用时按物品名称判断枪械
+        try {
+            Class<?> itemHandlerClass = Class.forName("flansapi.handlers.ItemHandler");
+            Object itemHandler = itemHandlerClass.newInstance();
+            isGunHandle = lookup.unreflect(itemHandlerClass.getMethod("isGun", int.class))
+                .bindTo(itemHandler)
+                .asType(MethodType.methodType(boolean.class, int.class));
+        } catch (Exception e) {
+            Bukkit.getLogger().warning("[LoreAttribute] 无法加载FlansAPI ItemHandler，按物品名称判断枪械: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 清空枪械判定缓存
+     */
+    public static void clearGunCache() {
+        for (int i = 0; i < checkedTypes.length(); i++) {
+            checkedTypes.set(i, 0L);
+            gunTypes.set(i, 0L);
         }
     }
     
@@ -81,18 +127,18 @@ public class FlansModuleIntegration {
      * 参考BAFlansBulletUtil.getBulletShooter()
      */
     public static Player getBulletShooter(Entity bulletEntity) {
-        if (bulletEntity == null || !flansModuleAvailable || 
-            bulletHandlerInstance == null || getBulletOwnerMethod == null) {
+        MethodHandle getBulletOwner = getBulletOwnerHandle;
+        if (bulletEntity == null || !flansModuleAvailable || getBulletOwner == null) {
             return null;
         }
         
         try {
             String uuid = bulletEntity.getUniqueId().toString();
-            String playerName = (String) getBulletOwnerMethod.invoke(bulletHandlerInstance, uuid);
+            Object playerName = (Object) getBulletOwner.invokeExact(uuid);
             if (playerName != null) {
-                return Bukkit.getPlayerExact(playerName);
+                return Bukkit.getPlayerExact(playerName.toString());
             }
-        } catch (Exception e) {
+        } catch (Throwable e) {
             Bukkit.getLogger().warning("[LoreAttribute] 获取子弹射击者时出错: " + e.getMessage());
         }
         
@@ -113,51 +159,66 @@ public class FlansModuleIntegration {
     
     /**
      * 检查物品是否为FlansModule枪械
+     * FlansAPI 可用时只按物品ID查询位图，首次遇到的物品ID询问一次 FlansAPI 后缓存
      */
     public static boolean isFlansGun(ItemStack item) {
         if (!flansModuleAvailable || item == null) {
             return false;
         }
         
+        MethodHandle isGun = isGunHandle;
+        if (isGun == null) {
+            // FlansAPI ItemHandler 不可用，使用fallback检查
+            return isGunByName(item);
+        }
+        
+        int typeId = item.getTypeId();
+        if (typeId < 0 || typeId >= MAX_ITEM_ID) {
+            return queryIsGun(isGun, typeId);
+        }
+        
+        int word = typeId >>> 6;
+        long bit = 1L << typeId;
+        if ((checkedTypes.get(word) & bit) != 0) {
+            return (gunTypes.get(word) & bit) != 0;
+        }
+        
+        boolean gun = queryIsGun(isGun, typeId);
+        // 先写入结果再标记已检查，读取方看到已检查时结果一定可见
+        if (gun) {
+            gunTypes.accumulateAndGet(word, bit, (current, mask) -> current | mask);
+        }
+        checkedTypes.accumulateAndGet(word, bit, (current, mask) -> current | mask);
+        return gun;
+    }
+    
+    private static boolean queryIsGun(MethodHandle isGun, int typeId) {
         try {
-            // 通过反射检查是否为FlansModule枪械
-            Class<?> itemGunClass = Class.forName("com.flansmod.common.guns.ItemGun");
-            
-            // 使用FlansAPI ItemHandler检查
-            try {
-                Class<?> itemHandlerClass = Class.forName("flansapi.handlers.ItemHandler");
-                Object itemHandler = itemHandlerClass.newInstance();
-                Method isGunMethod = itemHandlerClass.getMethod("isGun", int.class);
-                Boolean isGun = (Boolean) isGunMethod.invoke(itemHandler, item.getTypeId());
-                if (isGun != null && isGun) {
-                    return true;
-                }
-            } catch (Exception e) {
-                // FlansAPI不可用，使用fallback检查
-            }
-            
-            // 备用检查：通过物品名称判断
-            if (item.hasItemMeta() && item.getItemMeta().hasDisplayName()) {
-                String itemName = item.getItemMeta().getDisplayName().toLowerCase();
-                if (itemName.contains("枪") || itemName.contains("gun") || 
-                    itemName.contains("rifle") || itemName.contains("pistol") || 
-                    itemName.contains("sniper") || itemName.contains("shotgun")) {
-                    return true;
-                }
-            }
-            
-            return false;
-        } catch (Exception e) {
+            return (boolean) isGun.invokeExact(typeId);
+        } catch (Throwable e) {
             return false;
         }
     }
     
+    /**
+     * 备用检查：通过物品名称判断
+     */
+    private static boolean isGunByName(ItemStack item) {
+        if (item.hasItemMeta() && item.getItemMeta().hasDisplayName()) {
+            String itemName = item.getItemMeta().getDisplayName().toLowerCase();
+            return itemName.contains("枪") || itemName.contains("gun") || 
+                itemName.contains("rifle") || itemName.contains("pistol") || 
+                itemName.contains("sniper") || itemName.contains("shotgun");
+        }
+        return false;
+    }
+    
     /**
      * 从FlansModule枪械提取属性（用于子弹伤害）
      * 这个方法专门用于子弹实体伤害时的属性提取
      */
-    public static Map<String, Double> extractFlansGunAttributes(ItemStack gunItem) {
-        Map<String, Double> attributes = new HashMap<>();
+    public static AttributeVector extractFlansGunAttributes(ItemStack gunItem) {
+        AttributeVector attributes = new AttributeVector();
         
         if (!isFlansGun(gunItem)) {
             return attributes;
@@ -166,9 +227,7 @@ public class FlansModuleIntegration {
         try {
 
             if (gunItem.hasItemMeta() && gunItem.getItemMeta().hasLore()) {
-                for (String lore : gunItem.getItemMeta().getLore()) {
-                    parseAttributeFromLore(lore, attributes);
-                }
+                parseGunLore(gunItem.getItemMeta().getLore(), attributes);
             }
             
         } catch (Exception e) {
@@ -178,17 +237,50 @@ public class FlansModuleIntegration {
         return attributes;
     }
     
+    /**
+     * 获取物品描述对应的枪械属性（用于子弹伤害）
+     * 结果随物品描述按lore指纹缓存，同一把枪持续开火时复用同一个只读向量，不再重复解析lore
+     * 调用方需先用 isFlansGun 确认物品是枪械
+     * 
+     * @return 只读的枪械属性
+     */
+    public static AttributeVector getGunAttributes(ItemDescriptor descriptor) {
+        AttributeVector attributes = descriptor.getFlansGunAttributes();
+        if (attributes != null) {
+            return attributes;
+        }
+        
+        // 并发首次调用可能各自解析一次，结果相同，无需加锁
+        attributes = new AttributeVector();
+        try {
+            parseGunLore(descriptor.getCleanLore(), attributes);
+        } catch (Exception e) {
+            Bukkit.getLogger().warning("[LoreAttribute] 提取FlansModule枪械属性时出错: " + e.getMessage());
+        }
+        if (attributes.isEmpty()) {
+            attributes = AttributeVector.EMPTY;
+        }
+        descriptor.setFlansGunAttributes(attributes);
+        return attributes;
+    }
+    
+    private static void parseGunLore(List<String> lore, AttributeVector attributes) {
+        for (String line : lore) {
+            parseAttributeFromLore(line, attributes);
+        }
+    }
+    
     /**
      * 从lore解析属性
      */
-    private static void parseAttributeFromLore(String lore, Map<String, Double> attributes) {
+    private static void parseAttributeFromLore(String lore, AttributeVector attributes) {
         lore = lore.replaceAll("§[0-9a-fk-or]", ""); // 移除颜色代码
         
         // 解析各种属性
         if (lore.contains("伤害") || lore.contains("攻击")) {
             try {
                 double damage = Double.parseDouble(lore.replaceAll("[^0-9.]", ""));
-                attributes.put("damage", damage);
+                attributes.set(AttributeKey.DAMAGE, damage);
             } catch (NumberFormatException ignored) {}
         }
         
@@ -200,7 +292,7 @@ public class FlansModuleIntegration {
                 String[] parts = lore.split(":");
                 if (parts.length > 1) {
                     double crit = Double.parseDouble(parts[1].replaceAll("[^0-9.]", ""));
-                    attributes.put("crit", crit);
+                    attributes.set(AttributeKey.CRIT, crit);
                 }
             } catch (NumberFormatException ignored) {}
         }
@@ -208,7 +300,7 @@ public class FlansModuleIntegration {
         if (lore.contains("穿透")) {
             try {
                 double armor = Double.parseDouble(lore.replaceAll("[^0-9.]", ""));
-                attributes.put("armorBreak", armor);
+                attributes.set(AttributeKey.ARMOR_BREAK, armor);
             } catch (NumberFormatException ignored) {}
         }
     }
@@ -0,0 +1,145 @@
+package dev.charlieveg.loreattribute.util;
+
+/**
+ * long -> int 的开放寻址映射表（线性探测）
+ * 键和值都不装箱，放入与查询不分配对象，适合每tick清空一次的计数表。
+ * clear() 只重置本轮用过的槽位，耗时与上一轮的条目数成正比，与容量无关。
+ * 不支持单独删除，不是线程安全的
+ *
+ * @author charlieveg
+ */
+public final class LongIntMap {
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    // 按放入顺序记录占用的槽位，用于快速清空
+    private int[] usedSlots;
+    private int size;
+
+    /**
+     * @param expectedSize 预计的条目数，超过后自动扩容
+     */
+    public LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * 获取键对应的值，不存在时返回 missing
+     */
+    public int get(long key, int missing) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return missing;
+    }
+
+    public boolean containsKey(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void put(long key, int value) {
+        // 先完成插入（可能扩容），再读取 values 数组
+        int slot = findOrInsert(key);
+        values[slot] = value;
+    }
+
+    /**
+     * 键不存在时放入给定值
+     *
+     * @return 是否放入了新条目
+     */
+    public boolean putIfAbsent(long key, int value) {
+        int before = size;
+        int slot = findOrInsert(key);
+        if (size == before) {
+            return false;
+        }
+        values[slot] = value;
+        return true;
+    }
+
+    /**
+     * 键对应的值加1，键不存在时视为0
+     *
+     * @return 加1后的值
+     */
+    public int increment(long key) {
+        int slot = findOrInsert(key);
+        return ++values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 清空全部条目，保留容量
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            used[usedSlots[i]] = false;
+        }
+        size = 0;
+    }
+
+    private int findOrInsert(long key) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = 0;
+        used[slot] = true;
+        usedSlots[size++] = slot;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int[] oldSlots = usedSlots;
+        int oldSize = size;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldSize; i++) {
+            int oldSlot = oldSlots[i];
+            int slot = findOrInsert(oldKeys[oldSlot]);
+            values[slot] = oldValues[oldSlot];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        // 负载不超过一半，占用的槽位数不会超过容量的一半
+        usedSlots = new int[capacity / 2];
+        size = 0;
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+}
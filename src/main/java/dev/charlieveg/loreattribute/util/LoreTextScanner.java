@@ -0,0 +1,169 @@
+package dev.charlieveg.loreattribute.util;
+
+/**
+ * lore文本扫描工具
+ * 手写的颜色代码过滤与数值扫描，替代解析热路径上的正则表达式
+ *
+ * @author charlieveg
+ */
+public final class LoreTextScanner {
+
+    private static final char COLOR_CHAR = '§';
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // 2^53，低于该值的整数可以被double精确表示
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private LoreTextScanner() {
+    }
+
+    /**
+     * 移除颜色代码并去除首尾空白，与 ChatColor.stripColor(line).trim() 结果一致
+     * 不含颜色代码时不会产生新字符串
+     */
+    public static String stripColorAndTrim(String line) {
+        if (line.indexOf(COLOR_CHAR) < 0) {
+            return line.trim();
+        }
+
+        StringBuilder builder = new StringBuilder(line.length());
+        for (int i = 0, n = line.length(); i < n; i++) {
+            char c = line.charAt(i);
+            if (c == COLOR_CHAR && i + 1 < n && isColorCode(line.charAt(i + 1))) {
+                i++;
+                continue;
+            }
+            builder.append(c);
+        }
+        return builder.toString().trim();
+    }
+
+    private static boolean isColorCode(char c) {
+        return (c >= '0' && c <= '9')
+            || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')
+            || (c >= 'k' && c <= 'o') || (c >= 'K' && c <= 'O')
+            || c == 'r' || c == 'R';
+    }
+
+    /**
+     * 查找 "名称: 数值" 格式中的分隔符位置
+     * 等价于正则 (.+?): ([+-]?\d+(?:\.\d+)?) 的首个匹配
+     *
+     * @return 冒号所在位置，不匹配时返回-1
+     */
+    public static int findAttributeSeparator(String line) {
+        int n = line.length();
+        for (int i = line.indexOf(':', 1); i >= 0 && i + 2 < n; i = line.indexOf(':', i + 1)) {
+            if (line.charAt(i + 1) == ' ' && isNumberStart(line, i + 2)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找第一个数值的起始位置（包含紧邻的正负号）
+     * 等价于正则 [+-]?\d+ 的首个匹配位置
+     *
+     * @return 数值起始位置，没有数值时返回-1
+     */
+    public static int findNumberStart(String line, int from) {
+        for (int i = from, n = line.length(); i < n; i++) {
+            if (isDigit(line.charAt(i))) {
+                if (i > from && isSign(line.charAt(i - 1))) {
+                    return i - 1;
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 从指定位置解析数值，格式为 [+-]?\d+(\.\d+)?
+     * 调用方需保证该位置确实是数值起点
+     */
+    public static double parseNumber(String line, int start) {
+        int n = line.length();
+        int i = start;
+        boolean negative = false;
+        char first = line.charAt(i);
+        if (isSign(first)) {
+            negative = first == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+
+        while (i < n && isDigit(line.charAt(i))) {
+            mantissa = mantissa * 10 + (line.charAt(i) - '0');
+            digits++;
+            i++;
+            if (digits > 18) {
+                return fallbackParse(line, start);
+            }
+        }
+
+        // 小数点后必须至少有一位数字
+        if (i + 1 < n && line.charAt(i) == '.' && isDigit(line.charAt(i + 1))) {
+            i++;
+            while (i < n && isDigit(line.charAt(i))) {
+                mantissa = mantissa * 10 + (line.charAt(i) - '0');
+                digits++;
+                fractionDigits++;
+                i++;
+                if (digits > 18) {
+                    return fallbackParse(line, start);
+                }
+            }
+        }
+
+        if (mantissa >= MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+            return fallbackParse(line, start);
+        }
+
+        // 尾数与10的幂均可精确表示，一次除法即得到正确舍入的结果
+        double value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static double fallbackParse(String line, int start) {
+        int end = start;
+        int n = line.length();
+        if (isSign(line.charAt(end))) {
+            end++;
+        }
+        while (end < n && isDigit(line.charAt(end))) {
+            end++;
+        }
+        if (end + 1 < n && line.charAt(end) == '.' && isDigit(line.charAt(end + 1))) {
+            end++;
+            while (end < n && isDigit(line.charAt(end))) {
+                end++;
+            }
+        }
+        return Double.parseDouble(line.substring(start, end));
+    }
+
+    private static boolean isNumberStart(String line, int index) {
+        char c = line.charAt(index);
+        if (isDigit(c)) {
+            return true;
+        }
+        return isSign(c) && index + 1 < line.length() && isDigit(line.charAt(index + 1));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSign(char c) {
+        return c == '+' || c == '-';
+    }
+}
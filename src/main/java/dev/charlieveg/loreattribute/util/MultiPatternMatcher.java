@@ -0,0 +1,310 @@
+package dev.charlieveg.loreattribute.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 多模式字符串匹配器（Aho-Corasick自动机）
+ * 一次扫描文本即可找出所有已注册的关键字，构建完成后只读，可被多线程共享
+ *
+ * @author charlieveg
+ */
+public final class MultiPatternMatcher<T> {
+
+    private static final int NO_STATE = -1;
+
+    // 转移表：开放寻址哈希，键为 (状态 << 16 | 字符)
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    private final int transitionMask;
+
+    private final int[] fail;
+    // 以该状态结尾的模式编号（-1表示无）
+    private final int[] terminal;
+    // 沿失败链可达的下一个终止状态（-1表示无）
+    private final int[] dictionaryLink;
+    // 该状态及其失败链上最长模式的编号
+    private final int[] longest;
+
+    private final int[] patternLengths;
+    private final List<T> values;
+
+    private MultiPatternMatcher(long[] transitionKeys, int[] transitionTargets, int[] fail, int[] terminal,
+                                int[] dictionaryLink, int[] longest, int[] patternLengths, List<T> values) {
+        this.transitionKeys = transitionKeys;
+        this.transitionTargets = transitionTargets;
+        this.transitionMask = transitionKeys.length - 1;
+        this.fail = fail;
+        this.terminal = terminal;
+        this.dictionaryLink = dictionaryLink;
+        this.longest = longest;
+        this.patternLengths = patternLengths;
+        this.values = values;
+    }
+
+    /**
+     * 匹配回调
+     */
+    public interface MatchHandler<T> {
+        /**
+         * @param start 匹配在文本中的起始位置
+         * @param end   匹配在文本中的结束位置（不含）
+         * @param value 模式对应的值
+         */
+        void onMatch(int start, int end, T value);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 已注册的模式数量
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * 查找文本中最长的匹配，长度相同时取最先出现的
+     *
+     * @return 匹配模式对应的值，没有匹配时返回null
+     */
+    public T findLongest(CharSequence text) {
+        int state = 0;
+        int bestPattern = -1;
+        int bestLength = 0;
+
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = step(state, text.charAt(i));
+            int candidate = longest[state];
+            if (candidate >= 0 && patternLengths[candidate] > bestLength) {
+                bestPattern = candidate;
+                bestLength = patternLengths[candidate];
+            }
+        }
+
+        return bestPattern >= 0 ? values.get(bestPattern) : null;
+    }
+
+    /**
+     * 检查文本是否包含任意一个模式
+     */
+    public boolean containsAny(CharSequence text) {
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = step(state, text.charAt(i));
+            if (longest[state] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 报告文本中的所有匹配（包括互相重叠的匹配）
+     */
+    public void forEachMatch(CharSequence text, MatchHandler<? super T> handler) {
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = step(state, text.charAt(i));
+            int output = terminal[state] >= 0 ? state : dictionaryLink[state];
+            while (output >= 0) {
+                int pattern = terminal[output];
+                handler.onMatch(i + 1 - patternLengths[pattern], i + 1, values.get(pattern));
+                output = dictionaryLink[output];
+            }
+        }
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            int next = transition(state, c);
+            if (next != NO_STATE) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int transition(int state, char c) {
+        long key = transitionKey(state, c);
+        int index = mix(key) & transitionMask;
+        while (true) {
+            long candidate = transitionKeys[index];
+            if (candidate == key) {
+                return transitionTargets[index];
+            }
+            if (candidate == -1L) {
+                return NO_STATE;
+            }
+            index = (index + 1) & transitionMask;
+        }
+    }
+
+    private static long transitionKey(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * 匹配器构建器
+     */
+    public static final class Builder<T> {
+
+        private final List<String> patterns = new ArrayList<>();
+        private final List<T> values = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * 注册一个模式，重复注册时以后注册的值为准
+         */
+        public Builder<T> add(String pattern, T value) {
+            if (pattern == null || pattern.isEmpty()) {
+                return this;
+            }
+            int existing = patterns.indexOf(pattern);
+            if (existing >= 0) {
+                values.set(existing, value);
+            } else {
+                patterns.add(pattern);
+                values.add(value);
+            }
+            return this;
+        }
+
+        public MultiPatternMatcher<T> build() {
+            // 构建字典树，临时使用列表保存子节点
+            List<char[]> childChars = new ArrayList<>();
+            List<int[]> childStates = new ArrayList<>();
+            List<Integer> terminalList = new ArrayList<>();
+            childChars.add(new char[0]);
+            childStates.add(new int[0]);
+            terminalList.add(-1);
+
+            int transitionCount = 0;
+            int[] patternLengths = new int[patterns.size()];
+
+            for (int p = 0; p < patterns.size(); p++) {
+                String pattern = patterns.get(p);
+                patternLengths[p] = pattern.length();
+                int state = 0;
+                for (int i = 0; i < pattern.length(); i++) {
+                    char c = pattern.charAt(i);
+                    int next = findChild(childChars.get(state), childStates.get(state), c);
+                    if (next == NO_STATE) {
+                        next = childChars.size();
+                        childChars.add(new char[0]);
+                        childStates.add(new int[0]);
+                        terminalList.add(-1);
+                        appendChild(childChars, childStates, state, c, next);
+                        transitionCount++;
+                    }
+                    state = next;
+                }
+                terminalList.set(state, p);
+            }
+
+            int stateCount = childChars.size();
+            int capacity = Integer.highestOneBit(Math.max(4, transitionCount * 2 - 1)) << 1;
+            long[] keys = new long[capacity];
+            int[] targets = new int[capacity];
+            Arrays.fill(keys, -1L);
+            int mask = capacity - 1;
+
+            int[] terminal = new int[stateCount];
+            for (int s = 0; s < stateCount; s++) {
+                terminal[s] = terminalList.get(s);
+                char[] chars = childChars.get(s);
+                int[] states = childStates.get(s);
+                for (int i = 0; i < chars.length; i++) {
+                    long key = transitionKey(s, chars[i]);
+                    int index = mix(key) & mask;
+                    while (keys[index] != -1L) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = key;
+                    targets[index] = states[i];
+                }
+            }
+
+            // 广度优先计算失败链、字典链与最长输出
+            int[] fail = new int[stateCount];
+            int[] dictionaryLink = new int[stateCount];
+            int[] longest = new int[stateCount];
+            Arrays.fill(dictionaryLink, -1);
+            longest[0] = terminal[0];
+
+            MultiPatternMatcher<T> matcher = new MultiPatternMatcher<>(keys, targets, fail, terminal,
+                dictionaryLink, longest, patternLengths, new ArrayList<>(values));
+
+            Deque<Integer> queue = new ArrayDeque<>();
+            char[] rootChars = childChars.get(0);
+            int[] rootStates = childStates.get(0);
+            for (int i = 0; i < rootChars.length; i++) {
+                int child = rootStates[i];
+                fail[child] = 0;
+                longest[child] = terminal[child];
+                queue.add(child);
+            }
+
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                char[] chars = childChars.get(state);
+                int[] states = childStates.get(state);
+                for (int i = 0; i < chars.length; i++) {
+                    int child = states[i];
+                    int fallback = matcher.step(fail[state], chars[i]);
+                    fail[child] = fallback;
+                    dictionaryLink[child] = terminal[fallback] >= 0 ? fallback : dictionaryLink[fallback];
+                    longest[child] = longer(terminal[child], longest[fallback], patternLengths);
+                    queue.add(child);
+                }
+            }
+
+            return matcher;
+        }
+
+        private static int longer(int a, int b, int[] patternLengths) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            return patternLengths[a] >= patternLengths[b] ? a : b;
+        }
+
+        private static int findChild(char[] chars, int[] states, char c) {
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] == c) {
+                    return states[i];
+                }
+            }
+            return NO_STATE;
+        }
+
+        private static void appendChild(List<char[]> childChars, List<int[]> childStates, int state, char c, int child) {
+            char[] chars = childChars.get(state);
+            int[] states = childStates.get(state);
+            char[] newChars = Arrays.copyOf(chars, chars.length + 1);
+            int[] newStates = Arrays.copyOf(states, states.length + 1);
+            newChars[chars.length] = c;
+            newStates[states.length] = child;
+            childChars.set(state, newChars);
+            childStates.set(state, newStates);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package dev.charlieveg.loreattribute.data;
+
+import dev.charlieveg.loreattribute.manager.PlayerEquipmentState;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 战斗计算分配测试
+ * 预热后用 ThreadMXBean 统计当前线程在循环中分配的字节数，
+ * 确认 DamageCalculation 的各伤害阶段与 PlayerEquipmentState 的槽位增量更新在常态下不分配对象
+ *
+ * @author charlieveg
+ */
+public class CombatMathAllocationTest {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ITERATIONS = 200_000;
+
+    // 读取计数本身可能分配少量对象，远小于每次迭代分配一个对象的总量（至少 16 * ITERATIONS 字节）
+    private static final long ALLOCATION_TOLERANCE_BYTES = 4096L;
+
+    private com.sun.management.ThreadMXBean threadBean;
+    private long threadId;
+
+    // 累加计算结果，防止循环被 JIT 整体消除
+    private double sink;
+
+    @Before
+    public void setUp() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("JVM 不支持统计线程分配", bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue("JVM 不支持统计线程分配", threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        threadId = Thread.currentThread().getId();
+    }
+
+    @Test
+    public void damageStagesDoNotAllocate() {
+        DerivedCombatProfile attacker = new DerivedCombatProfile(attackerAttributes().freeze());
+        DerivedCombatProfile target = new DerivedCombatProfile(targetAttributes().freeze());
+        // 固定种子，保证暴击、闪避、格挡、反伤的分支都会执行且结果可重复
+        DamageCalculation calculation = new DamageCalculation(new Random(42L));
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runHits(calculation, attacker, target, ITERATIONS);
+        }
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        runHits(calculation, attacker, target, ITERATIONS);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("伤害阶段计算分配了 " + allocated + " 字节", allocated < ALLOCATION_TOLERANCE_BYTES);
+        assertTrue(sink > 0);
+    }
+
+    @Test
+    public void equipmentSlotUpdatesDoNotAllocate() {
+        AttributeVector helmet = new AttributeVector();
+        helmet.set(AttributeKey.ARMOR, 12);
+        helmet.set(AttributeKey.DODGE, 5);
+        helmet.freeze();
+        AttributeVector weapon = attackerAttributes().freeze();
+
+        PlayerEquipmentState state = new PlayerEquipmentState();
+        state.replaceSlot(PlayerEquipmentState.SLOT_ARMOR_START, 1L, null, helmet);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runSlotUpdates(state, helmet, weapon, ITERATIONS);
+        }
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        runSlotUpdates(state, helmet, weapon, ITERATIONS);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("装备槽位更新分配了 " + allocated + " 字节", allocated < ALLOCATION_TOLERANCE_BYTES);
+        // 每轮最后恢复为只有头盔，结果与初始状态相同
+        AttributeVector total = state.getTotal();
+        assertEquals(12.0, total.get(AttributeKey.ARMOR), 1e-9);
+        assertEquals(5.0, total.get(AttributeKey.DODGE), 1e-9);
+        assertEquals(0.0, total.get(AttributeKey.DAMAGE), 1e-9);
+    }
+
+    /**
+     * 按 CombatListener 处理直接攻击的顺序执行各阶段：
+     * 基础伤害 → 暴击 → 真实伤害 → 百分比加成 → 闪避、格挡与减免 → 反伤 → 吸血、弱化与范围伤害
+     */
+    private void runHits(DamageCalculation calculation, DerivedCombatProfile attacker,
+                         DerivedCombatProfile target, int iterations) {
+        double total = 0.0;
+        for (int i = 0; i < iterations; i++) {
+            calculation.begin(attacker, target, 4.0 + (i & 7), true);
+            calculation.applyBaseDamage();
+            calculation.applyCrit();
+            calculation.applyTrueDamage();
+            calculation.applyPercentModifiers();
+            if (calculation.rollDodge()) {
+                continue;
+            }
+            calculation.applyDefense();
+            calculation.rollInjury();
+            calculation.rollWeaken();
+            total += calculation.getDamage() + calculation.getLifeStealAmount() + calculation.getAoeDamage();
+        }
+        calculation.clear();
+        sink += total;
+    }
+
+    /**
+     * 交替在主手放入、取下武器，并替换头盔槽位
+     */
+    private void runSlotUpdates(PlayerEquipmentState state, AttributeVector helmet, AttributeVector weapon,
+                                int iterations) {
+        double result = 0.0;
+        for (int i = 0; i < iterations; i++) {
+            state.replaceSlot(PlayerEquipmentState.SLOT_HAND, 2L, null, weapon);
+            state.replaceSlot(PlayerEquipmentState.SLOT_ARMOR_START, 0L, null, AttributeVector.EMPTY);
+            result += state.getTotal().get(AttributeKey.DAMAGE);
+            state.replaceSlot(PlayerEquipmentState.SLOT_ARMOR_START, 1L, null, helmet);
+            state.replaceSlot(PlayerEquipmentState.SLOT_HAND, 0L, null, AttributeVector.EMPTY);
+            result += state.getTotal().get(AttributeKey.ARMOR);
+        }
+        sink += result;
+    }
+
+    private static AttributeVector attackerAttributes() {
+        AttributeVector attributes = new AttributeVector();
+        attributes.set(AttributeKey.DAMAGE, 20);
+        attributes.set(AttributeKey.CRIT, 30);
+        attributes.set(AttributeKey.CRIT_DAMAGE, 50);
+        attributes.set(AttributeKey.TRUE_DAMAGE, 3);
+        attributes.set(AttributeKey.FINAL_DAMAGE, 10);
+        attributes.set(AttributeKey.FINAL_TRUE_DAMAGE, 5);
+        attributes.set(AttributeKey.ARMOR_BREAK, 8);
+        attributes.set(AttributeKey.LIFE_STEAL, 6);
+        attributes.set(AttributeKey.AOE_DAMAGE, 40);
+        attributes.set(AttributeKey.AOE_RANGE, 3);
+        return attributes;
+    }
+
+    private static AttributeVector targetAttributes() {
+        AttributeVector attributes = new AttributeVector();
+        attributes.set(AttributeKey.ARMOR, 25);
+        attributes.set(AttributeKey.TRUE_ARMOR, 10);
+        attributes.set(AttributeKey.DODGE, 10);
+        attributes.set(AttributeKey.BLOCK, 20);
+        attributes.set(AttributeKey.INJURY, 15);
+        return attributes;
+    }
+}